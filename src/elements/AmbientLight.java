@@ -3,6 +3,7 @@ package elements;
 import primitives.Color;
 
 public class AmbientLight extends Light {
+    private static final long serialVersionUID = 1L;
 
     public AmbientLight() {
         super(Color.BLACK);
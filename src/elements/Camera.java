@@ -6,6 +6,7 @@ import primitives.Vector;
 
 import static primitives.Util.*;
 
+import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -16,7 +17,9 @@ import java.util.stream.Collectors;
  * 
  * @author SHAI FALACH and RON HAIM HODADEDI
  */
-public class Camera {
+public class Camera implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private Point3D position;
     private Vector vTo, vUp, vRight;
     private double width, height, distance;
@@ -39,6 +42,22 @@ public class Camera {
         vRight = vTo.crossProduct(vUp).normalize();
     }
 
+    /**
+     * Copy constructor for Camera - the copy can be moved and rotated without
+     * affecting the original camera.
+     * 
+     * @param other - Camera to copy.
+     */
+    public Camera(Camera other) {
+        position = other.position;
+        vTo = other.vTo;
+        vUp = other.vUp;
+        vRight = other.vRight;
+        width = other.width;
+        height = other.height;
+        distance = other.distance;
+    }
+
     /**
      * Getter for private field Position
      * 
@@ -89,6 +108,13 @@ public class Camera {
         return width;
     }
 
+    /**
+     * @return the distance of the view plane
+     */
+    public double getDistance() {
+        return distance;
+    }
+
     /**
      * A Setter for View panel size. need to provide width and height.
      * 
@@ -140,6 +166,34 @@ public class Camera {
         return new Ray(position, pIJ.subtract(position));
     }
 
+    /**
+     * gets Ray that goes through a point of the View panel given in (fractional)
+     * pixel units - the pixel [i,j] spans from (j, i) to (j + 1, i + 1), so its
+     * center is at (j + 0.5, i + 0.5).
+     * 
+     * @param nX int - number of columns in the View panel.
+     * @param nY int - number of rows in the View panel.
+     * @param x  double - the column coordinate of the point.
+     * @param y  double - the row coordinate of the point.
+     * @return Ray - that start at the camera and goes through the point.
+     */
+    public Ray constructRayThroughSubPixel(int nX, int nY, double x, double y) {
+        double rX = alignZero(width / nX);
+        double rY = alignZero(height / nY);
+        Point3D pc = position.add(vTo.scale(distance));
+
+        double yI = alignZero((nY / 2d - y) * rY);
+        double xJ = alignZero((x - nX / 2d) * rX);
+
+        Point3D pIJ = pc;
+        if (xJ != 0)
+            pIJ = pIJ.add(vRight.scale(xJ));
+        if (yI != 0)
+            pIJ = pIJ.add(vUp.scale(yI));
+
+        return new Ray(position, pIJ.subtract(position));
+    }
+
     /**
      * A function that moves the camera around using new point parameter while
      * keeping the camera direction at the point given in the lookAtPoint parameter.
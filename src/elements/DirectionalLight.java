@@ -4,6 +4,7 @@ import java.util.List;
 
 import primitives.Color;
 import primitives.Point3D;
+import primitives.SampleStream;
 import primitives.Vector;
 
 /**
@@ -11,6 +12,8 @@ import primitives.Vector;
  * relatively completely engulf our scene i.e. the sun.
  */
 public class DirectionalLight extends Light implements LightSource {
+    private static final long serialVersionUID = 1L;
+
     private Vector direction;
 
     /**
@@ -56,7 +59,13 @@ public class DirectionalLight extends Light implements LightSource {
     }
 
     @Override
-    public List<Point3D> calculatePoints(Vector n, int numOfPoints) {
+    public int calculatePoints(Vector n, int numOfPoints, SampleStream samples, double[] coordinates) {
+        coordinates[0] = coordinates[1] = coordinates[2] = 0;
+        return 1;
+    }
+
+    @Override
+    public List<Point3D> calculateProbePoints(Vector n) {
         return List.of(Point3D.ZERO);
     }
 }
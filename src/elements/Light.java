@@ -1,11 +1,15 @@
 package elements;
 
+import java.io.Serializable;
+
 import primitives.Color;
 
 /**
  * An abstract class that give the common field for all light classes.
  */
-abstract class Light {
+abstract class Light implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     protected final Color intensity;
 
     /**
@@ -1,15 +1,18 @@
 package elements;
 
+import java.io.Serializable;
+import java.util.Arrays;
 import java.util.List;
 
 import primitives.Color;
 import primitives.Point3D;
+import primitives.SampleStream;
 import primitives.Vector;
 
 /**
  * An interface to share common functionality of light sources.
  */
-public interface LightSource {
+public interface LightSource extends Serializable {
     /**
      * Get the light intensity of the light source at Point3D given.
      * 
@@ -62,5 +65,72 @@ public interface LightSource {
      */
     public Vector getDirection(Point3D sourcePoint, Point3D destinationPoint);
 
-    public List<Point3D> calculatePoints(Vector n, int numOfPoints);
+    /**
+     * Calculate sample points on the light source area (a square of the square
+     * edge length around the light position, orthogonal to the given direction).
+     * 
+     * @param n           - the direction from the light to the lighted point.
+     * @param numOfPoints - amount of sample points.
+     * @param samples     - the sample stream of the camera sample that the points
+     *                    are taken for.
+     * @return - the sample points.
+     */
+    public default List<Point3D> calculatePoints(Vector n, int numOfPoints, SampleStream samples) {
+        double[] coordinates = new double[3 * numOfPoints];
+        Point3D[] points = new Point3D[calculatePoints(n, numOfPoints, samples, coordinates)];
+        for (int i = 0; i < points.length; ++i)
+            points[i] = new Point3D(coordinates[3 * i], coordinates[3 * i + 1], coordinates[3 * i + 2]);
+        return Arrays.asList(points);
+    }
+
+    /**
+     * Calculate the same sample points as
+     * {@link #calculatePoints(Vector, int, SampleStream)} into a buffer of
+     * coordinates, so a caller that reuses the buffer allocates nothing per shadow
+     * ray.
+     * 
+     * @param n           - the direction from the light to the lighted point.
+     * @param numOfPoints - amount of sample points.
+     * @param samples     - the sample stream of the camera sample that the points
+     *                    are taken for.
+     * @param coordinates - buffer for the x, y and z of the points one after
+     *                    another (at least 3 * numOfPoints long).
+     * @return - the amount of points in the buffer (1 for a light with no area).
+     */
+    public int calculatePoints(Vector n, int numOfPoints, SampleStream samples, double[] coordinates);
+
+    /**
+     * Calculate the probe points of the light source area - its center and its
+     * corners (the same square as in {@link #calculatePoints}). A light with no area
+     * has a single probe point.
+     * 
+     * @param n - the direction from the light to the lighted point.
+     * @return - the probe points.
+     */
+    public List<Point3D> calculateProbePoints(Vector n);
+
+    /**
+     * Get the radius around the light position out of which the light intensity
+     * is below a cutoff (so the light can be culled there).
+     * 
+     * @param cutoff - the negligible intensity (of the strongest color component).
+     * @return - the influence radius, or positive infinity for a light that reaches
+     *         everywhere (a light with no position or no attenuation, or a cutoff
+     *         of 0).
+     */
+    public default double getInfluenceRadius(double cutoff) {
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Check whether the light intensity at a point is at least a cutoff - out of
+     * the influence radius or out of the light cone it is not.
+     * 
+     * @param p      - the point.
+     * @param cutoff - the negligible intensity (of the strongest color component).
+     * @return - false if the light can be culled at the point
+     */
+    public default boolean isInfluencing(Point3D p, double cutoff) {
+        return true;
+    }
 }
@@ -0,0 +1,328 @@
+package elements;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import primitives.Color;
+import primitives.Point3D;
+
+/**
+ * A bounding volume hierarchy over the light sources of a scene, for culling
+ * the lights that are negligible at a point and for sampling the lights by
+ * their importance. Every positional light is bounded by the box of its
+ * influence sphere (see {@link LightSource#getInfluenceRadius(double)}), and
+ * the lights are arranged in a binary tree (split at the median of the longest
+ * axis of their positions), so a point visits only the lights whose boxes
+ * contain it. Lights with no position (directional lights) are always visited.
+ * All the visited lights are tested at last by
+ * {@link LightSource#isInfluencing(Point3D, double)} (the influence sphere and
+ * the spot light cone).<br/>
+ * Every node also keeps the total power of its lights and the box of their
+ * positions, so a single light can be chosen by walking down the tree, taking
+ * each child with probability proportional to its estimated intensity at the
+ * point (a light tree - the cost is logarithmic in the amount of lights).
+ */
+public class LightTree {
+    private static final int LEAF_SIZE = 2;
+
+    private final List<LightSource> lights;
+    private final LightSource[] lightArray;
+    private final int size;
+    private final double cutoff;
+
+    // the lights with no position (indices in the lights list)
+    private final int[] unbounded;
+    // the tree nodes - node i has its box in bounds[6i..6i+5] (min x,y,z then max
+    // x,y,z) and its lights range in the leaves array between first[i] and
+    // first[i]+count[i], or (for an inner node with count[i] == 0) its children
+    // in first[i] and first[i]+1
+    private final double[] bounds;
+    private final int[] first;
+    private final int[] count;
+    // the box of the light positions of node i in positions[6i..6i+5], the total
+    // power (the strongest color component) of its lights in power[i] and the
+    // minimal attenuation factors (kC, kL, kQ) of its lights in
+    // attenuation[3i..3i+2]
+    private final double[] positions;
+    private final double[] power;
+    private final double[] attenuation;
+    private int nodes = 0;
+    private final int[] leaves;
+    private final double[] spheres;
+    private final double[] lightPower;
+
+    /**
+     * Build the tree over lights
+     *
+     * @param lights - the light sources (the list must not change while the tree
+     *               is in use).
+     * @param cutoff - the negligible intensity (of the strongest color component)
+     *               - 0 culls a light only at the points it leaves black (behind
+     *               a spot light).
+     */
+    public LightTree(List<LightSource> lights, double cutoff) {
+        if (cutoff < 0)
+            throw new IllegalArgumentException("Negative light cutoff is illegal");
+        this.lights = lights;
+        this.lightArray = lights.toArray(new LightSource[0]);
+        this.size = lightArray.length;
+        this.cutoff = cutoff;
+
+        int[] bounded = new int[size];
+        int[] others = new int[size];
+        int nBounded = 0, nOthers = 0;
+        spheres = new double[4 * size];
+        lightPower = new double[size];
+        int index = 0;
+        for (LightSource light : lightArray) {
+            if (light instanceof PointLight) {
+                Point3D position = ((PointLight) light).getPosition();
+                spheres[4 * index] = position.getX();
+                spheres[4 * index + 1] = position.getY();
+                spheres[4 * index + 2] = position.getZ();
+                // infinite radius gives an infinite box that contains every point
+                spheres[4 * index + 3] = light.getInfluenceRadius(cutoff);
+                Color intensity = ((PointLight) light).getIntensity();
+                lightPower[index] = Math.max(intensity.getR(), Math.max(intensity.getG(), intensity.getB()));
+                bounded[nBounded++] = index;
+            } else {
+                others[nOthers++] = index;
+            }
+            ++index;
+        }
+        unbounded = Arrays.copyOf(others, nOthers);
+        leaves = Arrays.copyOf(bounded, nBounded);
+
+        int maxNodes = Math.max(1, 2 * nBounded);
+        bounds = new double[6 * maxNodes];
+        positions = new double[6 * maxNodes];
+        power = new double[maxNodes];
+        attenuation = new double[3 * maxNodes];
+        first = new int[maxNodes];
+        count = new int[maxNodes];
+        if (nBounded > 0)
+            build(newNode(), 0, nBounded);
+    }
+
+    /**
+     * @return a new node index
+     */
+    private int newNode() {
+        return nodes++;
+    }
+
+    /**
+     * Build the sub tree of the leaves in a range into a node
+     *
+     * @param node - the node index.
+     * @param from - the first leaf index.
+     * @param to   - the leaf index after the last one.
+     */
+    private void build(int node, int from, int to) {
+        double[] box = { Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, //
+                -Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+        double[] positionsBox = box.clone();
+        double kC = Double.MAX_VALUE, kL = Double.MAX_VALUE, kQ = Double.MAX_VALUE;
+        for (int i = from; i < to; ++i) {
+            PointLight light = (PointLight) lightArray[leaves[i]];
+            kC = Math.min(kC, light.getKC());
+            kL = Math.min(kL, light.getKL());
+            kQ = Math.min(kQ, light.getKQ());
+            int s = 4 * leaves[i];
+            for (int axis = 0; axis < 3; ++axis) {
+                box[axis] = Math.min(box[axis], spheres[s + axis] - spheres[s + 3]);
+                box[axis + 3] = Math.max(box[axis + 3], spheres[s + axis] + spheres[s + 3]);
+                positionsBox[axis] = Math.min(positionsBox[axis], spheres[s + axis]);
+                positionsBox[axis + 3] = Math.max(positionsBox[axis + 3], spheres[s + axis]);
+            }
+            power[node] += lightPower[leaves[i]];
+        }
+        System.arraycopy(box, 0, bounds, 6 * node, 6);
+        System.arraycopy(positionsBox, 0, positions, 6 * node, 6);
+        attenuation[3 * node] = kC;
+        attenuation[3 * node + 1] = kL;
+        attenuation[3 * node + 2] = kQ;
+
+        if (to - from <= LEAF_SIZE) {
+            first[node] = from;
+            count[node] = to - from;
+            return;
+        }
+        // split at the median of the light positions along the longest axis
+        int axis = 0;
+        for (int a = 1; a < 3; ++a)
+            if (positionsBox[a + 3] - positionsBox[a] > positionsBox[axis + 3] - positionsBox[axis])
+                axis = a;
+        final int splitAxis = axis;
+        Integer[] range = new Integer[to - from];
+        for (int i = from; i < to; ++i)
+            range[i - from] = leaves[i];
+        Arrays.sort(range, (l1, l2) -> Double.compare(spheres[4 * l1 + splitAxis], spheres[4 * l2 + splitAxis]));
+        for (int i = from; i < to; ++i)
+            leaves[i] = range[i - from];
+
+        int middle = (from + to) / 2;
+        int left = newNode();
+        newNode();
+        first[node] = left;
+        count[node] = 0;
+        build(left, from, middle);
+        build(left + 1, middle, to);
+    }
+
+    /**
+     * Check whether the tree was built over a lights list with a cutoff (and the
+     * list has not changed its size since)
+     *
+     * @param lights - the light sources.
+     * @param cutoff - the negligible intensity.
+     * @return true if the tree can be used for the lights and the cutoff
+     */
+    public boolean isOf(List<LightSource> lights, double cutoff) {
+        return this.lights == lights && size == lights.size() && this.cutoff == cutoff;
+    }
+
+    /**
+     * Find the lights that are not negligible at a point
+     *
+     * @param p - the point.
+     * @return the influencing lights, in the order of the lights list
+     */
+    public List<LightSource> influencing(Point3D p) {
+        double x = p.getX(), y = p.getY(), z = p.getZ();
+        int[] found = new int[size];
+        int nFound = 0;
+        for (int i : unbounded)
+            found[nFound++] = i;
+
+        if (nodes > 0) {
+            int[] stack = new int[nodes];
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int node = stack[--top];
+                int b = 6 * node;
+                if (x < bounds[b] || y < bounds[b + 1] || z < bounds[b + 2] //
+                        || x > bounds[b + 3] || y > bounds[b + 4] || z > bounds[b + 5])
+                    continue;
+                if (count[node] == 0) {
+                    stack[top++] = first[node];
+                    stack[top++] = first[node] + 1;
+                } else {
+                    for (int i = first[node]; i < first[node] + count[node]; ++i)
+                        found[nFound++] = leaves[i];
+                }
+            }
+        }
+
+        // keep the order of the lights list, so the colors are summed in the same
+        // order as without culling
+        Arrays.sort(found, 0, nFound);
+        List<LightSource> result = new ArrayList<>(nFound);
+        for (int i = 0; i < nFound; ++i) {
+            LightSource light = lightArray[found[i]];
+            if (light.isInfluencing(p, cutoff))
+                result.add(light);
+        }
+        return result;
+    }
+
+    /**
+     * @return the lights with no position (that are not in the tree), in the order
+     *         of the lights list
+     */
+    public List<LightSource> getUnbounded() {
+        List<LightSource> result = new ArrayList<>(unbounded.length);
+        for (int i : unbounded)
+            result.add(lightArray[i]);
+        return result;
+    }
+
+    /**
+     * Choose one of the positional lights at random by its estimated intensity at
+     * a point - the light power, the distance attenuation (estimated by the
+     * weakest attenuation of the lights of the inner nodes, and exactly for the
+     * last lights) and the spot light falloff. Every light that lights the point has a positive
+     * probability, so weighting its contribution by 1 / probability is unbiased.
+     *
+     * @param p           - the point.
+     * @param u           - a random number in [0, 1).
+     * @param probability - array for the probability of the chosen light.
+     * @return the chosen light, or null if no light lights the point
+     */
+    public LightSource sample(Point3D p, double u, double[] probability) {
+        if (nodes == 0)
+            return null;
+        double x = p.getX(), y = p.getY(), z = p.getZ();
+        double pdf = 1;
+        int node = 0;
+        while (count[node] == 0) {
+            int left = first[node];
+            double leftImportance = importance(left, x, y, z);
+            double total = leftImportance + importance(left + 1, x, y, z);
+            if (total <= 0)
+                return null;
+            double leftProbability = leftImportance / total;
+            if (u < leftProbability) {
+                u /= leftProbability;
+                pdf *= leftProbability;
+                node = left;
+            } else {
+                u = (u - leftProbability) / (1 - leftProbability);
+                pdf *= 1 - leftProbability;
+                node = left + 1;
+            }
+            u = Math.min(u, Math.nextDown(1d));
+        }
+
+        // the leaf lights by their exact intensity at the point
+        double[] weights = new double[count[node]];
+        double total = 0;
+        for (int i = 0; i < weights.length; ++i) {
+            LightSource light = lightArray[leaves[first[node] + i]];
+            if (!p.equals(((PointLight) light).getPosition())) {
+                Color intensity = light.getIntensity(p);
+                weights[i] = Math.max(intensity.getR(), Math.max(intensity.getG(), intensity.getB()));
+                total += weights[i];
+            }
+        }
+        if (total <= 0)
+            return null;
+        double target = u * total;
+        int chosen = 0;
+        while (chosen < weights.length - 1 && (target >= weights[chosen] || weights[chosen] == 0)) {
+            target -= weights[chosen];
+            ++chosen;
+        }
+        probability[0] = pdf * weights[chosen] / total;
+        return lightArray[leaves[first[node] + chosen]];
+    }
+
+    /**
+     * The estimated intensity of the lights of a node at a point - their power
+     * attenuated by their weakest attenuation factors at the distance to the
+     * center of their positions (but not closer than the half diagonal of their
+     * positions box)
+     *
+     * @param node - the node.
+     * @param x    - the point x coordinate.
+     * @param y    - the point y coordinate.
+     * @param z    - the point z coordinate.
+     * @return the estimated intensity
+     */
+    private double importance(int node, double x, double y, double z) {
+        int b = 6 * node;
+        double dx = (positions[b] + positions[b + 3]) / 2 - x;
+        double dy = (positions[b + 1] + positions[b + 4]) / 2 - y;
+        double dz = (positions[b + 2] + positions[b + 5]) / 2 - z;
+        double ex = positions[b + 3] - positions[b];
+        double ey = positions[b + 4] - positions[b + 1];
+        double ez = positions[b + 5] - positions[b + 2];
+        double distanceSquared = Math.max(dx * dx + dy * dy + dz * dz, (ex * ex + ey * ey + ez * ez) / 4);
+        int a = 3 * node;
+        double factor = attenuation[a] + attenuation[a + 1] * Math.sqrt(distanceSquared)
+                + attenuation[a + 2] * distanceSquared;
+        return power[node] / Math.max(factor, 1e-10);
+    }
+}
@@ -2,25 +2,30 @@ package elements;
 
 import primitives.Color;
 import primitives.Point3D;
+import primitives.SampleStream;
+import primitives.Sampler;
 import primitives.Vector;
 
 import static primitives.Util.*;
 
-import java.security.SecureRandom;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A class to represent a omnidirectional light source Point i.e. lightbulb.
  */
 public class PointLight extends Light implements LightSource {
+    private static final long serialVersionUID = 1L;
+
     private Point3D position;
     private double kC, kL, kQ;
 
     private double edge;
 
-    private Random rand = new SecureRandom();
+    // the sample patterns on the light square by their amount of samples, shared
+    // by all the lighted points (built again after deserialization)
+    private transient volatile Map<Integer, double[]> samplePatterns = null;
 
     /**
      * A basic constructor for Point light source.
@@ -68,12 +73,71 @@ public class PointLight extends Light implements LightSource {
         return this;
     }
 
+    /**
+     * @return the kC scalar for phong equation.
+     */
+    public double getKC() {
+        return kC;
+    }
+
+    /**
+     * @return the kL scalar for phong equation.
+     */
+    public double getKL() {
+        return kL;
+    }
+
+    /**
+     * @return the kQ scalar for phong equation.
+     */
+    public double getKQ() {
+        return kQ;
+    }
+
+    /**
+     * A getter for the light position.
+     * 
+     * @return Point3D - Location of the light source.
+     */
+    public Point3D getPosition() {
+        return position;
+    }
+
     @Override
     public Color getIntensity(Point3D p) {
         double dSquared = alignZero(p.distanceSquared(position));
         return intensity.reduce(alignZero(kC + Math.sqrt(dSquared) * kL + dSquared * kQ));
     }
 
+    @Override
+    public double getInfluenceRadius(double cutoff) {
+        double max = maxIntensity();
+        if (cutoff <= 0 || (kL == 0 && kQ == 0))
+            return Double.POSITIVE_INFINITY;
+        // the root of kC + kL*d + kQ*d^2 = max / cutoff
+        double c = kC - max / cutoff;
+        if (c >= 0)
+            return 0;
+        if (kQ == 0)
+            return -c / kL;
+        return (-kL + Math.sqrt(kL * kL - 4 * kQ * c)) / (2 * kQ);
+    }
+
+    @Override
+    public boolean isInfluencing(Point3D p, double cutoff) {
+        if (cutoff <= 0)
+            return true;
+        double dSquared = p.distanceSquared(position);
+        return maxIntensity() >= cutoff * (kC + Math.sqrt(dSquared) * kL + dSquared * kQ);
+    }
+
+    /**
+     * @return the strongest color component of the light
+     */
+    protected double maxIntensity() {
+        return Math.max(intensity.getR(), Math.max(intensity.getG(), intensity.getB()));
+    }
+
     /**
      * helper function to reduce repetition on calculating unit vector of 2 points.
      * 
@@ -115,29 +179,86 @@ public class PointLight extends Light implements LightSource {
         return this;
     }
 
+    /**
+     * {@inheritDoc} The points are a precomputed pattern shifted (toroidally on the
+     * square) by a single point of the sample stream, so the pattern is
+     * decorrelated between the camera samples and the points cost only a few
+     * multiplications each.
+     */
     @Override
-    public List<Point3D> calculatePoints(Vector n, int numOfPoints) {
-        List<Point3D> points = new LinkedList<>();
-        points.add(position);
-
+    public int calculatePoints(Vector n, int numOfPoints, SampleStream samples, double[] coordinates) {
+        double px = position.getX(), py = position.getY(), pz = position.getZ();
         if (edge == 0 || numOfPoints == 1) {
-            return points;
+            coordinates[0] = px;
+            coordinates[1] = py;
+            coordinates[2] = pz;
+            return 1;
+        }
+        double[] pattern = samplePattern(numOfPoints);
+        samples.next(coordinates); // the shift is taken into the first two places
+        double shiftU = coordinates[0], shiftV = coordinates[1];
+
+        Vector orthogonal = n.orthogonalVector();
+        Point3D vx = orthogonal.getHead();
+        Point3D vy = n.crossProduct(orthogonal).normalize().getHead();
+        for (int i = 0; i < numOfPoints; ++i) {
+            double u = pattern[2 * i] + shiftU;
+            double v = pattern[2 * i + 1] + shiftV;
+            double x = ((u < 1 ? u : u - 1) - 0.5) * edge;
+            double y = ((v < 1 ? v : v - 1) - 0.5) * edge;
+            // aligned as the coordinates of a point
+            coordinates[3 * i] = alignZero(px + vx.getX() * x + vy.getX() * y);
+            coordinates[3 * i + 1] = alignZero(py + vx.getY() * x + vy.getY() * y);
+            coordinates[3 * i + 2] = alignZero(pz + vx.getZ() * x + vy.getZ() * y);
+        }
+        return numOfPoints;
+    }
+
+    /**
+     * Get the sample pattern on the light square for an amount of samples - a
+     * Sobol net, calculated once for every amount of samples and shared by all the
+     * lighted points
+     * 
+     * @param numOfPoints - amount of samples.
+     * @return the pattern coordinates in pairs, in [0, 1)
+     */
+    private double[] samplePattern(int numOfPoints) {
+        Map<Integer, double[]> patterns = samplePatterns;
+        if (patterns == null)
+            samplePatterns = patterns = new ConcurrentHashMap<>();
+        return patterns.computeIfAbsent(numOfPoints, count -> Sampler.SOBOL.pattern(count, 0));
+    }
+
+    @Override
+    public List<Point3D> calculateProbePoints(Vector n) {
+        if (edge == 0) {
+            return List.of(position);
         }
         Vector vx = n.orthogonalVector();
         Vector vy = n.crossProduct(vx).normalize();
-        double halfEdge = edge / 2;
-        for (int i = 1; i < numOfPoints; i++) {
-            Point3D pc = position;
-            double x = rand.nextDouble() * edge - halfEdge;
-            double y = rand.nextDouble() * edge - halfEdge;
-            if (!isZero(x)) {
-                pc = pc.add(vx.scale(x));
-            }
-            if (!isZero(y)) {
-                pc = pc.add(vy.scale(y));
-            }
-            points.add(pc);
+        return List.of(position, areaPoint(vx, vy, 0, 0), areaPoint(vx, vy, 1, 0), areaPoint(vx, vy, 0, 1),
+                areaPoint(vx, vy, 1, 1));
+    }
+
+    /**
+     * helper function to find a point in the light square.
+     * 
+     * @param vx - the first direction of the square edges.
+     * @param vy - the second direction of the square edges.
+     * @param u  - the position along the first direction, from 0 to 1.
+     * @param v  - the position along the second direction, from 0 to 1.
+     * @return - the point in the square.
+     */
+    private Point3D areaPoint(Vector vx, Vector vy, double u, double v) {
+        Point3D pc = position;
+        double x = (u - 0.5) * edge;
+        double y = (v - 0.5) * edge;
+        if (!isZero(x)) {
+            pc = pc.add(vx.scale(x));
+        }
+        if (!isZero(y)) {
+            pc = pc.add(vy.scale(y));
         }
-        return points;
+        return pc;
     }
 }
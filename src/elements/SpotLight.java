@@ -10,6 +10,8 @@ import static primitives.Util.alignZero;
  * A position light source that light in a certain direction.
  */
 public class SpotLight extends PointLight {
+    private static final long serialVersionUID = 1L;
+
     private Vector direction;
     private int narrowBeam;
 
@@ -29,10 +31,35 @@ public class SpotLight extends PointLight {
 
     @Override
     public Color getIntensity(Point3D p) {
-        double numerator = alignZero(direction.dotProduct(getL(p)));
+        double factor = beamFactor(p);
+        return factor <= 0 ? Color.BLACK : super.getIntensity(p).scale(factor);
+    }
+
+    @Override
+    public boolean isInfluencing(Point3D p, double cutoff) {
+        if (p.equals(getPosition()))
+            return false;
+        double factor = beamFactor(p);
+        if (factor <= 0)
+            return false;
+        if (cutoff <= 0)
+            return true;
+        // the cone falloff is applied on the attenuated intensity
+        return super.isInfluencing(p, cutoff / factor);
+    }
+
+    /**
+     * helper function to calculate the factor of the light intensity at a point
+     * by its angle from the light direction (and the narrow beam).
+     * 
+     * @param p - the point.
+     * @return the factor (0 or negative where the light is black)
+     */
+    private double beamFactor(Point3D p) {
+        double factor = alignZero(direction.dotProduct(getL(p)));
         if (narrowBeam != 1)
-            numerator = alignZero(Math.pow(numerator, narrowBeam));
-        return numerator <= 0 ? Color.BLACK : super.getIntensity(p).scale(numerator);
+            factor = alignZero(Math.pow(factor, narrowBeam));
+        return factor;
     }
 
     // @Override
@@ -1,5 +1,7 @@
 package geometries;
 
+import java.io.Serializable;
+
 import primitives.Point3D;
 import primitives.Vector;
 
@@ -8,7 +10,9 @@ import static primitives.Util.*;
 /**
  * A Class that re a Axis aligned bounding box in a 3D-dimensional space.
  */
-public class AABB {
+public class AABB implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private static final Vector xAxis = new Vector(1, 0, 0);
     private static final Vector yAxis = new Vector(0, 1, 0);
     private static final Vector zAxis = new Vector(0, 0, 1);
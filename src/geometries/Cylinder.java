@@ -9,6 +9,8 @@ import primitives.Ray;
  * @author SHAI FALACH and RON HAIM HODADEDI
  */
 public class Cylinder extends Tube {
+    private static final long serialVersionUID = 1L;
+
     private double height;
 
     /**
@@ -1,5 +1,6 @@
 package geometries;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -16,9 +17,18 @@ import static primitives.Util.*;
  * @author SHAI FALACH and RON HAIM HODADEDI
  */
 public class Geometries implements Intersectable {
+    private static final long serialVersionUID = 1L;
+
     private List<Intersectable> geometriesList;
     // in order to save time in calculation we save the AABB of Geometries.
     private AABB boundingBox;
+    // the composite this composite was added to (its changes are its parent's
+    // changes too)
+    private Geometries parent = null;
+    // the amount of changes of the composite and of the composites inside it, for
+    // the caches of the scene shapes to notice changes (the shapes are changed
+    // before rendering, by one thread)
+    private volatile long version = 0;
 
     /**
      * A Constructor the sets the object to be with empty list of intersectable
@@ -36,6 +46,7 @@ public class Geometries implements Intersectable {
      */
     public Geometries(Intersectable... geometries) {
         geometriesList = List.of(geometries);
+        adopt(geometries);
     }
 
     /**
@@ -45,6 +56,41 @@ public class Geometries implements Intersectable {
      */
     public void add(Intersectable... geometries) {
         geometriesList.addAll(List.of(geometries));
+        adopt(geometries);
+        changed();
+    }
+
+    /**
+     * Getter for the version of the shapes, it is changed by every addition of
+     * shapes to the composite or to the composites inside it, and by building the
+     * BVH tree. A shape that is changed in place (i.e. its material) does not
+     * change the version.
+     * 
+     * @return the version of the shapes
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * helper function to make this composite the parent of the composites among
+     * shapes added to it.
+     * 
+     * @param geometries - the added shapes.
+     */
+    private void adopt(Intersectable... geometries) {
+        for (Intersectable geometry : geometries)
+            if (geometry instanceof Geometries)
+                ((Geometries) geometry).parent = this;
+    }
+
+    /**
+     * helper function to count a change of the composite, in the composites that
+     * hold it too.
+     */
+    private void changed() {
+        for (Geometries composite = this; composite != null; composite = composite.parent)
+            ++composite.version;
     }
 
     @Override
@@ -94,10 +140,12 @@ public class Geometries implements Intersectable {
             Geometries newComposite = new Geometries(leftSon, rightSon);
             geometriesList.remove(leftSon);
             geometriesList.remove(rightSon);
+            newComposite.parent = this;
             newComposite.setBox();
             geometriesList.add(newComposite);
             setBox();
         } // end of while
+        changed();
     }
 
     /**
@@ -123,12 +171,41 @@ public class Geometries implements Intersectable {
         List<Intersectable> list = new LinkedList<>();
         for (Intersectable boundedIntersectable : geometriesList) {
             Geometries g = new Geometries(boundedIntersectable);
+            g.parent = this;
             g.setBox();
             list.add(g);
         }
         geometriesList = list;
     }
 
+    /**
+     * Collect the geometries of the composite, and of the composites in it (i.e.
+     * the nodes of the BVH tree), in their order. Copies of the same composite
+     * (i.e. deserialized ones) list their geometries in the same order.
+     * 
+     * @return the geometries
+     */
+    public List<Geometry> flatten() {
+        List<Geometry> geometries = new ArrayList<>();
+        flatten(geometries);
+        return geometries;
+    }
+
+    /**
+     * helper function to collect the geometries of the composite recursively.
+     * 
+     * @param geometries - the list the geometries are added to.
+     */
+    private void flatten(List<Geometry> geometries) {
+        for (Intersectable intersectable : geometriesList) {
+            if (intersectable instanceof Geometries) {
+                ((Geometries) intersectable).flatten(geometries);
+            } else if (intersectable instanceof Geometry) {
+                geometries.add((Geometry) intersectable);
+            }
+        }
+    }
+
     @Override
     public AABB getAABB() {
         return boundingBox;
@@ -161,15 +238,15 @@ public class Geometries implements Intersectable {
                     minZ = minPoint.getZ();
                 }
 
-                if (maxPoint.getX() < maxX) {
+                if (maxPoint.getX() > maxX) {
                     maxX = maxPoint.getX();
                 }
 
-                if (maxPoint.getY() < maxY) {
+                if (maxPoint.getY() > maxY) {
                     maxY = maxPoint.getY();
                 }
 
-                if (maxPoint.getZ() < maxZ) {
+                if (maxPoint.getZ() > maxZ) {
                     maxZ = maxPoint.getZ();
                 }
             }
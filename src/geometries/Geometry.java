@@ -12,6 +12,8 @@ import primitives.Vector;
  */
 
 public abstract class Geometry implements Intersectable {
+    private static final long serialVersionUID = 1L;
+
     protected Color emission = Color.BLACK;
     private Material material = new Material();
 
@@ -1,5 +1,6 @@
 package geometries;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -10,7 +11,7 @@ import primitives.Ray;
 /**
  * Interface for all shapes that can be intersected with Rays.
  */
-public interface Intersectable {
+public interface Intersectable extends Serializable {
     /**
      * find all intersection (if they exists) between a Ray and A Geometry Shape.
      * 
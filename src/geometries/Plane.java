@@ -16,6 +16,8 @@ import primitives.Vector;
  * @author SHAI FALACH and RON HAIM HODADEDI
  */
 public class Plane extends Geometry {
+    private static final long serialVersionUID = 1L;
+
     private Point3D q0;
     private Vector normal;
 
@@ -16,6 +16,8 @@ import primitives.Vector;
  * @author Dan
  */
 public class Polygon extends Geometry {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * List of polygon's vertices
 	 */
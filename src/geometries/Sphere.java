@@ -16,6 +16,8 @@ import primitives.Vector;
  */
 
 public class Sphere extends Geometry {
+    private static final long serialVersionUID = 1L;
+
     private Point3D center;
     private double radius;
     private double radiusSquared;
@@ -13,6 +13,8 @@ import primitives.*;
  * @author SHAI FALACH and RON HAIM HODADEDI
  */
 public class Triangle extends Polygon {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Constructor for building Triangle object.
      * 
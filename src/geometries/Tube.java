@@ -13,6 +13,8 @@ import primitives.Vector;
  * @author SHAI FALACH and RON HAIM HODADEDI
  */
 public class Tube extends Geometry {
+    private static final long serialVersionUID = 1L;
+
     protected Ray axisRay;
     protected double radius;
 
@@ -1,5 +1,7 @@
 package primitives;
 
+import java.io.Serializable;
+
 import static primitives.Util.*;
 
 /**
@@ -10,7 +12,9 @@ import static primitives.Util.*;
  * 
  * @author Dan Zilberstein
  */
-public class Color {
+public class Color implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * The internal fields tx`o maintain RGB components as double numbers from 0 to
 	 * whatever...
@@ -54,6 +58,27 @@ public class Color {
 		b = other.getBlue();
 	}
 
+	/**
+	 * @return the red component
+	 */
+	public double getR() {
+		return r;
+	}
+
+	/**
+	 * @return the green component
+	 */
+	public double getG() {
+		return g;
+	}
+
+	/**
+	 * @return the blue component
+	 */
+	public double getB() {
+		return b;
+	}
+
 	/**
 	 * Color getter - returns the color after converting it into java.awt.Color
 	 * object During the conversion any component bigger than 255 is set to 255
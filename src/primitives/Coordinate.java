@@ -1,5 +1,7 @@
 package primitives;
 
+import java.io.Serializable;
+
 import static primitives.Util.*;
 
 /**
@@ -9,7 +11,9 @@ import static primitives.Util.*;
  * @author Dan Zilberstein
  * @version 5780B updated according to new requirements
  */
-public final class Coordinate {
+public final class Coordinate implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Coordinate value, intentionally "package-friendly" due to performance
      * constraints
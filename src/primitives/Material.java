@@ -1,6 +1,10 @@
 package primitives;
 
-public class Material {
+import java.io.Serializable;
+
+public class Material implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     /**
      * A Diffusion factor of the material.
      */
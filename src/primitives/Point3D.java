@@ -1,12 +1,16 @@
 package primitives;
 
+import java.io.Serializable;
+
 /**
  * Class point3D is the basic class representing a point in space of Euclidean
  * geometry in Cartesian 3-Dimensional coordinate system.
  * 
  * @author Shai Falach and Ron Haim Hodadedi
  */
-public class Point3D {
+public class Point3D implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Zero Element - representing the Origin Point of the 3-Dimensional coordinate
      * system.
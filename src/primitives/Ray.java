@@ -1,6 +1,7 @@
 package primitives;
 
 import static primitives.Util.*;
+import java.io.Serializable;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,7 +14,8 @@ import geometries.Intersectable.GeoPoint;
  * @author SHAI FALACH and RON HAIM HODADEDI
  */
 
-public class Ray {
+public class Ray implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     private static final double DELTA = 0.1;
 
@@ -0,0 +1,203 @@
+package primitives;
+
+/**
+ * The sample points of a single camera sample, dimension after dimension. A
+ * pixel is sampled by count camera samples, and every random decision along the
+ * path of a camera sample (the point in the pixel, the points on an area light
+ * and so on) takes the next dimension of its stream. The points of a dimension
+ * over all the camera samples of the pixel form one well spread sample set, and
+ * the set of every pixel and dimension is scrambled by its own seed.<br/>
+ * The points depend only on the pixel, the sample index and the dimension - not
+ * on the thread or on the order of rendering - so images are the same for any
+ * amount of threads.
+ */
+public final class SampleStream {
+    private final Sampler sampler;
+    private final long seed;
+    private final int index;
+    private final int count;
+    private final Budget budget;
+    private int dimension = 0;
+
+    /**
+     * Constructor for the stream of a camera sample with a budget of its own
+     *
+     * @param sampler - the sample generator.
+     * @param seed    - the seed of the pixel (see {@link #seed(int, int)}).
+     * @param index   - the index of the camera sample in the pixel.
+     * @param count   - the amount of camera samples in the pixel.
+     */
+    public SampleStream(Sampler sampler, long seed, int index, int count) {
+        this(sampler, seed, index, count, new Budget());
+    }
+
+    /**
+     * Constructor for the stream of a camera sample that shares a budget with the
+     * other camera samples of its pixel
+     *
+     * @param sampler - the sample generator.
+     * @param seed    - the seed of the pixel (see {@link #seed(int, int)}).
+     * @param index   - the index of the camera sample in the pixel.
+     * @param count   - the amount of camera samples in the pixel.
+     * @param budget  - the budget of the pixel.
+     */
+    public SampleStream(Sampler sampler, long seed, int index, int count, Budget budget) {
+        if (count <= 0 || index < 0 || index >= count)
+            throw new IllegalArgumentException("Illegal sample index");
+        this.sampler = sampler;
+        this.seed = seed;
+        this.index = index;
+        this.count = count;
+        this.budget = budget;
+    }
+
+    /**
+     * Getter for the budget of the camera sample (shared by the camera samples of
+     * its pixel)
+     *
+     * @return the budget
+     */
+    public Budget getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return the sample generator of the stream
+     */
+    public Sampler getSampler() {
+        return sampler;
+    }
+
+    /**
+     * The seed of a pixel
+     *
+     * @param x - the pixel column (or any other integer coordinate).
+     * @param y - the pixel row.
+     * @return the seed
+     */
+    public static long seed(int x, int y) {
+        return mix(((long) x << 32) ^ (y & 0xFFFFFFFFL));
+    }
+
+    /**
+     * The seed of a point of a 4 dimensional lattice (i.e. a corner of a world
+     * space cache with a code of its normal)
+     *
+     * @param x - the first coordinate.
+     * @param y - the second coordinate.
+     * @param z - the third coordinate.
+     * @param w - the fourth coordinate.
+     * @return the seed
+     */
+    public static long seed(int x, int y, int z, int w) {
+        return mix(seed(x, y) ^ ((long) z << 32) ^ (w & 0xFFFFFFFFL));
+    }
+
+    /**
+     * A stream for a ray that is not a part of a sampled pixel - it is seeded by
+     * the ray direction
+     *
+     * @param sampler - the sample generator.
+     * @param ray     - the ray.
+     * @return the stream
+     */
+    public static SampleStream of(Sampler sampler, Ray ray) {
+        Point3D dir = ray.getDir().getHead();
+        long seed = mix(Double.doubleToLongBits(dir.getX()));
+        seed = mix(seed ^ Double.doubleToLongBits(dir.getY()));
+        seed = mix(seed ^ Double.doubleToLongBits(dir.getZ()));
+        return new SampleStream(sampler, seed, 0, 1);
+    }
+
+    /**
+     * Take the next dimension of the stream - the point of this camera sample
+     *
+     * @return the point in the unit square
+     */
+    public double[] next() {
+        double[] uv = new double[2];
+        next(uv);
+        return uv;
+    }
+
+    /**
+     * Take the next dimension of the stream - the point of this camera sample
+     *
+     * @param uv - array for the point in the unit square.
+     */
+    public void next(double[] uv) {
+        sampler.point(index, count, scramble(), dimension != 0, uv);
+        ++dimension;
+    }
+
+    /**
+     * Take the next dimension of the stream as a set of points for this camera
+     * sample (i.e. the points on an area light for several shadow rays). The points
+     * of all the camera samples of the pixel together are one sample set.
+     *
+     * @param points - amount of points.
+     * @return the points in the unit square
+     */
+    public double[][] next(int points) {
+        int scramble = scramble();
+        // the first dimension is not shuffled, so any prefix of the pixel samples is
+        // well spread over the pixel (for progressive sampling)
+        boolean shuffle = dimension != 0;
+        ++dimension;
+        double[][] result = new double[points][2];
+        for (int i = 0; i < points; ++i)
+            sampler.point(index * points + i, count * points, scramble, shuffle, result[i]);
+        return result;
+    }
+
+    /**
+     * @return the scramble of the current dimension of the pixel
+     */
+    private int scramble() {
+        return (int) mix(seed + dimension * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * Skip the next dimension of the stream - for a sampling decision that was
+     * taken without samples this time, so the following decisions keep their
+     * dimensions
+     */
+    public void skip() {
+        ++dimension;
+    }
+
+    /**
+     * The secondary rays spent by the camera samples of a pixel, so the cost of a
+     * pixel can be bounded as a whole - the first camera samples may spend rays
+     * the later ones do not need
+     */
+    public static final class Budget {
+        private int spent = 0;
+
+        /**
+         * Spend a ray of the budget, if it is not exhausted
+         *
+         * @param limit - the size of the budget.
+         * @return false if the budget is exhausted
+         */
+        public boolean spend(int limit) {
+            if (spent >= limit)
+                return false;
+            ++spent;
+            return true;
+        }
+    }
+
+    /**
+     * A well mixing 64 bit hash (the SplitMix64 finalizer)
+     *
+     * @param value - the value.
+     * @return the hash
+     */
+    private static long mix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
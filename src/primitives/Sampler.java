@@ -0,0 +1,204 @@
+package primitives;
+
+/**
+ * Generators of well spread 2D sample points in the unit square, used for the
+ * pixel samples and the area light samples. A sample set is defined by the
+ * amount of points in it and by a scramble value - sets with different
+ * scrambles are decorrelated from each other, and the same scramble always
+ * gives the same set, so there is no random number generator (and no state
+ * shared by threads) involved at all.
+ */
+public enum Sampler {
+    /**
+     * Jittered grid - a random point in every cell of a grid of about count cells
+     */
+    STRATIFIED {
+        @Override
+        protected void point(int index, int count, int scramble, double[] uv) {
+            int columns = (int) Math.ceil(Math.sqrt(count));
+            int rows = (count + columns - 1) / columns;
+            uv[0] = (index % columns + randomFraction(index, scramble)) / columns;
+            uv[1] = (index / columns + randomFraction(index, scramble * 0x68bc21eb)) / rows;
+        }
+    },
+    /**
+     * Halton sequence of the bases 2 and 3, rotated by the scramble
+     * (Cranley-Patterson rotation)
+     */
+    HALTON {
+        @Override
+        protected void point(int index, int count, int scramble, double[] uv) {
+            uv[0] = (radicalInverse(2, index) + randomFraction(0, scramble)) % 1;
+            uv[1] = (radicalInverse(3, index) + randomFraction(1, scramble)) % 1;
+        }
+    },
+    /**
+     * The first two dimensions of the Sobol sequence (a (0,2)-sequence) with random
+     * digit scrambling - every power of 2 prefix of the sequence is stratified in
+     * every elementary interval
+     */
+    SOBOL {
+        @Override
+        protected void point(int index, int count, int scramble, double[] uv) {
+            uv[0] = toUnit(Integer.reverse(index) ^ scramble);
+            int sobol = 0;
+            for (int i = index, v = 1 << 31; i != 0; i >>>= 1, v ^= v >>> 1)
+                if ((i & 1) != 0)
+                    sobol ^= v;
+            uv[1] = toUnit(sobol ^ hash(scramble));
+        }
+    };
+
+    /**
+     * Calculate a point of a sample set
+     *
+     * @param index    - the index of the point in the set.
+     * @param count    - the amount of points in the set.
+     * @param scramble - the scramble of the set.
+     * @param uv       - array for the result point coordinates, in [0, 1).
+     */
+    protected abstract void point(int index, int count, int scramble, double[] uv);
+
+    /**
+     * Calculate the points of a sample set in a shuffled order - the order of the
+     * points is a pseudo random permutation by the scramble, so sets of different
+     * dimensions of the same samples are not correlated with each other.
+     *
+     * @param index    - the index of the point in the set.
+     * @param count    - the amount of points in the set.
+     * @param scramble - the scramble of the set.
+     * @param shuffle  - whether the points are shuffled.
+     * @param uv       - array for the result point coordinates, in [0, 1).
+     */
+    void point(int index, int count, int scramble, boolean shuffle, double[] uv) {
+        point(shuffle ? permute(index, count, scramble) : index, count, scramble, uv);
+    }
+
+    /**
+     * Calculate a whole sample set at once (i.e. a fixed pattern to be reused and
+     * shifted)
+     *
+     * @param count    - the amount of points in the set.
+     * @param scramble - the scramble of the set.
+     * @return the coordinates of the points in pairs (u0, v0, u1, v1, ...), in [0,
+     *         1)
+     */
+    public double[] pattern(int count, int scramble) {
+        double[] pattern = new double[2 * count];
+        double[] uv = new double[2];
+        for (int i = 0; i < count; ++i) {
+            point(i, count, scramble, uv);
+            pattern[2 * i] = uv[0];
+            pattern[2 * i + 1] = uv[1];
+        }
+        return pattern;
+    }
+
+    /**
+     * The radical inverse of an index - the digits of the index in a base mirrored
+     * around the point (the Halton sequence of the base)
+     *
+     * @param base  - the base.
+     * @param index - the index.
+     * @return the radical inverse in [0, 1)
+     */
+    public static double radicalInverse(int base, int index) {
+        double inverse = 0;
+        double digitValue = 1d / base;
+        for (int i = index; i > 0; i /= base) {
+            inverse += (i % base) * digitValue;
+            digitValue /= base;
+        }
+        return inverse;
+    }
+
+    /**
+     * Convert 32 bits to a fraction
+     *
+     * @param bits - the bits, as unsigned.
+     * @return the fraction in [0, 1)
+     */
+    private static double toUnit(int bits) {
+        return (bits & 0xFFFFFFFFL) * 0x1p-32;
+    }
+
+    /**
+     * A well mixing integer hash (the finalizer of MurmurHash3)
+     *
+     * @param value - the value.
+     * @return the hash
+     */
+    static int hash(int value) {
+        int h = value;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * A pseudo random fraction of an index and a scramble (Kensler, Correlated
+     * Multi-Jittered Sampling)
+     *
+     * @param index    - the index.
+     * @param scramble - the scramble.
+     * @return the fraction in [0, 1)
+     */
+    private static double randomFraction(int index, int scramble) {
+        int i = index ^ scramble;
+        i ^= i >>> 17;
+        i ^= i >>> 10;
+        i *= 0xb36534e5;
+        i ^= i >>> 12;
+        i ^= i >>> 21;
+        i *= 0x93fc4795;
+        i ^= 0xdf6e307f;
+        i ^= i >>> 17;
+        i *= 1 | scramble >>> 18;
+        return toUnit(i);
+    }
+
+    /**
+     * A pseudo random permutation of the indices 0..count-1 by a scramble
+     * (Kensler, Correlated Multi-Jittered Sampling)
+     *
+     * @param index    - the index to permute.
+     * @param count    - the amount of indices.
+     * @param scramble - the scramble.
+     * @return the permuted index
+     */
+    private static int permute(int index, int count, int scramble) {
+        if (count <= 1)
+            return 0;
+        int w = count - 1;
+        w |= w >>> 1;
+        w |= w >>> 2;
+        w |= w >>> 4;
+        w |= w >>> 8;
+        w |= w >>> 16;
+        int i = index;
+        do {
+            i ^= scramble;
+            i *= 0xe170893d;
+            i ^= scramble >>> 16;
+            i ^= (i & w) >>> 4;
+            i ^= scramble >>> 8;
+            i *= 0x0929eb3f;
+            i ^= scramble >>> 23;
+            i ^= (i & w) >>> 1;
+            i *= 1 | scramble >>> 27;
+            i *= 0x6935fa69;
+            i ^= (i & w) >>> 11;
+            i *= 0x74dcb303;
+            i ^= (i & w) >>> 2;
+            i *= 0x9e501cc3;
+            i ^= (i & w) >>> 2;
+            i *= 0xc860a3df;
+            i &= w;
+            i ^= i >>> 5;
+        } while (i >= count);
+        return Integer.remainderUnsigned(i + scramble, count);
+    }
+}
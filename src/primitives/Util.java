@@ -58,17 +58,6 @@ public abstract class Util {
         return (n1 < 0 && n2 < 0) || (n1 > 0 && n2 > 0);
     }
 
-    /**
-     * Provide a real random number in range between min and max
-     * 
-     * @param min
-     * @param max
-     * @return the random value
-     */
-    public static double random(double min, double max) {
-        return Math.random() * (max - min) + min;
-    }
-
     /**
      * get a string that contains space separated numeric values adn return them as
      * doubles.
@@ -1,5 +1,7 @@
 package primitives;
 
+import java.io.Serializable;
+
 import static primitives.Util.*;
 
 /**
@@ -8,7 +10,9 @@ import static primitives.Util.*;
  * 
  * @author SHAI FALACH and RON HAIM HODADEDI
  */
-public class Vector {
+public class Vector implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     Point3D head;
 
     /**
@@ -168,20 +172,21 @@ public class Vector {
         var x = head.getX();
         var y = head.getY();
         var z = head.getZ();
-        x = x < 0 ? -x : x;
-        y = y < 0 ? -y : y;
-        z = z < 0 ? -z : z;
+        // the smallest component is dropped, the others keep their signs
+        var absX = x < 0 ? -x : x;
+        var absY = y < 0 ? -y : y;
+        var absZ = z < 0 ? -z : z;
         Vector orthVector;
 
-        if (x < y) {
-            if (x < z) {
+        if (absX < absY) {
+            if (absX < absZ) {
                 orthVector = new Vector(0, -z, y);
             } else {
                 // z is smallest
                 orthVector = new Vector(-y, x, 0);
             }
         } else {
-            if (y < z) {
+            if (absY < absZ) {
                 // y is smallest
                 orthVector = new Vector(-z, 0, x);
             } else {
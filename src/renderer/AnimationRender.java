@@ -0,0 +1,413 @@
+package renderer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.MissingResourceException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import elements.Camera;
+
+/**
+ * A renderer of animation sequences - a series of frames of the same scene seen
+ * by a moving camera.<br/>
+ * The ray tracer (with its scene and its acceleration structure, e.g. a BVH
+ * built by {@link geometries.Geometries#buildBVHTree()}) is shared read-only by
+ * all the frames. The rendering threads take tiles of all the frames from one
+ * queue in frame order, so the next frame starts while the last tiles of the
+ * previous one are still rendered, and every finished frame is encoded to a file
+ * in the background (by an {@link ImageEncoder}) while the next frames are
+ * rendered. When the encoding falls behind and its queue is full, the thread
+ * that finishes a frame waits for it.
+ */
+public class AnimationRender {
+    private static final String RESOURCE_ERROR = "Renderer resource not set";
+    private static final String RENDER_CLASS = "AnimationRender";
+    private static final int DEFAULT_TILE_SIZE = 32;
+    private static final int SPARE_THREADS = 2; // Spare threads if trying to use all the cores
+    private static final long PROGRESS_INTERVAL = 500; // milliseconds
+    private static final int DEFAULT_ENCODING_QUEUE = 2;
+
+    private List<Camera> frames;
+    private RayTracerBase rayTracer;
+    private String imageName;
+    private int nX;
+    private int nY;
+    private int threadsCount = 1;
+    private int tileSize = DEFAULT_TILE_SIZE;
+    private PixelTraversal traversal = PixelTraversal.HILBERT;
+    private int framesInFlight = 0;
+    private int encodingQueue = DEFAULT_ENCODING_QUEUE;
+    private int antiAliasingLevel = 1;
+    private boolean adaptive = false;
+    private boolean edgeAntiAliasing = false;
+    private boolean reprojection = false;
+    private ProgressListener progressListener = null;
+    private ReprojectionCache lastCache; // the cache of the last opened frame
+
+    /**
+     * A renderer of a single frame - a plain serial renderer that counts the tiles
+     * of the frame that are not rendered yet (the tiles are handed to it by the
+     * animation threads)
+     */
+    private static class FrameRender extends Render {
+        private final AtomicInteger tilesLeft;
+
+        /**
+         * Constructor for a frame renderer
+         *
+         * @param tiles amount of tiles in the frame
+         */
+        FrameRender(int tiles) {
+            tilesLeft = new AtomicInteger(tiles);
+        }
+    }
+
+    /**
+     * Setter for the camera path - a camera for each frame
+     *
+     * @param frames the cameras of the frames by order
+     * @return the AnimationRender object itself
+     */
+    public AnimationRender setFrames(List<Camera> frames) {
+        this.frames = List.copyOf(frames);
+        return this;
+    }
+
+    /**
+     * Setter for the ray tracer shared by all the frames
+     *
+     * @param rayTracer the ray tracer
+     * @return the AnimationRender object itself
+     */
+    public AnimationRender setRayTracer(RayTracerBase rayTracer) {
+        this.rayTracer = rayTracer;
+        return this;
+    }
+
+    /**
+     * Setter for the frames output files and resolution. Frame number i is written
+     * to the file "imageName-i" (the number is padded to 4 digits).
+     *
+     * @param imageName the base name of the frames files
+     * @param nX        amount of pixels by Width
+     * @param nY        amount of pixels by height
+     * @return the AnimationRender object itself
+     */
+    public AnimationRender setImage(String imageName, int nX, int nY) {
+        if (nX <= 0 || nY <= 0)
+            throw new IllegalArgumentException("Image resolution must be positive");
+        this.imageName = imageName;
+        this.nX = nX;
+        this.nY = nY;
+        return this;
+    }
+
+    /**
+     * Set multi-threading <br>
+     * - if the parameter is 0 - number of cores less 2 is taken
+     *
+     * @param threads number of threads
+     * @return the AnimationRender object itself
+     */
+    public AnimationRender setMultithreading(int threads) {
+        if (threads < 0)
+            throw new IllegalArgumentException("Multi-threading parameter must be 0 or higher");
+        if (threads != 0)
+            this.threadsCount = threads;
+        else {
+            int cores = Runtime.getRuntime().availableProcessors() - SPARE_THREADS;
+            this.threadsCount = cores <= 2 ? 1 : cores;
+        }
+        return this;
+    }
+
+    /**
+     * Set the edge length of the tiles the frames are split to
+     *
+     * @param tileSize the tile edge length in pixels
+     * @return the AnimationRender object itself
+     */
+    public AnimationRender setTileSize(int tileSize) {
+        if (tileSize <= 0)
+            throw new IllegalArgumentException("Tile size must be positive");
+        this.tileSize = tileSize;
+        return this;
+    }
+
+    /**
+     * Set the order the tiles of each frame and the pixels of each tile are
+     * rendered in
+     *
+     * @param traversal the order
+     * @return the AnimationRender object itself
+     */
+    public AnimationRender setTraversal(PixelTraversal traversal) {
+        this.traversal = traversal;
+        return this;
+    }
+
+    /**
+     * Set the maximal amount of frames being rendered at once (a finished frame is
+     * taken by the encoder, see {@link #setEncodingQueue(int)})
+     *
+     * @param framesInFlight maximal amount of frames, 0 for the amount of threads
+     *                       plus one
+     * @return the AnimationRender object itself
+     */
+    public AnimationRender setFramesInFlight(int framesInFlight) {
+        if (framesInFlight < 0)
+            throw new IllegalArgumentException("Frames in flight must be 0 or higher");
+        this.framesInFlight = framesInFlight;
+        return this;
+    }
+
+    /**
+     * Set the maximal amount of finished frames waiting for the encoder - when the
+     * queue is full, the rendering waits for the encoding
+     *
+     * @param encodingQueue maximal amount of waiting frames
+     * @return the AnimationRender object itself
+     */
+    public AnimationRender setEncodingQueue(int encodingQueue) {
+        if (encodingQueue < 0)
+            throw new IllegalArgumentException("Encoding queue must be 0 or higher");
+        this.encodingQueue = encodingQueue;
+        return this;
+    }
+
+    /**
+     * A setter for antiAliasingLevel field
+     *
+     * @param antiAliasingLevel - level of anti aliasing (see
+     *                          {@link RenderBase#setAntiAliasingLevel(int)}).
+     * @return the AnimationRender object itself
+     */
+    public AnimationRender setAntiAliasingLevel(int antiAliasingLevel) {
+        this.antiAliasingLevel = antiAliasingLevel;
+        return this;
+    }
+
+    /**
+     * @param adaptive whether the anti aliasing is adaptive
+     * @return the AnimationRender object itself
+     */
+    public AnimationRender setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        return this;
+    }
+
+    /**
+     * @param edgeAntiAliasing whether only the pixels on image-space edges are
+     *                         anti aliased (see
+     *                         {@link RenderBase#setEdgeAntiAliasing(boolean)})
+     * @return the AnimationRender object itself
+     */
+    public AnimationRender setEdgeAntiAliasing(boolean edgeAntiAliasing) {
+        this.edgeAntiAliasing = edgeAntiAliasing;
+        return this;
+    }
+
+    /**
+     * Turn on the temporal reprojection cache - the first hit of the center of
+     * every pixel is projected into the previous frame, and where the previous
+     * frame saw the same point of a matte surface its color is reused (the
+     * diffuse lighting and the shadows do not depend on the view). Only the pixels
+     * that were hidden or out of the view in the previous frame and the pixels of
+     * shiny surfaces are traced again. Finding the first hit costs a camera ray
+     * for every pixel, so the saving comes with super sampling - slow camera moves
+     * with anti aliasing cost a fraction of a full frame. A reused color may come from a point up to a pixel footprint away,
+     * and a frame may start before the previous one is done (its pixels that are
+     * not rendered yet are traced), so the frames are close to the fully traced
+     * ones but not always exactly the same.
+     *
+     * @param reprojection true to reuse the colors of the previous frame
+     * @return the AnimationRender object itself
+     */
+    public AnimationRender setReprojection(boolean reprojection) {
+        this.reprojection = reprojection;
+        return this;
+    }
+
+    /**
+     * Set a listener to follow up the progress of the whole sequence
+     *
+     * @param listener - the progress listener, or null for no progress reports.
+     * @return the AnimationRender object itself
+     */
+    public AnimationRender setProgressListener(ProgressListener listener) {
+        this.progressListener = listener;
+        return this;
+    }
+
+    /**
+     * Create a camera path by moving a copy of a camera step by step. The original
+     * camera is not changed.
+     *
+     * @param start  the camera of the first frame
+     * @param frames amount of frames
+     * @param step   the change of the camera between two frames, i.e.
+     *               {@code c -> c.rotateCameraClockWise(5)}
+     * @return the cameras of the frames
+     */
+    public static List<Camera> cameraPath(Camera start, int frames, Consumer<Camera> step) {
+        List<Camera> path = new ArrayList<>(frames);
+        Camera camera = new Camera(start);
+        for (int i = 0; i < frames; ++i) {
+            path.add(new Camera(camera));
+            step.accept(camera);
+        }
+        return path;
+    }
+
+    /**
+     * Render all the frames of the animation and write them to files. When the
+     * rendering or the encoding of a frame fails, no more tiles are handed out and
+     * the first failure is thrown once the threads stop.
+     */
+    public void renderAnimation() {
+        if (frames == null)
+            throw new MissingResourceException(RESOURCE_ERROR, RENDER_CLASS, "Frames");
+        if (rayTracer == null)
+            throw new MissingResourceException(RESOURCE_ERROR, RENDER_CLASS, "Ray tracer");
+        if (imageName == null)
+            throw new MissingResourceException(RESOURCE_ERROR, RENDER_CLASS, "Image");
+
+        final List<Tile> tiles = Tile.split(nX, nY, tileSize, traversal);
+        final FrameRender[] renders = new FrameRender[frames.size()];
+        final Semaphore framePermits = new Semaphore(framesInFlight == 0 ? threadsCount + 1 : framesInFlight);
+        final ImageEncoder encoder = new ImageEncoder(1, encodingQueue);
+        final ProgressTracker progress = new ProgressTracker((long) frames.size() * nX * nY, progressListener,
+                PROGRESS_INTERVAL);
+        final int[] nextItem = { 0 };
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        lastCache = null;
+
+        progress.start();
+        Thread[] threads = new Thread[threadsCount];
+        for (int t = 0; t < threadsCount; ++t) {
+            threads[t] = new Thread(() -> {
+                try {
+                    renderTiles(tiles, renders, nextItem, framePermits, encoder, progress, failure);
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                    // free a place, so a thread waiting for a place to open a frame wakes
+                    // up and sees the failure
+                    framePermits.release();
+                }
+            });
+        }
+        for (Thread thread : threads)
+            thread.start();
+        for (Thread thread : threads)
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+        lastCache = null;
+        try {
+            encoder.close();
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            progress.finish();
+        }
+
+        Throwable e = failure.get();
+        if (e instanceof RuntimeException)
+            throw (RuntimeException) e;
+        if (e instanceof Error)
+            throw (Error) e;
+    }
+
+    /**
+     * Render the tiles of the frames by order until all of them are handed out or
+     * some thread fails - the body of every rendering thread
+     *
+     * @param tiles        the tiles of a frame
+     * @param renders      the renderers of the opened frames
+     * @param nextItem     the next tile of the animation to hand out (the lock of
+     *                     the hand out)
+     * @param framePermits the free places for frames being rendered
+     * @param encoder      the encoder of the finished frames
+     * @param progress     the progress counters of the animation
+     * @param failure      the first failure of a thread
+     */
+    private void renderTiles(List<Tile> tiles, FrameRender[] renders, int[] nextItem, Semaphore framePermits,
+            ImageEncoder encoder, ProgressTracker progress, AtomicReference<Throwable> failure) {
+        final int totalItems = renders.length * tiles.size();
+        ProgressTracker.Worker worker = progress.newWorker();
+        while (true) {
+            FrameRender render;
+            Tile tile;
+            // hand out the tiles by frame order - a new frame is opened only when
+            // there is a free place for it
+            synchronized (nextItem) {
+                int item = nextItem[0]++;
+                if (item >= totalItems || failure.get() != null)
+                    return;
+                int frame = item / tiles.size();
+                tile = tiles.get(item % tiles.size());
+                if (renders[frame] == null) {
+                    try {
+                        framePermits.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    if (failure.get() != null) {
+                        framePermits.release(); // pass the wake up on
+                        return;
+                    }
+                    renders[frame] = openFrame(frame, tiles, progress);
+                }
+                render = renders[frame];
+            }
+            render.renderTile(nX, nY, tile, worker);
+            if (render.tilesLeft.decrementAndGet() == 0) {
+                try {
+                    // the next frame keeps the cache of this frame as long as it needs it
+                    if (render.reprojection != null) {
+                        render.reprojection.release();
+                        render.reprojection = null;
+                    }
+                    render.writeToImage(encoder);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    framePermits.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Prepare the renderer of a frame (the frames are opened by order)
+     *
+     * @param frame    the frame number
+     * @param tiles    the tiles of the frame
+     * @param progress the progress counters of the animation
+     * @return the frame renderer
+     */
+    private FrameRender openFrame(int frame, List<Tile> tiles, ProgressTracker progress) {
+        FrameRender render = new FrameRender(tiles.size());
+        render.setImageWriter(new ImageWriter(String.format("%s-%04d", imageName, frame), nX, nY)) //
+                .setCamera(frames.get(frame)) //
+                .setRayTracer(rayTracer) //
+                .setAntiAliasingLevel(antiAliasingLevel) //
+                .setAdaptive(adaptive) //
+                .setEdgeAntiAliasing(edgeAntiAliasing) //
+                .setTileSize(tileSize) //
+                .setTraversal(traversal);
+        render.progress = progress;
+        render.trackTiles(tiles);
+        if (reprojection)
+            render.reprojection = lastCache = new ReprojectionCache(frames.get(frame), nX, nY, lastCache);
+        return render;
+    }
+}
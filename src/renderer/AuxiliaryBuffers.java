@@ -0,0 +1,193 @@
+package renderer;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import geometries.Geometry;
+import geometries.Intersectable.GeoPoint;
+import primitives.Color;
+import primitives.Point3D;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Per pixel features of the first surface that the camera ray through the
+ * pixel center hits - its normal (turned toward the camera), its albedo (the
+ * emission plus the diffuse factor in color units), its distance from the
+ * camera and an identifier of its geometry. The renderer fills the buffers
+ * while it renders the image (see
+ * {@link RenderBase#setAuxiliaryBuffers(AuxiliaryBuffers)}), and image space
+ * filters use them to tell the edges of the scene from noise (see
+ * {@link Denoiser}).<br/>
+ * The buffers are kept as flat float arrays, and every pixel is written only by
+ * the thread that renders it.
+ */
+public class AuxiliaryBuffers {
+    /**
+     * The geometry identifier of the pixels that see the background
+     */
+    public static final int BACKGROUND = -1;
+    /**
+     * The amount of features of a first hit - its normal (3), its albedo (3) and
+     * its depth
+     */
+    static final int FEATURES = 7;
+
+    private final int nX;
+    private final int nY;
+    final float[] normals;
+    final float[] albedo;
+    final float[] depth;
+    final int[] geometries;
+    // the identifiers of the geometries by order of their first appearance
+    private final Map<Geometry, Integer> ids = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * Constructor for the auxiliary buffers of an image
+     *
+     * @param nX amount of pixels by Width
+     * @param nY amount of pixels by height
+     */
+    public AuxiliaryBuffers(int nX, int nY) {
+        if (nX <= 0 || nY <= 0)
+            throw new IllegalArgumentException("Image resolution must be positive");
+        if (3L * nX * nY > ImageWriter.MAX_ARRAY_SIZE)
+            throw new IllegalArgumentException("Image is too large for auxiliary buffers");
+        this.nX = nX;
+        this.nY = nY;
+        normals = new float[3 * nX * nY];
+        albedo = new float[3 * nX * nY];
+        depth = new float[nX * nY];
+        geometries = new int[nX * nY];
+    }
+
+    /**
+     * @return amount of pixels by width
+     */
+    public int getNx() {
+        return nX;
+    }
+
+    /**
+     * @return amount of pixels by height
+     */
+    public int getNy() {
+        return nY;
+    }
+
+    /**
+     * Store the features of the first hit of a pixel
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @param ray    the camera ray through the pixel center
+     * @param hit    the closest intersection of the ray, or null for the
+     *               background
+     */
+    public void write(int xIndex, int yIndex, Ray ray, GeoPoint hit) {
+        if (hit == null) {
+            write(xIndex, yIndex, null, 0, null);
+            return;
+        }
+        float[] features = new float[FEATURES];
+        features(ray, hit, features, 0);
+        write(xIndex, yIndex, features, 0, hit.geometry);
+    }
+
+    /**
+     * Calculate the features of a first hit (i.e. by a remote worker)
+     *
+     * @param ray      the camera ray through the pixel center
+     * @param hit      the closest intersection of the ray
+     * @param features array for the features - the normal, the albedo and the
+     *                 depth ({@link #FEATURES} values)
+     * @param offset   the index of the first feature in the array
+     */
+    static void features(Ray ray, GeoPoint hit, float[] features, int offset) {
+        Vector n = hit.geometry.getNormal(hit.point);
+        if (n.dotProduct(ray.getDir()) > 0)
+            n = n.scale(-1);
+        Point3D head = n.getHead();
+        features[offset] = (float) head.getX();
+        features[offset + 1] = (float) head.getY();
+        features[offset + 2] = (float) head.getZ();
+        Color emission = hit.geometry.getEmission();
+        double diffuse = 255 * hit.geometry.getMaterial().kD;
+        features[offset + 3] = (float) (emission.getR() + diffuse);
+        features[offset + 4] = (float) (emission.getG() + diffuse);
+        features[offset + 5] = (float) (emission.getB() + diffuse);
+        features[offset + 6] = (float) ray.getP0().distance(hit.point);
+    }
+
+    /**
+     * Store the features of the first hit of a pixel that were calculated already
+     * (see {@link #features(Ray, GeoPoint, float[], int)})
+     *
+     * @param xIndex   X axis index of the pixel
+     * @param yIndex   Y axis index of the pixel
+     * @param features the features of the hit (ignored for the background)
+     * @param offset   the index of the first feature in the array
+     * @param geometry the geometry of the hit, or null for the background
+     */
+    void write(int xIndex, int yIndex, float[] features, int offset, Geometry geometry) {
+        int i = yIndex * nX + xIndex;
+        if (geometry == null) {
+            depth[i] = Float.POSITIVE_INFINITY;
+            geometries[i] = BACKGROUND;
+            for (int c = 3 * i; c < 3 * i + 3; ++c)
+                normals[c] = albedo[c] = 0;
+            return;
+        }
+        normals[3 * i] = features[offset];
+        normals[3 * i + 1] = features[offset + 1];
+        normals[3 * i + 2] = features[offset + 2];
+        albedo[3 * i] = features[offset + 3];
+        albedo[3 * i + 1] = features[offset + 4];
+        albedo[3 * i + 2] = features[offset + 5];
+        depth[i] = features[offset + 6];
+        geometries[i] = ids.computeIfAbsent(geometry, g -> ids.size());
+    }
+
+    /**
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the normal of the first hit (toward the camera), or null for the
+     *         background
+     */
+    public Vector getNormal(int xIndex, int yIndex) {
+        int i = yIndex * nX + xIndex;
+        return geometries[i] == BACKGROUND ? null
+                : new Vector(normals[3 * i], normals[3 * i + 1], normals[3 * i + 2]);
+    }
+
+    /**
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the albedo of the first hit (black for the background)
+     */
+    public Color getAlbedo(int xIndex, int yIndex) {
+        int i = 3 * (yIndex * nX + xIndex);
+        return new Color(albedo[i], albedo[i + 1], albedo[i + 2]);
+    }
+
+    /**
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the distance of the first hit from the camera (infinite for the
+     *         background)
+     */
+    public double getDepth(int xIndex, int yIndex) {
+        return depth[yIndex * nX + xIndex];
+    }
+
+    /**
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the identifier of the geometry of the first hit, or
+     *         {@link #BACKGROUND}
+     */
+    public int getGeometryId(int xIndex, int yIndex) {
+        return geometries[yIndex * nX + xIndex];
+    }
+}
@@ -0,0 +1,204 @@
+package renderer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import elements.Camera;
+
+/**
+ * A map of the rendering cost of the image in blocks of pixels, measured by a
+ * cheap low resolution pre-pass. The cost of a pixel may vary by orders of
+ * magnitude (reflections, refractions, shadow rays), so tiles of equal size may
+ * take very different times - the map is used to cut the image into tiles of
+ * equal cost instead, so the last tile does not keep all the other threads (or
+ * workers) waiting.
+ */
+public final class CostMap {
+    private static final int MEASURES = 2; // the cheapest of the measures is taken to filter out noise
+
+    private final int nX;
+    private final int nY;
+    private final int blockSize;
+    private final int columns;
+    private final int rows;
+    private final double[] costs;
+
+    /**
+     * Constructor for a cost map from known costs
+     *
+     * @param nX        - amount of pixel columns in the image.
+     * @param nY        - amount of pixel rows in the image.
+     * @param blockSize - the edge length of a block of pixels.
+     * @param costs     - the costs of the blocks row by row.
+     */
+    public CostMap(int nX, int nY, int blockSize, double[] costs) {
+        if (nX <= 0 || nY <= 0 || blockSize <= 0)
+            throw new IllegalArgumentException("Illegal cost map dimensions");
+        this.nX = nX;
+        this.nY = nY;
+        this.blockSize = blockSize;
+        columns = (nX + blockSize - 1) / blockSize;
+        rows = (nY + blockSize - 1) / blockSize;
+        if (costs.length != columns * rows)
+            throw new IllegalArgumentException("Wrong amount of block costs");
+        this.costs = costs.clone();
+    }
+
+    /**
+     * Measure the cost map of an image by tracing a single ray through the middle
+     * of each block of pixels and measuring its time. The rays of the pre-pass are
+     * not part of the image.
+     *
+     * @param camera    - the camera.
+     * @param rayTracer - the ray tracer.
+     * @param nX        - amount of pixel columns in the image.
+     * @param nY        - amount of pixel rows in the image.
+     * @param blockSize - the edge length of a block of pixels (i.e. 8 for a pre-pass
+     *                  in 1/8 of the resolution).
+     * @return the cost map.
+     */
+    public static CostMap measure(Camera camera, RayTracerBase rayTracer, int nX, int nY, int blockSize) {
+        if (blockSize <= 0)
+            throw new IllegalArgumentException("Block size must be positive");
+        int columns = (nX + blockSize - 1) / blockSize;
+        int rows = (nY + blockSize - 1) / blockSize;
+        double[] costs = new double[columns * rows];
+        for (int i = 0; i < rows; ++i)
+            for (int j = 0; j < columns; ++j) {
+                int col = Math.min(j * blockSize + blockSize / 2, nX - 1);
+                int row = Math.min(i * blockSize + blockSize / 2, nY - 1);
+                long best = Long.MAX_VALUE;
+                for (int m = 0; m < MEASURES; ++m) {
+                    long start = System.nanoTime();
+                    rayTracer.traceRay(camera.constructRayThroughPixel(nX, nY, col, row));
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                // the block's pixels are assumed to cost the same as the sampled one
+                costs[i * columns + j] = (best + 1d) * blockPixels(nX, nY, blockSize, j, i);
+            }
+        return new CostMap(nX, nY, blockSize, costs);
+    }
+
+    /**
+     * @return the total cost of the image
+     */
+    public double getTotalCost() {
+        return cost(0, 0, columns, rows);
+    }
+
+    /**
+     * Calculate the cost of a tile by the blocks it covers (partially covered
+     * blocks are counted by the covered part)
+     *
+     * @param tile - the tile.
+     * @return the estimated cost of the tile.
+     */
+    public double cost(Tile tile) {
+        double sum = 0;
+        for (int y = tile.y; y < tile.y + tile.height; ++y)
+            for (int x = tile.x; x < tile.x + tile.width; ++x) {
+                int j = x / blockSize, i = y / blockSize;
+                sum += costs[i * columns + j] / blockPixels(nX, nY, blockSize, j, i);
+            }
+        return sum;
+    }
+
+    /**
+     * Cut the image to tiles of about the same cost by recursive bisection - each
+     * region is cut along its longer side into two parts of about the same cost,
+     * and the tiles are divided between the parts by their costs. The tiles are
+     * cut on the block borders, so a single block is never cut.
+     *
+     * @param parts - the requested amount of tiles.
+     * @return the tiles, neighbour tiles are next to each other in the list.
+     */
+    public List<Tile> split(int parts) {
+        if (parts <= 0)
+            throw new IllegalArgumentException("Amount of tiles must be positive");
+        List<Tile> tiles = new ArrayList<>(parts);
+        split(0, 0, columns, rows, parts, tiles);
+        return tiles;
+    }
+
+    /**
+     * Cut a region of blocks recursively
+     *
+     * @param j0    - the first block column of the region.
+     * @param i0    - the first block row of the region.
+     * @param j1    - the block column after the region.
+     * @param i1    - the block row after the region.
+     * @param parts - the amount of tiles to cut the region to.
+     * @param tiles - the list of the result tiles.
+     */
+    private void split(int j0, int i0, int j1, int i1, int parts, List<Tile> tiles) {
+        boolean vertical = j1 - j0 >= i1 - i0; // cut the longer side
+        int length = vertical ? j1 - j0 : i1 - i0;
+        if (parts == 1 || length == 1) { // a single block is not cut
+            int x = j0 * blockSize, y = i0 * blockSize;
+            tiles.add(new Tile(x, y, Math.min(nX, j1 * blockSize) - x, Math.min(nY, i1 * blockSize) - y));
+            return;
+        }
+
+        double total = cost(j0, i0, j1, i1);
+        double target = total / 2;
+        // the cut is after at least one block and before at least one block
+        int cut = 1;
+        double sum = vertical ? cost(j0, i0, j0 + 1, i1) : cost(j0, i0, j1, i0 + 1);
+        while (cut < length - 1) {
+            double next = vertical ? cost(j0 + cut, i0, j0 + cut + 1, i1) : cost(j0, i0 + cut, j1, i0 + cut + 1);
+            // stop at the cut that is closest to the target
+            if (Math.abs(sum + next - target) >= Math.abs(sum - target))
+                break;
+            sum += next;
+            ++cut;
+        }
+
+        // the tiles are divided by the costs of the parts, but a part cannot get
+        // more tiles than its blocks
+        int lineBlocks = vertical ? i1 - i0 : j1 - j0; // blocks in a column or a row of the region
+        int firstBlocks = cut * lineBlocks;
+        int secondBlocks = (length - cut) * lineBlocks;
+        int firstParts = total == 0 ? parts / 2 : (int) Math.round(parts * sum / total);
+        firstParts = Math.max(1, Math.min(parts - 1, firstParts));
+        firstParts = Math.max(parts - secondBlocks, Math.min(firstBlocks, firstParts));
+
+        if (vertical) {
+            split(j0, i0, j0 + cut, i1, firstParts, tiles);
+            split(j0 + cut, i0, j1, i1, parts - firstParts, tiles);
+        } else {
+            split(j0, i0, j1, i0 + cut, firstParts, tiles);
+            split(j0, i0 + cut, j1, i1, parts - firstParts, tiles);
+        }
+    }
+
+    /**
+     * Sum the costs of a region of blocks
+     *
+     * @param j0 - the first block column of the region.
+     * @param i0 - the first block row of the region.
+     * @param j1 - the block column after the region.
+     * @param i1 - the block row after the region.
+     * @return the cost of the region.
+     */
+    private double cost(int j0, int i0, int j1, int i1) {
+        double sum = 0;
+        for (int i = i0; i < i1; ++i)
+            for (int j = j0; j < j1; ++j)
+                sum += costs[i * columns + j];
+        return sum;
+    }
+
+    /**
+     * @param nX        - amount of pixel columns in the image.
+     * @param nY        - amount of pixel rows in the image.
+     * @param blockSize - the edge length of a block of pixels.
+     * @param j         - block column.
+     * @param i         - block row.
+     * @return amount of image pixels in the block (the blocks on the right and
+     *         bottom edges are cut to the image size)
+     */
+    private static int blockPixels(int nX, int nY, int blockSize, int j, int i) {
+        return (Math.min(nX, (j + 1) * blockSize) - j * blockSize)
+                * (Math.min(nY, (i + 1) * blockSize) - i * blockSize);
+    }
+}
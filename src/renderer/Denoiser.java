@@ -0,0 +1,252 @@
+package renderer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import primitives.Color;
+
+/**
+ * An edge avoiding "a trous" wavelet denoiser - the image is smoothed by a few
+ * passes of a 5x5 B3 spline kernel whose taps are spread 1, 2, 4... pixels
+ * apart, so a wide neighbourhood is covered with 25 taps a pass. The weight of
+ * every tap is also reduced by the differences of the auxiliary buffers of the
+ * pixels (normal, depth and albedo, see {@link AuxiliaryBuffers}) and of their
+ * colors, so the filter does not blur across the edges of the geometries and
+ * the materials, and smooths only the noise of the lighting (i.e. soft shadows
+ * with a few shadow rays a pixel). The colors weight becomes stricter in every
+ * pass, as the noise is reduced.<br/>
+ * The rows of the image are filtered by several threads.
+ */
+public class Denoiser {
+    private static final double[] KERNEL = { 1.0 / 16, 1.0 / 4, 3.0 / 8, 1.0 / 4, 1.0 / 16 };
+    private static final int SPARE_THREADS = 2; // Spare threads if trying to use all the cores
+
+    private int iterations = 3;
+    private double colorSigma = 100;
+    private double normalSigma = 0.3;
+    private double depthSigma = 0.005;
+    private double albedoSigma = 10;
+    private int threadsCount = 1;
+
+    /**
+     * Set the amount of filtering passes - the filtered neighbourhood is 4 * 2^n +
+     * 1 pixels wide
+     *
+     * @param iterations amount of passes
+     * @return the denoiser itself
+     */
+    public Denoiser setIterations(int iterations) {
+        if (iterations <= 0)
+            throw new IllegalArgumentException("Iterations amount must be positive");
+        this.iterations = iterations;
+        return this;
+    }
+
+    /**
+     * Set the colors difference (in color units) that reduces a tap weight by a
+     * factor of e in the first pass - it is halved every pass
+     *
+     * @param sigma the colors difference
+     * @return the denoiser itself
+     */
+    public Denoiser setColorSigma(double sigma) {
+        if (sigma <= 0)
+            throw new IllegalArgumentException("Color sigma must be positive");
+        this.colorSigma = sigma;
+        return this;
+    }
+
+    /**
+     * Set the normals difference (the distance of the unit normals) that reduces
+     * a tap weight by a factor of e
+     *
+     * @param sigma the normals difference
+     * @return the denoiser itself
+     */
+    public Denoiser setNormalSigma(double sigma) {
+        if (sigma <= 0)
+            throw new IllegalArgumentException("Normal sigma must be positive");
+        this.normalSigma = sigma;
+        return this;
+    }
+
+    /**
+     * Set the relative depth difference per pixel of the tap distance that
+     * reduces a tap weight by a factor of e
+     *
+     * @param sigma the relative depth difference
+     * @return the denoiser itself
+     */
+    public Denoiser setDepthSigma(double sigma) {
+        if (sigma <= 0)
+            throw new IllegalArgumentException("Depth sigma must be positive");
+        this.depthSigma = sigma;
+        return this;
+    }
+
+    /**
+     * Set the albedo difference (in color units) that reduces a tap weight by a
+     * factor of e
+     *
+     * @param sigma the albedo difference
+     * @return the denoiser itself
+     */
+    public Denoiser setAlbedoSigma(double sigma) {
+        if (sigma <= 0)
+            throw new IllegalArgumentException("Albedo sigma must be positive");
+        this.albedoSigma = sigma;
+        return this;
+    }
+
+    /**
+     * Set multi-threading <br>
+     * - if the parameter is 0 - number of cores less 2 is taken
+     *
+     * @param threads number of threads
+     * @return the denoiser itself
+     */
+    public Denoiser setMultithreading(int threads) {
+        if (threads < 0)
+            throw new IllegalArgumentException("Multi-threading parameter must be 0 or higher");
+        if (threads != 0)
+            this.threadsCount = threads;
+        else {
+            int cores = Runtime.getRuntime().availableProcessors() - SPARE_THREADS;
+            this.threadsCount = cores <= 2 ? 1 : cores;
+        }
+        return this;
+    }
+
+    /**
+     * Denoise the image of a writer in place
+     *
+     * @param writer  the image writer with the rendered image (not a streaming
+     *                writer, that does not keep the image)
+     * @param buffers the auxiliary buffers of the image
+     */
+    public void denoise(ImageWriter writer, AuxiliaryBuffers buffers) {
+        if (writer.isStreaming())
+            throw new IllegalArgumentException("Streaming image writer cannot be denoised");
+        int nX = writer.getNx(), nY = writer.getNy();
+        if (buffers.getNx() != nX || buffers.getNy() != nY)
+            throw new IllegalArgumentException("Auxiliary buffers size differs from the image size");
+        double[] colors = new double[3 * nX * nY];
+        for (int i = 0, c = 0; i < nY; ++i)
+            for (int j = 0; j < nX; ++j, c += 3) {
+                Color color = writer.getPixel(j, i);
+                colors[c] = color.getR();
+                colors[c + 1] = color.getG();
+                colors[c + 2] = color.getB();
+            }
+
+        double[] filtered = new double[colors.length];
+        for (int pass = 0; pass < iterations; ++pass) {
+            final double[] in = colors, out = filtered;
+            final int step = 1 << pass;
+            final double sigma = colorSigma / step;
+            final AtomicInteger nextRow = new AtomicInteger(0);
+            Runnable filterRows = () -> {
+                int row;
+                while ((row = nextRow.getAndIncrement()) < nY)
+                    filterRow(in, out, buffers, row, step, sigma);
+            };
+            if (threadsCount == 1)
+                filterRows.run();
+            else {
+                Thread[] threads = new Thread[threadsCount];
+                for (int t = 0; t < threadsCount; ++t) {
+                    threads[t] = new Thread(filterRows);
+                    threads[t].start();
+                }
+                for (Thread thread : threads)
+                    try {
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+            }
+            filtered = colors;
+            colors = out;
+        }
+
+        for (int i = 0, c = 0; i < nY; ++i)
+            for (int j = 0; j < nX; ++j, c += 3)
+                writer.writePixel(j, i, new Color(colors[c], colors[c + 1], colors[c + 2]));
+    }
+
+    /**
+     * Filter a row of the image by a single pass
+     *
+     * @param in      the colors before the pass
+     * @param out     array for the colors after the pass
+     * @param buffers the auxiliary buffers
+     * @param row     the row
+     * @param step    the distance between the taps
+     * @param sigma   the colors difference of the pass
+     */
+    private void filterRow(double[] in, double[] out, AuxiliaryBuffers buffers, int row, int step, double sigma) {
+        int nX = buffers.getNx(), nY = buffers.getNy();
+        double colorFactor = 1 / (sigma * sigma);
+        double normalFactor = 1 / (normalSigma * normalSigma);
+        double albedoFactor = 1 / (albedoSigma * albedoSigma);
+        double depthFactor = 1 / (depthSigma * step);
+        float[] normals = buffers.normals, albedo = buffers.albedo, depth = buffers.depth;
+        for (int col = 0; col < nX; ++col) {
+            int p = row * nX + col;
+            double r = 0, g = 0, b = 0, total = 0;
+            for (int dy = -2; dy <= 2; ++dy) {
+                int y = row + dy * step;
+                if (y < 0 || y >= nY)
+                    continue;
+                for (int dx = -2; dx <= 2; ++dx) {
+                    int x = col + dx * step;
+                    if (x < 0 || x >= nX)
+                        continue;
+                    int q = y * nX + x;
+                    double weight = KERNEL[dx + 2] * KERNEL[dy + 2];
+                    if (q != p) {
+                        boolean background = depth[p] == Float.POSITIVE_INFINITY;
+                        if (background != (depth[q] == Float.POSITIVE_INFINITY))
+                            continue;
+                        double exponent = distanceSquared(in, 3 * p, in, 3 * q) * colorFactor;
+                        if (!background)
+                            exponent += distanceSquared(normals, 3 * p, 3 * q) * normalFactor
+                                    + distanceSquared(albedo, 3 * p, 3 * q) * albedoFactor
+                                    + Math.abs(depth[p] - depth[q]) / depth[p] * depthFactor
+                                            / Math.max(Math.abs(dx), Math.abs(dy));
+                        weight *= Math.exp(-exponent);
+                    }
+                    r += weight * in[3 * q];
+                    g += weight * in[3 * q + 1];
+                    b += weight * in[3 * q + 2];
+                    total += weight;
+                }
+            }
+            out[3 * p] = r / total;
+            out[3 * p + 1] = g / total;
+            out[3 * p + 2] = b / total;
+        }
+    }
+
+    /**
+     * @param a first array
+     * @param i index of the first vector in the first array
+     * @param b second array
+     * @param j index of the second vector in the second array
+     * @return the squared distance of two 3 components vectors
+     */
+    private static double distanceSquared(double[] a, int i, double[] b, int j) {
+        double d0 = a[i] - b[j], d1 = a[i + 1] - b[j + 1], d2 = a[i + 2] - b[j + 2];
+        return d0 * d0 + d1 * d1 + d2 * d2;
+    }
+
+    /**
+     * @param a the array
+     * @param i index of the first vector
+     * @param j index of the second vector
+     * @return the squared distance of two 3 components vectors in an array
+     */
+    private static double distanceSquared(float[] a, int i, int j) {
+        double d0 = a[i] - a[j], d1 = a[i + 1] - a[j + 1], d2 = a[i + 2] - a[j + 2];
+        return d0 * d0 + d1 * d1 + d2 * d2;
+    }
+}
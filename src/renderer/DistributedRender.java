@@ -0,0 +1,283 @@
+package renderer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import geometries.Geometry;
+import primitives.Color;
+
+/**
+ * A coordinator that renders an image by handing its tiles out to
+ * {@link RenderWorker} processes connected over sockets (on this machine or on
+ * others).<br/>
+ * The protocol (all numbers are big endian):
+ * <ul>
+ * <li>coordinator to worker, once: job length (int) and the serialized
+ * {@link RenderJob}</li>
+ * <li>coordinator to worker: tile x, y, width, height (4 ints), or
+ * {@link #END_OF_WORK} instead of x when there is no more work</li>
+ * <li>worker to coordinator: amount of camera rays traced (long) and the RGB
+ * components of the tile pixels row by row (3 * width * height doubles, not
+ * clamped - the colors are kept in full precision as in a local render), and
+ * when the coordinator has auxiliary buffers, the first hits of the tile pixels
+ * row by row - the index of the hit geometry in the scene
+ * ({@link geometries.Geometries#flatten()}, width * height ints) and its features
+ * ({@link AuxiliaryBuffers#FEATURES} * width * height floats)</li>
+ * </ul>
+ * If a worker is lost (or its reply cannot be used) its tile is handed to
+ * another worker. Workers may join at any time during the render, but when no
+ * worker is connected for the worker timeout the render fails.
+ */
+public class DistributedRender extends RenderBase {
+    /**
+     * The tile x value that tells the worker to stop
+     */
+    static final int END_OF_WORK = -1;
+    private static final int DEFAULT_WORKER_TIMEOUT = 300_000; // milliseconds
+    private static final long POLL_MILLIS = 100;
+
+    private int port = -1;
+    private InetAddress bindAddress = null;
+    private int workerTimeout = DEFAULT_WORKER_TIMEOUT;
+
+    private Logger logger = Logger.getLogger("DistributedRender");
+
+    public DistributedRender() {
+        super("DistributedRender");
+    }
+
+    /**
+     * Set the port the coordinator listens on for workers
+     *
+     * @param port the port number
+     * @return the DistributedRender object itself
+     */
+    public DistributedRender setPort(int port) {
+        if (port <= 0 || port > 0xFFFF)
+            throw new IllegalArgumentException("Illegal port number");
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * Set the local address the coordinator listens on for workers (all the
+     * addresses by default). Any host that connects to the coordinator receives
+     * the whole scene, so a coordinator on a shared network should listen on a
+     * private address only.
+     *
+     * @param bindAddress the local address, or null for all the addresses
+     * @return the DistributedRender object itself
+     */
+    public DistributedRender setBindAddress(InetAddress bindAddress) {
+        this.bindAddress = bindAddress;
+        return this;
+    }
+
+    /**
+     * Set the time to wait for a worker to return a tile before it is considered
+     * lost - and the time to wait with no connected worker before the render
+     * fails
+     *
+     * @param timeoutMillis the timeout in milliseconds
+     * @return the DistributedRender object itself
+     */
+    public DistributedRender setWorkerTimeout(int timeoutMillis) {
+        if (timeoutMillis <= 0)
+            throw new IllegalArgumentException("Worker timeout must be positive");
+        this.workerTimeout = timeoutMillis;
+        return this;
+    }
+
+    @Override
+    protected void renderAlg() {
+        if (port == -1)
+            throw new IllegalStateException("Coordinator port was not set");
+        final int nX = imageWriter.getNx();
+        final int nY = imageWriter.getNy();
+        final List<Tile> allTiles = splitToTiles();
+        final BlockingDeque<Tile> tiles = new LinkedBlockingDeque<>(allTiles);
+        final CountDownLatch tilesLeft = new CountDownLatch(allTiles.size());
+        final List<Thread> handlers = new CopyOnWriteArrayList<>();
+        final AtomicInteger liveWorkers = new AtomicInteger(0);
+        final List<Geometry> geometries = auxiliaryBuffers == null ? null : rayTracer.scene.geometries.flatten();
+
+        try (ServerSocket server = new ServerSocket(port, 0, bindAddress)) {
+            // the scene and camera are serialized only once for all the workers
+            final byte[] job = new RenderJob(this).toBytes();
+            Thread acceptor = new Thread(() -> {
+                while (!server.isClosed()) {
+                    try {
+                        Socket socket = server.accept();
+                        liveWorkers.incrementAndGet();
+                        Thread handler = new Thread(() -> {
+                            try {
+                                serveWorker(socket, job, geometries, tiles, tilesLeft);
+                            } finally {
+                                liveWorkers.decrementAndGet();
+                            }
+                        }, "render-coordinator-" + socket.getRemoteSocketAddress());
+                        handlers.add(handler);
+                        handler.start();
+                    } catch (IOException e) {
+                        // the server socket was closed - the render is over
+                    }
+                }
+            }, "render-coordinator");
+            acceptor.start();
+            awaitTiles(tilesLeft, liveWorkers);
+        } catch (IOException e) {
+            throw new IllegalStateException("Distributed render failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        for (Thread handler : handlers)
+            try {
+                handler.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+    }
+
+    /**
+     * Wait until all the tiles are done, as long as some worker is connected
+     *
+     * @param tilesLeft   counter of the tiles that are not done yet
+     * @param liveWorkers counter of the connected workers
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void awaitTiles(CountDownLatch tilesLeft, AtomicInteger liveWorkers) throws InterruptedException {
+        long idleSince = System.currentTimeMillis();
+        while (!tilesLeft.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            long now = System.currentTimeMillis();
+            if (liveWorkers.get() > 0)
+                idleSince = now;
+            else if (now - idleSince >= workerTimeout)
+                throw new IllegalStateException("No render worker connected for " + workerTimeout + " ms, "
+                        + tilesLeft.getCount() + " tiles are not done");
+        }
+    }
+
+    /**
+     * Hand out tiles to a single connected worker and write the pixels it returns
+     * into the image, until all the tiles of the image are done. The tile in
+     * work is handed back to the queue whenever the worker fails (the connection
+     * is lost or the reply is wrong)
+     *
+     * @param socket     the worker connection
+     * @param job        the serialized render job
+     * @param geometries the geometries of the scene by their indices (null for no
+     *                   auxiliary buffers)
+     * @param tiles      the tiles that were not handed out yet
+     * @param tilesLeft  counter of the tiles that are not done yet
+     */
+    private void serveWorker(Socket socket, byte[] job, List<Geometry> geometries, BlockingDeque<Tile> tiles,
+            CountDownLatch tilesLeft) {
+        ProgressTracker.Worker worker = progress.newWorker();
+        Tile tile = null;
+        try (socket;
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            socket.setSoTimeout(workerTimeout);
+            out.writeInt(job.length);
+            out.write(job);
+            out.flush();
+
+            while ((tile = nextTile(tiles, tilesLeft)) != null) {
+                out.writeInt(tile.x);
+                out.writeInt(tile.y);
+                out.writeInt(tile.width);
+                out.writeInt(tile.height);
+                out.flush();
+
+                long rays = in.readLong();
+                double[] rgb = new double[3 * tile.size()];
+                for (int i = 0; i < rgb.length; ++i)
+                    rgb[i] = in.readDouble();
+
+                for (int i = 0, c = 0; i < tile.height; ++i)
+                    for (int j = 0; j < tile.width; ++j, c += 3)
+                        imageWriter.writePixel(tile.x + j, tile.y + i, new Color(rgb[c], rgb[c + 1], rgb[c + 2]));
+                if (geometries != null)
+                    readFirstHits(in, tile, geometries);
+                imageWriter.tileDone(tile);
+                progress.raysTraced(rays);
+                worker.pixelsDone(tile.size());
+                tile = null;
+                tilesLeft.countDown();
+            }
+            out.writeInt(END_OF_WORK);
+            out.flush();
+        } catch (IOException e) {
+            if (tile != null)
+                logger.log(Level.WARNING, "Worker " + socket.getRemoteSocketAddress() + " lost, tile " + tile
+                        + " will be reassigned", e);
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Wrong reply of worker " + socket.getRemoteSocketAddress() + ", tile " + tile
+                    + " will be reassigned", e);
+        } finally {
+            if (tile != null)
+                tiles.addFirst(tile);
+        }
+    }
+
+    /**
+     * Read the first hits of the pixels of a tile from a worker into the auxiliary
+     * buffers
+     *
+     * @param in         the worker input
+     * @param tile       the tile
+     * @param geometries the geometries of the scene by their indices
+     * @throws IOException if the worker connection failed
+     */
+    private void readFirstHits(DataInputStream in, Tile tile, List<Geometry> geometries) throws IOException {
+        int[] indices = new int[tile.size()];
+        for (int i = 0; i < indices.length; ++i)
+            indices[i] = in.readInt();
+        float[] features = new float[AuxiliaryBuffers.FEATURES * tile.size()];
+        for (int i = 0; i < features.length; ++i)
+            features[i] = in.readFloat();
+
+        for (int i = 0, p = 0; i < tile.height; ++i)
+            for (int j = 0; j < tile.width; ++j, ++p)
+                auxiliaryBuffers.write(tile.x + j, tile.y + i, features, p * AuxiliaryBuffers.FEATURES,
+                        indices[p] == AuxiliaryBuffers.BACKGROUND ? null : geometries.get(indices[p]));
+    }
+
+    /**
+     * Wait for a tile to hand out. Tiles of lost workers may come back to the queue
+     * as long as not all the tiles are done.
+     *
+     * @param tiles     the tiles that were not handed out yet
+     * @param tilesLeft counter of the tiles that are not done yet
+     * @return the next tile, or null if all the tiles are done
+     */
+    private Tile nextTile(BlockingDeque<Tile> tiles, CountDownLatch tilesLeft) {
+        try {
+            while (tilesLeft.getCount() > 0) {
+                Tile tile = tiles.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (tile != null)
+                    return tile;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
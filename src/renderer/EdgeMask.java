@@ -0,0 +1,154 @@
+package renderer;
+
+import geometries.Geometry;
+import geometries.Intersectable.GeoPoint;
+import primitives.Color;
+import primitives.Material;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * The first pass of the edge anti aliasing of a tile - a single sample through
+ * the center of every pixel of the tile and of the pixels around it, together
+ * with the features of its first hit (geometry, normal and depth). A pixel is
+ * on an edge if it differs from one of its 4 neighbours by its first hit (the
+ * background against a geometry, geometries of different materials, a bent
+ * normal or a jump of the depth) or by its color (i.e. a shadow edge). Only the
+ * pixels on edges need super sampling, the color of the single sample is good
+ * enough for the others.<br/>
+ * The triangles of a mesh are separate geometries, but they are not an edge
+ * where they continue each other smoothly with the same material.
+ */
+final class EdgeMask {
+    // cosine of the largest angle between the normals of neighbour pixels
+    private static final double NORMAL_THRESHOLD = 0.9;
+    // the largest relative depth difference of neighbour pixels
+    private static final double DEPTH_THRESHOLD = 0.1;
+    // the largest color component difference of neighbour pixels, in color units
+    private static final double COLOR_THRESHOLD = 10;
+
+    private final int left, top, width, height; // the tile with the pixels around it
+    private final Color[] colors;
+    private final Geometry[] geometries;
+    private final Vector[] normals;
+    private final double[] depths;
+
+    /**
+     * Constructor for the first pass of a tile
+     *
+     * @param tile - the tile.
+     * @param nX   - amount of pixel columns in the image.
+     * @param nY   - amount of pixel rows in the image.
+     */
+    EdgeMask(Tile tile, int nX, int nY) {
+        left = Math.max(tile.x - 1, 0);
+        top = Math.max(tile.y - 1, 0);
+        width = Math.min(tile.x + tile.width + 1, nX) - left;
+        height = Math.min(tile.y + tile.height + 1, nY) - top;
+        colors = new Color[width * height];
+        geometries = new Geometry[width * height];
+        normals = new Vector[width * height];
+        depths = new double[width * height];
+    }
+
+    /**
+     * @return column of the first pixel of the pass
+     */
+    int getLeft() {
+        return left;
+    }
+
+    /**
+     * @return row of the first pixel of the pass
+     */
+    int getTop() {
+        return top;
+    }
+
+    /**
+     * @return amount of pixel columns of the pass
+     */
+    int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return amount of pixel rows of the pass
+     */
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Store the sample of a pixel
+     *
+     * @param col   - pixel's column number.
+     * @param row   - pixel's row number.
+     * @param color - the color of the sample.
+     * @param ray   - the camera ray through the pixel center.
+     * @param hit   - the closest intersection of the ray, or null for the
+     *              background.
+     */
+    void set(int col, int row, Color color, Ray ray, GeoPoint hit) {
+        int i = (row - top) * width + col - left;
+        colors[i] = color;
+        if (hit == null)
+            return;
+        geometries[i] = hit.geometry;
+        Vector n = hit.geometry.getNormal(hit.point);
+        normals[i] = n.dotProduct(ray.getDir()) > 0 ? n.scale(-1) : n;
+        depths[i] = ray.getP0().distance(hit.point);
+    }
+
+    /**
+     * @param col - pixel's column number.
+     * @param row - pixel's row number.
+     * @return the color of the single sample of the pixel
+     */
+    Color getColor(int col, int row) {
+        return colors[(row - top) * width + col - left];
+    }
+
+    /**
+     * @param col - pixel's column number.
+     * @param row - pixel's row number.
+     * @return true if the pixel needs super sampling
+     */
+    boolean isEdge(int col, int row) {
+        int i = (row - top) * width + col - left;
+        return col > left && differ(i, i - 1) || col < left + width - 1 && differ(i, i + 1)
+                || row > top && differ(i, i - width) || row < top + height - 1 && differ(i, i + width);
+    }
+
+    /**
+     * Check whether there is an edge between two pixels
+     *
+     * @param i - index of the first pixel.
+     * @param j - index of the second pixel.
+     * @return true if the pixels differ
+     */
+    private boolean differ(int i, int j) {
+        Color c1 = colors[i], c2 = colors[j];
+        if (Math.abs(c1.getR() - c2.getR()) > COLOR_THRESHOLD || Math.abs(c1.getG() - c2.getG()) > COLOR_THRESHOLD
+                || Math.abs(c1.getB() - c2.getB()) > COLOR_THRESHOLD)
+            return true;
+        Geometry g1 = geometries[i], g2 = geometries[j];
+        if (g1 == null || g2 == null)
+            return g1 != g2;
+        if (g1 != g2 && (!sameMaterial(g1.getMaterial(), g2.getMaterial())
+                || !g1.getEmission().equals(g2.getEmission())))
+            return true;
+        return normals[i].dotProduct(normals[j]) < NORMAL_THRESHOLD
+                || Math.abs(depths[i] - depths[j]) > DEPTH_THRESHOLD * Math.min(depths[i], depths[j]);
+    }
+
+    /**
+     * @param m1 - first material.
+     * @param m2 - second material.
+     * @return true if the materials have the same factors
+     */
+    private static boolean sameMaterial(Material m1, Material m2) {
+        return m1 == m2 || m1.kD == m2.kD && m1.kS == m2.kS && m1.kR == m2.kR && m1.kT == m2.kT
+                && m1.nShininess == m2.nShininess;
+    }
+}
@@ -0,0 +1,266 @@
+package renderer;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * A comparison of two images of the same size - the amount of pixels that
+ * differ by more than a tolerance (in any color component), the largest
+ * difference, the peak signal to noise ratio (PSNR) of the whole image and the
+ * structural similarity (SSIM) of the luminance (averaged over windows of 8x8
+ * pixels, by half a window steps). An image of the differences can be written
+ * for viewing.<br/>
+ * It is used by the tests to check that an optimization of the renderer keeps
+ * the images (exactly or within a tolerance), and from the command line as:
+ * {@code java renderer.ImageDiff expected.png actual.png [diff.png [tolerance]]}
+ */
+public final class ImageDiff {
+    private static final int WINDOW = 8;
+    private static final double C1 = (0.01 * 255) * (0.01 * 255);
+    private static final double C2 = (0.03 * 255) * (0.03 * 255);
+
+    private final int width;
+    private final int height;
+    private final int tolerance;
+    // the largest component difference of every pixel
+    private final int[] differences;
+    private int differentPixels = 0;
+    private int maxDifference = 0;
+    private double meanSquaredError;
+    private double ssim;
+
+    /**
+     * Compare two images
+     *
+     * @param expected  - the expected image.
+     * @param actual    - the actual image.
+     * @param tolerance - the largest component difference of a pixel that counts
+     *                  as the same (0 for exactly the same pixels).
+     */
+    private ImageDiff(BufferedImage expected, BufferedImage actual, int tolerance) {
+        if (tolerance < 0)
+            throw new IllegalArgumentException("Negative tolerance is illegal");
+        width = expected.getWidth();
+        height = expected.getHeight();
+        if (actual.getWidth() != width || actual.getHeight() != height)
+            throw new IllegalArgumentException(String.format("Image sizes differ: %dx%d and %dx%d", width, height,
+                    actual.getWidth(), actual.getHeight()));
+        this.tolerance = tolerance;
+        differences = new int[width * height];
+
+        int[] rgb1 = expected.getRGB(0, 0, width, height, null, 0, width);
+        int[] rgb2 = actual.getRGB(0, 0, width, height, null, 0, width);
+        double[] luma1 = new double[rgb1.length];
+        double[] luma2 = new double[rgb2.length];
+        double squares = 0;
+        for (int i = 0; i < rgb1.length; ++i) {
+            int difference = 0;
+            for (int shift = 0; shift <= 16; shift += 8) {
+                int d = Math.abs((rgb1[i] >> shift & 0xFF) - (rgb2[i] >> shift & 0xFF));
+                squares += d * d;
+                difference = Math.max(difference, d);
+            }
+            differences[i] = difference;
+            if (difference > tolerance)
+                ++differentPixels;
+            maxDifference = Math.max(maxDifference, difference);
+            luma1[i] = luma(rgb1[i]);
+            luma2[i] = luma(rgb2[i]);
+        }
+        meanSquaredError = squares / (3.0 * rgb1.length);
+        ssim = structuralSimilarity(luma1, luma2);
+    }
+
+    /**
+     * Compare two images
+     *
+     * @param expected  - the expected image.
+     * @param actual    - the actual image.
+     * @param tolerance - the largest component difference of a pixel that counts
+     *                  as the same (0 for exactly the same pixels).
+     * @return the comparison
+     */
+    public static ImageDiff compare(BufferedImage expected, BufferedImage actual, int tolerance) {
+        return new ImageDiff(expected, actual, tolerance);
+    }
+
+    /**
+     * Compare two image files
+     *
+     * @param expected  - the expected image file.
+     * @param actual    - the actual image file.
+     * @param tolerance - the largest component difference of a pixel that counts
+     *                  as the same (0 for exactly the same pixels).
+     * @return the comparison
+     * @throws IOException if a file cannot be read
+     */
+    public static ImageDiff compare(File expected, File actual, int tolerance) throws IOException {
+        return new ImageDiff(read(expected), read(actual), tolerance);
+    }
+
+    /**
+     * Read an image file
+     *
+     * @param file - the file.
+     * @return the image
+     * @throws IOException if the file cannot be read
+     */
+    private static BufferedImage read(File file) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        if (image == null)
+            throw new IOException("Not an image file: " + file);
+        return image;
+    }
+
+    /**
+     * The luminance of a pixel
+     *
+     * @param rgb - the pixel color, packed as 0xRRGGBB.
+     * @return the luminance
+     */
+    private static double luma(int rgb) {
+        return 0.299 * (rgb >> 16 & 0xFF) + 0.587 * (rgb >> 8 & 0xFF) + 0.114 * (rgb & 0xFF);
+    }
+
+    /**
+     * The mean structural similarity of the windows of two luminance images
+     *
+     * @param luma1 - the luminance of the first image.
+     * @param luma2 - the luminance of the second image.
+     * @return the similarity, 1 for the same images
+     */
+    private double structuralSimilarity(double[] luma1, double[] luma2) {
+        int windowX = Math.min(WINDOW, width), windowY = Math.min(WINDOW, height);
+        int stepX = Math.max(1, windowX / 2), stepY = Math.max(1, windowY / 2);
+        double sum = 0;
+        int windows = 0;
+        for (int y = 0; y + windowY <= height; y += stepY)
+            for (int x = 0; x + windowX <= width; x += stepX) {
+                double mean1 = 0, mean2 = 0;
+                for (int i = y; i < y + windowY; ++i)
+                    for (int j = x; j < x + windowX; ++j) {
+                        mean1 += luma1[i * width + j];
+                        mean2 += luma2[i * width + j];
+                    }
+                int n = windowX * windowY;
+                mean1 /= n;
+                mean2 /= n;
+                double variance1 = 0, variance2 = 0, covariance = 0;
+                for (int i = y; i < y + windowY; ++i)
+                    for (int j = x; j < x + windowX; ++j) {
+                        double d1 = luma1[i * width + j] - mean1, d2 = luma2[i * width + j] - mean2;
+                        variance1 += d1 * d1;
+                        variance2 += d2 * d2;
+                        covariance += d1 * d2;
+                    }
+                variance1 /= n;
+                variance2 /= n;
+                covariance /= n;
+                sum += (2 * mean1 * mean2 + C1) * (2 * covariance + C2)
+                        / ((mean1 * mean1 + mean2 * mean2 + C1) * (variance1 + variance2 + C2));
+                ++windows;
+            }
+        return sum / windows;
+    }
+
+    /**
+     * @return amount of pixels that differ by more than the tolerance
+     */
+    public int getDifferentPixels() {
+        return differentPixels;
+    }
+
+    /**
+     * @return the largest difference of a color component
+     */
+    public int getMaxDifference() {
+        return maxDifference;
+    }
+
+    /**
+     * @return the peak signal to noise ratio in decibels (infinite for the same
+     *         images)
+     */
+    public double getPsnr() {
+        return meanSquaredError == 0 ? Double.POSITIVE_INFINITY
+                : 10 * Math.log10(255 * 255 / meanSquaredError);
+    }
+
+    /**
+     * @return the structural similarity, 1 for the same images
+     */
+    public double getSsim() {
+        return ssim;
+    }
+
+    /**
+     * @return true if no pixel differs by more than the tolerance
+     */
+    public boolean isSame() {
+        return differentPixels == 0;
+    }
+
+    /**
+     * Build an image of the differences - the pixels that differ by more than the
+     * tolerance are red (brighter for a larger difference), the pixels within the
+     * tolerance are gray by their difference
+     *
+     * @return the differences image
+     */
+    public BufferedImage getDiffImage() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int i = 0; i < height; ++i)
+            for (int j = 0; j < width; ++j) {
+                int d = differences[i * width + j];
+                image.setRGB(j, i, d > tolerance ? (128 + d / 2) << 16 : d << 16 | d << 8 | d);
+            }
+        return image;
+    }
+
+    /**
+     * Write the image of the differences (see {@link #getDiffImage()}) to a png
+     * file
+     *
+     * @param file - the file.
+     * @throws IOException if the file cannot be written
+     */
+    public void writeDiffImage(File file) throws IOException {
+        ImageIO.write(getDiffImage(), "png", file);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d different pixels (tolerance %d, max difference %d), PSNR %.2f dB, SSIM %.4f",
+                differentPixels, tolerance, maxDifference, getPsnr(), ssim);
+    }
+
+    /**
+     * Compare two image files from the command line
+     *
+     * @param args - the expected and the actual image files, and optionally the
+     *             differences image file and the tolerance.
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 4) {
+            System.err.println("Usage: ImageDiff expected actual [diff [tolerance]]");
+            System.exit(2);
+        }
+        ImageDiff diff = compare(new File(args[0]), new File(args[1]),
+                args.length == 4 ? Integer.parseInt(args[3]) : 0);
+        System.out.println(diff);
+        if (diff.isSame()) {
+            System.out.println("Pictures are the same");
+            return;
+        }
+        if (args.length >= 3) {
+            diff.writeDiffImage(new File(args[2]));
+            System.out.println("Pictures are different, the difference is stored as " + args[2]);
+        } else
+            System.out.println("Pictures are different");
+        System.exit(1);
+    }
+}
@@ -0,0 +1,93 @@
+package renderer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A background encoder of images - the image of a writer is taken (quantized)
+ * on the calling thread, and compressed and written to its file by the encoder
+ * threads, so the caller can go on rendering the next image at once.<br/>
+ * The amount of images waiting for encoding is bounded: when the encoding falls
+ * behind (e.g. a slow disk), {@link #submit(ImageWriter)} blocks until a place
+ * is free, so the rendered images do not pile up in memory.
+ */
+public class ImageEncoder implements AutoCloseable {
+    private final ExecutorService executor;
+    private final Semaphore places;
+    private volatile RuntimeException failure = null;
+
+    /**
+     * Constructor for an image encoder
+     *
+     * @param threads  - amount of encoding threads.
+     * @param capacity - maximal amount of images waiting for a thread (not
+     *                 including the images being encoded).
+     */
+    public ImageEncoder(int threads, int capacity) {
+        if (threads <= 0)
+            throw new IllegalArgumentException("Encoding threads amount must be positive");
+        if (capacity < 0)
+            throw new IllegalArgumentException("Negative encoding queue capacity is illegal");
+        executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "image-encoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        places = new Semaphore(threads + capacity);
+    }
+
+    /**
+     * Queue the image of a writer for encoding, waiting for a free place in the
+     * queue if it is full. The writer may be reused (or dropped) as soon as the
+     * method returns.
+     *
+     * @param writer - the image writer.
+     * @throws InterruptedException if interrupted while waiting for a place
+     */
+    public void submit(ImageWriter writer) throws InterruptedException {
+        checkFailure();
+        Runnable encoding = writer.prepareEncoding();
+        places.acquire();
+        try {
+            executor.execute(() -> {
+                try {
+                    encoding.run();
+                } catch (RuntimeException e) {
+                    failure = e;
+                } finally {
+                    places.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            places.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Rethrow the failure of an encoding that failed
+     */
+    private void checkFailure() {
+        RuntimeException e = failure;
+        if (e != null)
+            throw new IllegalStateException("Image encoding failed", e);
+    }
+
+    /**
+     * Wait for all the queued images to be written, and stop the encoding threads
+     *
+     * @throws IllegalStateException if an encoding failed
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkFailure();
+    }
+}
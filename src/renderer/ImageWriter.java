@@ -2,10 +2,12 @@ package renderer;
 
 import primitives.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 import javax.imageio.*;
 
@@ -13,7 +15,16 @@ import javax.imageio.*;
  * Image writer class combines accumulation of pixel color matrix and finally
  * producing a non-optimized jpeg image from this matrix. The class although is
  * responsible of holding image related parameters of View Plane - pixel matrix
- * size and resolution
+ * size and resolution<br/>
+ * The pixel colors are kept in full precision in a primitive RGB framebuffer
+ * (three doubles a pixel, not clamped), so writing a pixel is a few array stores
+ * (rendering threads write their own pixels with no locking), and pixel samples
+ * can be accumulated progressively. The colors are quantized to 8 bits only
+ * once, for the whole image, when the image is written.<br/>
+ * The image is written as png by default, and may be written as an
+ * uncompressed PPM or PFM file (see {@link NetpbmFiles}) for intermediate
+ * outputs. The png may be compressed by several threads (see
+ * {@link PngWriter#writeImage(java.nio.channels.WritableByteChannel, int[], int, int, int)}).
  * 
  * @author Dan
  */
@@ -22,11 +33,36 @@ public class ImageWriter {
 	private int nY;
 
 	private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
+	// the largest array the virtual machines allocate
+	static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
 
-	private BufferedImage image;
+	// the RGB components of pixel (x, y) at 3 * (y * nX + x)
+	private final double[] pixels;
 	private String imageName;
 	
-	private Logger logger = Logger.getLogger("ImageWriter");
+	private Format format = Format.PNG;
+	private int encodingThreads = 1;
+
+	/**
+	 * The image file formats
+	 */
+	public enum Format {
+		/** Compressed 8 bits RGB */
+		PNG("png"),
+		/** Uncompressed 8 bits RGB */
+		PPM("ppm"),
+		/** Uncompressed 32 bits floating point RGB, not clamped */
+		PFM("pfm");
+
+		private final String extension;
+
+		/**
+		 * @param extension the file extension of the format
+		 */
+		Format(String extension) {
+			this.extension = extension;
+		}
+	}
 
 	// ***************** Constructors ********************** //
 	/**
@@ -36,11 +72,30 @@ public class ImageWriter {
 	 * @param nY        amount of pixels by height
 	 */
 	public ImageWriter(String imageName, int nX, int nY) {
+		this(imageName, nX, nY, true);
+	}
+
+	/**
+	 * Image Writer constructor for writers that may keep the pixels by themselves
+	 * 
+	 * @param imageName   the name of the image file
+	 * @param nX          amount of pixels by Width
+	 * @param nY          amount of pixels by height
+	 * @param framebuffer whether to keep a framebuffer of the whole image
+	 * @throws IllegalArgumentException if the image is too large for a framebuffer
+	 */
+	protected ImageWriter(String imageName, int nX, int nY, boolean framebuffer) {
+		if (nX <= 0 || nY <= 0)
+			throw new IllegalArgumentException("Image resolution must be positive");
+		// the pixel indices are int (3 components of a double per pixel)
+		if (framebuffer && 3L * nX * nY > MAX_ARRAY_SIZE)
+			throw new IllegalArgumentException(
+					"Image is too large for a framebuffer, use a streaming or memory mapped image writer");
 		this.imageName = imageName;
 		this.nX = nX;
 		this.nY = nY;
 
-		image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+		pixels = framebuffer ? new double[3 * nX * nY] : null;
 	}
 
 	// ***************** Getters/Setters ********************** //
@@ -62,6 +117,84 @@ public class ImageWriter {
 		return nX;
 	}
 
+	/**
+	 * Set the format of the image file (of the writers that write the whole image
+	 * at the end - the streaming and the memory mapped writers write png only)
+	 * 
+	 * @param format the file format
+	 * @return the image writer itself
+	 */
+	public ImageWriter setFormat(Format format) {
+		if (format == null)
+			throw new IllegalArgumentException("Image format must not be null");
+		this.format = format;
+		return this;
+	}
+
+	/**
+	 * Set the amount of threads that compress the png file - a single thread uses
+	 * the standard encoder of the Java library
+	 * 
+	 * @param threads amount of threads, 0 for the amount of cores
+	 * @return the image writer itself
+	 */
+	public ImageWriter setEncodingThreads(int threads) {
+		if (threads < 0)
+			throw new IllegalArgumentException("Encoding threads must be 0 or higher");
+		this.encodingThreads = threads == 0 ? Runtime.getRuntime().availableProcessors() : threads;
+		return this;
+	}
+
+	/**
+	 * Whether the image is written to the file while it is rendered (a row band
+	 * after another) - the renderers then hand out the tiles band by band. Such a
+	 * writer keeps only the bands that are not written yet, so it has no whole
+	 * image for {@link #getImage()} or for the {@link Denoiser}
+	 * 
+	 * @return true for a streaming writer
+	 */
+	public boolean isStreaming() {
+		return false;
+	}
+
+	/**
+	 * The file of the image
+	 * 
+	 * @return the png file in the images directory of the project
+	 */
+	protected File getFile() {
+		return getFile("png");
+	}
+
+	/**
+	 * A file of the image with another extension
+	 * 
+	 * @param extension the file extension
+	 * @return the file in the images directory of the project
+	 */
+	protected File getFile(String extension) {
+		return new File(FOLDER_PATH + '/' + imageName + '.' + extension);
+	}
+
+	/**
+	 * Whether a tile of the image was already rendered (by a previous run of the
+	 * render that was stopped) - the renderers skip such tiles
+	 * 
+	 * @param tile the tile
+	 * @return true if the pixels of the tile are kept already
+	 */
+	public boolean isTileDone(Tile tile) {
+		return false;
+	}
+
+	/**
+	 * Notify the writer that all the pixels of a tile were written
+	 * 
+	 * @param tile the tile
+	 */
+	public void tileDone(Tile tile) {
+	}
+
 	// ***************** Operations ******************** //
 
 	/**
@@ -69,12 +202,85 @@ public class ImageWriter {
 	 * pixel color matrix in the directory of the project
 	 */
 	public void writeToImage() {
-		try {
-			File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-			ImageIO.write(image, "png", file);
-		} catch (IOException e) {
-			logger.log(Level.SEVERE, "I/O error", e);
+		prepareEncoding().run();
+	}
+
+	/**
+	 * Take the image for encoding - the framebuffer is quantized at once, and the
+	 * compression and the file writing are left to the returned task, which may
+	 * run on another thread (see {@link ImageEncoder}) while the framebuffer is
+	 * reused
+	 * 
+	 * @return the task that writes the image file
+	 */
+	protected Runnable prepareEncoding() {
+		if (format == Format.PNG && encodingThreads == 1) {
+			BufferedImage image = getImage();
+			return () -> {
+				try {
+					ImageIO.write(image, "png", getFile());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			};
 		}
+
+		int[] rgb = format == Format.PFM ? null
+				: ((DataBufferInt) getImage().getRaster().getDataBuffer()).getData();
+		float[] components = format == Format.PFM ? new float[3 * nX * nY] : null;
+		if (components != null)
+			for (int i = 0, c = 0; i < nY; ++i)
+				for (int j = 0; j < nX; ++j) {
+					Color color = getPixel(j, i);
+					components[c++] = (float) color.getR();
+					components[c++] = (float) color.getG();
+					components[c++] = (float) color.getB();
+				}
+		return () -> {
+			try (FileChannel out = FileChannel.open(getFile(format.extension).toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				switch (format) {
+				case PNG:
+					PngWriter.writeImage(out, rgb, nX, nY, encodingThreads);
+					break;
+				case PPM:
+					NetpbmFiles.writePpm(out, rgb, nX, nY);
+					break;
+				case PFM:
+					NetpbmFiles.writePfm(out, components, nX, nY);
+					break;
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+	}
+
+	/**
+	 * Quantize the framebuffer to an 8 bit image (every component is truncated
+	 * and clamped to 255, as in {@link Color#getColor()})
+	 * 
+	 * @return the image
+	 * @throws IllegalStateException if the writer does not keep the whole image
+	 *                               (see {@link #isStreaming()})
+	 */
+	public BufferedImage getImage() {
+		BufferedImage image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+		int[] rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		for (int i = 0, c = 0; i < rgb.length; ++i, c += 3)
+			rgb[i] = quantize(pixels[c]) << 16 | quantize(pixels[c + 1]) << 8 | quantize(pixels[c + 2]);
+		return image;
+	}
+
+	/**
+	 * Quantize a color component to 8 bits
+	 * 
+	 * @param component the component
+	 * @return the 8 bit component
+	 */
+	static int quantize(double component) {
+		int value = (int) component;
+		return value > 255 ? 255 : value;
 	}
 
 	/**
@@ -86,7 +292,39 @@ public class ImageWriter {
 	 * @param color  final color of the pixel
 	 */
 	public void writePixel(int xIndex, int yIndex, Color color) {
-		image.setRGB(xIndex, yIndex, color.getColor().getRGB());
+		int i = 3 * (yIndex * nX + xIndex);
+		pixels[i] = color.getR();
+		pixels[i + 1] = color.getG();
+		pixels[i + 2] = color.getB();
+	}
+
+	/**
+	 * Accumulate a color into a pixel progressively - the pixel moves toward the
+	 * color by a weight, so weights of 1, 1/2, 1/3... keep the average of the
+	 * colors of the passes
+	 * 
+	 * @param xIndex X axis index of the pixel
+	 * @param yIndex Y axis index of the pixel
+	 * @param color  the color of the pass
+	 * @param weight the weight of the color, between 0 and 1
+	 */
+	public void accumulatePixel(int xIndex, int yIndex, Color color, double weight) {
+		int i = 3 * (yIndex * nX + xIndex);
+		pixels[i] += (color.getR() - pixels[i]) * weight;
+		pixels[i + 1] += (color.getG() - pixels[i + 1]) * weight;
+		pixels[i + 2] += (color.getB() - pixels[i + 2]) * weight;
+	}
+
+	/**
+	 * Read the color of a pixel in full precision
+	 * 
+	 * @param xIndex X axis index of the pixel
+	 * @param yIndex Y axis index of the pixel
+	 * @return the color of the pixel
+	 */
+	public Color getPixel(int xIndex, int yIndex) {
+		int i = 3 * (yIndex * nX + xIndex);
+		return new Color(pixels[i], pixels[i + 1], pixels[i + 2]);
 	}
 
 }
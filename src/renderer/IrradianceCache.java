@@ -0,0 +1,221 @@
+package renderer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import geometries.Geometry;
+import geometries.Intersectable.GeoPoint;
+import primitives.Color;
+import primitives.Point3D;
+import primitives.Ray;
+import primitives.SampleStream;
+import primitives.Vector;
+
+/**
+ * A world space cache of the diffuse direct lighting (the irradiance - the
+ * light intensities times the cosine of their angle with the normal, after the
+ * shadows, without the diffuse factor of the material).<br/>
+ * The space is divided to a lattice of cubic cells. The irradiance is kept at
+ * the corners of the cells, for a geometry and a quantized direction of the
+ * normal (the normal facing the viewer, so the two sides of a surface are kept
+ * apart). The irradiance of a point is interpolated from the corners of its cell
+ * (trilinearly) - so the points of a cell share the shadow rays of its 8
+ * corners, and every corner is shared by the 8 cells around it.<br/>
+ * A missing corner is calculated at the point of the geometry that a ray from
+ * the corner along the quantized normal meets (a corner that is not near the
+ * geometry is left out of the interpolation), with samples seeded by the
+ * corner. A corner is a function of its key alone - not of the point that
+ * needed it first - so the images do not depend on the order of rendering, on
+ * the amount of threads or on the evictions.<br/>
+ * The corners are kept in a fixed size hash table that is shared by the
+ * rendering threads - a corner takes the slot of its hash, evicting whatever
+ * corner was there before. The records are immutable, so the threads read and
+ * replace them without locks (two threads may calculate the same corner at
+ * once, and both get the same result).
+ */
+final class IrradianceCache {
+    // amount of normal quantization steps along each axis of the unit cube
+    private static final int NORMAL_STEPS = 4;
+    private static final int NORMAL_CODES = 2 * NORMAL_STEPS + 1;
+    // interpolation weights below it are left out
+    private static final double MIN_WEIGHT = 1e-9;
+
+    /**
+     * Calculates the irradiance at a point of a geometry
+     */
+    @FunctionalInterface
+    interface Lighting {
+        /**
+         * @param point - the point of the geometry.
+         * @param ray   - the ray toward the point (from the viewer side).
+         * @param seed  - the seed of the samples of the point.
+         * @return the irradiance
+         */
+        Color irradiance(GeoPoint point, Ray ray, long seed);
+    }
+
+    /**
+     * The irradiance of a lattice corner for a geometry and a quantized normal
+     */
+    private static final class Record {
+        final int x, y, z, normal;
+        final Geometry geometry;
+        final Color irradiance;
+
+        /**
+         * @param x          - the lattice column of the corner.
+         * @param y          - the lattice row of the corner.
+         * @param z          - the lattice layer of the corner.
+         * @param normal     - the code of the quantized normal.
+         * @param geometry   - the geometry.
+         * @param irradiance - the irradiance, or null if the corner is not near the
+         *                   geometry.
+         */
+        Record(int x, int y, int z, int normal, Geometry geometry, Color irradiance) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.normal = normal;
+            this.geometry = geometry;
+            this.irradiance = irradiance;
+        }
+    }
+
+    private final double cellSize;
+    private final AtomicReferenceArray<Record> slots;
+    private final int mask;
+
+    /**
+     * Constructor for an empty cache
+     *
+     * @param cellSize - the edge length of the lattice cells.
+     * @param capacity - the amount of corners kept (rounded up to a power of 2).
+     */
+    IrradianceCache(double cellSize, int capacity) {
+        if (cellSize <= 0)
+            throw new IllegalArgumentException("Cell size must be positive");
+        if (capacity <= 0 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Capacity must be positive and at most 2^30");
+        this.cellSize = cellSize;
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * @return the edge length of the lattice cells
+     */
+    double getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * @return the amount of corners kept
+     */
+    int getCapacity() {
+        return slots.length();
+    }
+
+    /**
+     * Find the irradiance of a point by interpolating the corners of its cell
+     *
+     * @param point    - the point and its geometry.
+     * @param nx       - X component of the unit normal at the point (facing the
+     *                 viewer).
+     * @param ny       - Y component of the normal.
+     * @param nz       - Z component of the normal.
+     * @param lighting - calculates the irradiance at a point of the geometry.
+     * @return the irradiance, or null if none of the corners of the cell is near
+     *         the geometry
+     */
+    Color get(GeoPoint point, double nx, double ny, double nz, Lighting lighting) {
+        int qx = quantize(nx), qy = quantize(ny), qz = quantize(nz);
+        int normal = (qx * NORMAL_CODES + qy) * NORMAL_CODES + qz;
+        // a unit normal has a component of at least 1/sqrt(3), so it is not quantized to 0
+        Vector direction = new Vector(qx - NORMAL_STEPS, qy - NORMAL_STEPS, qz - NORMAL_STEPS).normalized();
+        Geometry geometry = point.geometry;
+        double px = point.point.getX(), py = point.point.getY(), pz = point.point.getZ();
+        double gx = px / cellSize, gy = py / cellSize, gz = pz / cellSize;
+        int x0 = (int) Math.floor(gx), y0 = (int) Math.floor(gy), z0 = (int) Math.floor(gz);
+        double fx = gx - x0, fy = gy - y0, fz = gz - z0;
+
+        double r = 0, g = 0, b = 0, total = 0;
+        for (int corner = 0; corner < 8; ++corner) {
+            int dx = corner & 1, dy = corner >> 1 & 1, dz = corner >> 2;
+            double weight = (dx == 0 ? 1 - fx : fx) * (dy == 0 ? 1 - fy : fy) * (dz == 0 ? 1 - fz : fz);
+            if (weight < MIN_WEIGHT)
+                continue;
+            int x = x0 + dx, y = y0 + dy, z = z0 + dz;
+            int slot = (hash(x, y, z, normal) ^ System.identityHashCode(geometry)) & mask;
+            Record record = slots.get(slot);
+            if (record == null || record.x != x || record.y != y || record.z != z || record.normal != normal
+                    || record.geometry != geometry) {
+                record = new Record(x, y, z, normal, geometry, corner(geometry, x, y, z, normal, direction, lighting));
+                slots.set(slot, record);
+            }
+            if (record.irradiance == null)
+                continue;
+            r += weight * record.irradiance.getR();
+            g += weight * record.irradiance.getG();
+            b += weight * record.irradiance.getB();
+            total += weight;
+        }
+        return total == 0 ? null : new Color(r / total, g / total, b / total);
+    }
+
+    /**
+     * Calculate the irradiance of a corner at the point of the geometry closest
+     * to it along the quantized normal (within two cells)
+     *
+     * @param geometry  - the geometry.
+     * @param x         - the lattice column of the corner.
+     * @param y         - the lattice row of the corner.
+     * @param z         - the lattice layer of the corner.
+     * @param normal    - the code of the quantized normal.
+     * @param direction - the quantized normal.
+     * @param lighting  - calculates the irradiance at a point of the geometry.
+     * @return the irradiance, or null if the corner is not near the geometry
+     */
+    private Color corner(Geometry geometry, int x, int y, int z, int normal, Vector direction, Lighting lighting) {
+        double reach = 2 * cellSize;
+        // a ray from the viewer side of the corner toward the geometry
+        Ray ray = new Ray(new Point3D(x * cellSize, y * cellSize, z * cellSize).add(direction.scale(reach)),
+                direction.scale(-1));
+        List<GeoPoint> hits = geometry.findGeoIntersections(ray);
+        if (hits == null)
+            return null;
+        GeoPoint closest = null;
+        double offset = reach;
+        for (GeoPoint hit : hits) {
+            double d = Math.abs(ray.getP0().distance(hit.point) - reach);
+            if (d < offset) {
+                offset = d;
+                closest = hit;
+            }
+        }
+        return closest == null ? null
+                : lighting.irradiance(new GeoPoint(geometry, closest.point), ray, SampleStream.seed(x, y, z, normal));
+    }
+
+    /**
+     * @param component - a component of a unit normal.
+     * @return the quantized component, from 0 to {@link #NORMAL_CODES} - 1
+     */
+    private static int quantize(double component) {
+        return (int) Math.round(component * NORMAL_STEPS) + NORMAL_STEPS;
+    }
+
+    /**
+     * @param x      - the lattice column.
+     * @param y      - the lattice row.
+     * @param z      - the lattice layer.
+     * @param normal - the code of the quantized normal.
+     * @return the hash of a corner
+     */
+    private static int hash(int x, int y, int z, int normal) {
+        int h = x * 73856093 ^ y * 19349663 ^ z * 83492791 ^ normal * 50331653;
+        return h ^ h >>> 16;
+    }
+}
@@ -0,0 +1,308 @@
+package renderer;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+import primitives.Color;
+
+/**
+ * An image writer with its framebuffer in a memory mapped file (next to the
+ * image, with the extension "framebuffer"), together with a map of the
+ * completed tiles. The pixels and the completion marks are stored right into
+ * the file mapping, so they survive a crash or a kill of the process. A writer
+ * with resume turned on (see {@link #setResume(boolean)}) continues the
+ * framebuffer of a previous render of the same image with the same writer
+ * parameters and job key, so the render renders only the tiles that are not
+ * marked as completed. The job key is given by the caller to tell the renders of
+ * different scenes or settings apart - the writer cannot see them.<br/>
+ * The completion map is kept for the cells of a grid of the checkpoint size (the
+ * tile size of the renderer) - a tile is completed when all the cells that it
+ * intersects are, and a cell is marked when a completed tile contains it. The
+ * file is forced to the storage every checkpoint interval and when the image is
+ * written, so a crash of the whole machine loses at most the last interval.
+ */
+public class MappedImageWriter extends ImageWriter implements Closeable {
+    private static final int MAGIC = 0x52544642; // "RTFB"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 24;
+    private static final int PIXEL_SIZE = 3 * Double.BYTES;
+    // the maximal size of a single mapping of the pixels
+    private static final long MAX_MAPPING = 1L << 30;
+
+    private final int cellSize;
+    private final int cellColumns;
+    private final int cellRows;
+    private final FileChannel channel;
+    // the header and the completion map (a byte for every cell)
+    private final MappedByteBuffer cells;
+    // the pixels, by bands of rowsPerMapping rows
+    private final MappedByteBuffer[] mappings;
+    private final int rowsPerMapping;
+    private final long checkpointInterval;
+    private volatile long lastCheckpoint = System.currentTimeMillis();
+    private String jobKey = "";
+    private boolean resume = false;
+    // the completion map is resumed or cleared on the first use of it
+    private volatile boolean started = false;
+    private boolean resumed = false;
+
+    /**
+     * Constructor for a memory mapped image writer - the framebuffer is started
+     * anew unless resume is turned on
+     *
+     * @param imageName          the name of the image file
+     * @param nX                 amount of pixels by Width
+     * @param nY                 amount of pixels by height
+     * @param cellSize           the edge length of the completion map cells (i.e.
+     *                           the tile size of the renderer)
+     * @param checkpointInterval the time between two forces of the file to the
+     *                           storage, in milliseconds
+     */
+    public MappedImageWriter(String imageName, int nX, int nY, int cellSize, long checkpointInterval) {
+        super(imageName, nX, nY, false);
+        if (cellSize <= 0)
+            throw new IllegalArgumentException("Cell size must be positive");
+        if (checkpointInterval < 0)
+            throw new IllegalArgumentException("Negative checkpoint interval is illegal");
+        this.cellSize = cellSize;
+        this.checkpointInterval = checkpointInterval;
+        cellColumns = (nX + cellSize - 1) / cellSize;
+        cellRows = (nY + cellSize - 1) / cellSize;
+        rowsPerMapping = (int) Math.max(1, Math.min(nY, MAX_MAPPING / ((long) nX * PIXEL_SIZE)));
+
+        long cellsSize = HEADER_SIZE + (long) cellColumns * cellRows;
+        // the pixels start on a page boundary
+        long pixelsStart = (cellsSize + 4095) / 4096 * 4096;
+        long fileSize = pixelsStart + (long) nX * nY * PIXEL_SIZE;
+        try {
+            channel = FileChannel.open(getFile("framebuffer").toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() != fileSize) {
+                // a new (zero filled) framebuffer
+                channel.truncate(0);
+                channel.write(ByteBuffer.allocate(1), fileSize - 1);
+            }
+            cells = channel.map(MapMode.READ_WRITE, 0, cellsSize);
+            mappings = new MappedByteBuffer[(nY + rowsPerMapping - 1) / rowsPerMapping];
+            for (int i = 0; i < mappings.length; ++i) {
+                int rows = Math.min(rowsPerMapping, nY - i * rowsPerMapping);
+                mappings[i] = channel.map(MapMode.READ_WRITE,
+                        pixelsStart + (long) i * rowsPerMapping * nX * PIXEL_SIZE, (long) rows * nX * PIXEL_SIZE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Set the key of the render job (e.g. a name of the scene and its version) - a
+     * framebuffer is resumed only by a writer of the same key. Must be set before
+     * the render starts.
+     *
+     * @param jobKey the job key
+     * @return self return for builder pattern
+     */
+    public MappedImageWriter setJobKey(String jobKey) {
+        if (jobKey == null)
+            throw new IllegalArgumentException("Job key must not be null");
+        this.jobKey = jobKey;
+        return this;
+    }
+
+    /**
+     * Turn on or off the resume of the framebuffer of a previous render (off by
+     * default - the framebuffer is started anew). Must be set before the render
+     * starts.
+     *
+     * @param resume true to resume the completed tiles of a previous render
+     * @return self return for builder pattern
+     */
+    public MappedImageWriter setResume(boolean resume) {
+        this.resume = resume;
+        return this;
+    }
+
+    /**
+     * Resume the completion map if resume is on and the framebuffer header
+     * matches the writer parameters and job key, and otherwise clear it and write
+     * a new header - done once, before the map is used
+     */
+    private void start() {
+        if (started)
+            return;
+        synchronized (cells) {
+            if (started)
+                return;
+            resumed = resume && cells.getInt(0) == MAGIC && cells.getInt(4) == VERSION
+                    && cells.getInt(8) == getNx() && cells.getInt(12) == getNy() && cells.getInt(16) == cellSize
+                    && cells.getInt(20) == jobKey.hashCode();
+            if (!resumed) {
+                for (int i = HEADER_SIZE; i < cells.capacity(); ++i)
+                    cells.put(i, (byte) 0);
+                cells.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, getNx()).putInt(12, getNy())
+                        .putInt(16, cellSize).putInt(20, jobKey.hashCode());
+                cells.force();
+            }
+            started = true;
+        }
+    }
+
+    /**
+     * @return true if the framebuffer of a previous render was resumed
+     */
+    public boolean isResumed() {
+        start();
+        return resumed;
+    }
+
+    /**
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the mapping of the pixel
+     */
+    private MappedByteBuffer mapping(int yIndex) {
+        return mappings[yIndex / rowsPerMapping];
+    }
+
+    /**
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the position of the pixel in its mapping
+     */
+    private int position(int xIndex, int yIndex) {
+        return ((yIndex % rowsPerMapping) * getNx() + xIndex) * PIXEL_SIZE;
+    }
+
+    @Override
+    public void writePixel(int xIndex, int yIndex, Color color) {
+        MappedByteBuffer mapping = mapping(yIndex);
+        int i = position(xIndex, yIndex);
+        mapping.putDouble(i, color.getR());
+        mapping.putDouble(i + Double.BYTES, color.getG());
+        mapping.putDouble(i + 2 * Double.BYTES, color.getB());
+    }
+
+    @Override
+    public void accumulatePixel(int xIndex, int yIndex, Color color, double weight) {
+        Color pixel = getPixel(xIndex, yIndex);
+        writePixel(xIndex, yIndex,
+                new Color(pixel.getR() + (color.getR() - pixel.getR()) * weight,
+                        pixel.getG() + (color.getG() - pixel.getG()) * weight,
+                        pixel.getB() + (color.getB() - pixel.getB()) * weight));
+    }
+
+    @Override
+    public Color getPixel(int xIndex, int yIndex) {
+        MappedByteBuffer mapping = mapping(yIndex);
+        int i = position(xIndex, yIndex);
+        return new Color(mapping.getDouble(i), mapping.getDouble(i + Double.BYTES),
+                mapping.getDouble(i + 2 * Double.BYTES));
+    }
+
+    @Override
+    public boolean isTileDone(Tile tile) {
+        start();
+        for (int i = tile.y / cellSize; i <= (tile.y + tile.height - 1) / cellSize; ++i)
+            for (int j = tile.x / cellSize; j <= (tile.x + tile.width - 1) / cellSize; ++j)
+                if (cells.get(HEADER_SIZE + i * cellColumns + j) == 0)
+                    return false;
+        return true;
+    }
+
+    @Override
+    public void tileDone(Tile tile) {
+        start();
+        // the cells that are contained in the tile (a cell on the image edge may be
+        // cut by the image)
+        int i0 = (tile.y + cellSize - 1) / cellSize, j0 = (tile.x + cellSize - 1) / cellSize;
+        int i1 = tile.y + tile.height == getNy() ? cellRows : (tile.y + tile.height) / cellSize;
+        int j1 = tile.x + tile.width == getNx() ? cellColumns : (tile.x + tile.width) / cellSize;
+        for (int i = i0; i < i1; ++i)
+            for (int j = j0; j < j1; ++j)
+                cells.put(HEADER_SIZE + i * cellColumns + j, (byte) 1);
+        long now = System.currentTimeMillis();
+        if (now - lastCheckpoint >= checkpointInterval) {
+            lastCheckpoint = now;
+            checkpoint();
+        }
+    }
+
+    /**
+     * Force the pixels and then the completion map to the storage
+     */
+    public void checkpoint() {
+        for (MappedByteBuffer mapping : mappings)
+            mapping.force();
+        cells.force();
+    }
+
+    @Override
+    public BufferedImage getImage() {
+        BufferedImage image = new BufferedImage(getNx(), getNy(), BufferedImage.TYPE_INT_RGB);
+        int[] rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < getNy(); ++i)
+            quantizeRow(i, rgb, i * getNx());
+        return image;
+    }
+
+    /**
+     * Quantize a row of the framebuffer to 8 bits
+     *
+     * @param yIndex the row
+     * @param rgb    array for the packed pixel colors
+     * @param offset the index of the first pixel of the row in the array
+     */
+    private void quantizeRow(int yIndex, int[] rgb, int offset) {
+        MappedByteBuffer mapping = mapping(yIndex);
+        int p = position(0, yIndex);
+        for (int j = 0; j < getNx(); ++j, p += PIXEL_SIZE)
+            rgb[offset + j] = quantize(mapping.getDouble(p)) << 16
+                    | quantize(mapping.getDouble(p + Double.BYTES)) << 8
+                    | quantize(mapping.getDouble(p + 2 * Double.BYTES));
+    }
+
+    /**
+     * Force the framebuffer to the storage, and write the png file row by row
+     * (with no image of the whole size in memory) - the rows are read from the
+     * file mapping by the returned task, so the framebuffer must not be changed
+     * until the task is done
+     */
+    @Override
+    protected Runnable prepareEncoding() {
+        checkpoint();
+        return () -> {
+            int[] row = new int[getNx()];
+            try (PngWriter png = new PngWriter(new BufferedOutputStream(new FileOutputStream(getFile())), getNx(),
+                    getNy())) {
+                for (int i = 0; i < getNy(); ++i) {
+                    quantizeRow(i, row, 0);
+                    png.writeRow(row, 0);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    /**
+     * Close the framebuffer file (the mappings stay valid until they are
+     * collected)
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        checkpoint();
+        channel.close();
+    }
+}
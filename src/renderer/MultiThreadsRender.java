@@ -1,5 +1,8 @@
 package renderer;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Renderer class is responsible for generating pixel color map from a graphic
  * scene, using ImageWriter class
@@ -10,7 +13,6 @@ package renderer;
 public class MultiThreadsRender extends RenderBase {
     private int threadsCount = 0;
     private static final int SPARE_THREADS = 2; // Spare threads if trying to use all the cores
-    private boolean print = false; // printing progress percentage
 
     public MultiThreadsRender() {
         super("MultiThreadsRender");
@@ -36,169 +38,46 @@ public class MultiThreadsRender extends RenderBase {
     }
 
     /**
-     * Set debug printing on
+     * Set debug printing on - the progress percentage is printed on the console
      * 
      * @return the MultiThreadsRender object itself
      */
     public MultiThreadsRender setDebugPrint() {
-        print = true;
+        setProgressListener(ProgressListener.console());
         return this;
     }
 
-    /**
-     * Pixel is an internal helper class whose objects are associated with a Render
-     * object that they are generated in scope of. It is used for multi-threading in
-     * the Renderer and for follow up its progress.<br/>
-     * There is a main follow up object and several secondary objects - one in each
-     * thread.
-     * 
-     * @author Dan
-     *
-     */
-    private class Pixel {
-        private long maxRows = 0;
-        private long maxCols = 0;
-        private long pixels = 0;
-        public volatile int row = 0;
-        public volatile int col = -1;
-        private long counter = 0;
-        private int percents = 0;
-        private long nextCounter = 0;
-
-        /**
-         * The constructor for initializing the main follow up Pixel object
-         * 
-         * @param maxRows the amount of pixel rows
-         * @param maxCols the amount of pixel columns
-         */
-        public Pixel(int maxRows, int maxCols) {
-            this.maxRows = maxRows;
-            this.maxCols = maxCols;
-            this.pixels = (long) maxRows * maxCols;
-            this.nextCounter = this.pixels / 100;
-            if (MultiThreadsRender.this.print)
-                System.out.printf("\r%02d%% ", this.percents);
-        }
-
-        /**
-         * Default constructor for secondary Pixel objects
-         */
-        public Pixel() {
-        }
-
-        /**
-         * Internal function for thread-safe manipulating of main follow up Pixel object
-         * - this function is critical section for all the threads, and main Pixel
-         * object data is the shared data of this critical section.<br/>
-         * The function provides next pixel number each call.
-         * 
-         * @param target target secondary Pixel object to copy the row/column of the
-         *               next pixel
-         * @return the progress percentage for follow up: if it is 0 - nothing to print,
-         *         if it is -1 - the task is finished, any other value - the progress
-         *         percentage (only when it changes)
-         */
-        private synchronized int nextP(Pixel target) {
-            ++col;
-            ++this.counter;
-            if (col < this.maxCols) {
-                target.row = this.row;
-                target.col = this.col;
-                if (MultiThreadsRender.this.print && this.counter == this.nextCounter) {
-                    ++this.percents;
-                    this.nextCounter = this.pixels * (this.percents + 1) / 100;
-                    return this.percents;
-                }
-                return 0;
-            }
-            ++row;
-            if (row < this.maxRows) {
-                col = 0;
-                target.row = this.row;
-                target.col = this.col;
-                if (MultiThreadsRender.this.print && this.counter == this.nextCounter) {
-                    ++this.percents;
-                    this.nextCounter = this.pixels * (this.percents + 1) / 100;
-                    return this.percents;
-                }
-                return 0;
-            }
-            return -1;
-        }
-
-        /**
-         * Public function for getting next pixel number into secondary Pixel object.
-         * The function prints also progress percentage in the console window.
-         * 
-         * @param target target secondary Pixel object to copy the row/column of the
-         *               next pixel
-         * @return true if the work still in progress, -1 if it's done
-         */
-        public boolean nextPixel(Pixel target) {
-            int percent = nextP(target);
-            if (MultiThreadsRender.this.print && percent > 0)
-                synchronized (this) {
-                    notifyAll();
-                }
-            if (percent >= 0)
-                return true;
-            if (MultiThreadsRender.this.print)
-                synchronized (this) {
-                    notifyAll();
-                }
-            return false;
-        }
-
-        /**
-         * Debug print of progress percentage - must be run from the main thread
-         */
-        public void print() {
-            if (MultiThreadsRender.this.print)
-                while (this.percents < 100)
-                    try {
-                        synchronized (this) {
-                            wait();
-                        }
-                        System.out.printf("\r %02d%%", this.percents);
-                        System.out.flush();
-                    } catch (Exception e) {
-                    }
-        }
-    }
-
     /**
      * This function renders image's pixel color map from the scene included with
-     * the Renderer object - with multi-threading
+     * the Renderer object - with multi-threading. The threads take the tiles of the
+     * image one after another by the traversal order.
      */
     private void renderImageThreaded() {
         final int nX = imageWriter.getNx();
         final int nY = imageWriter.getNy();
-        final Pixel thePixel = new Pixel(nY, nX);
+        final List<Tile> tiles = splitToTiles();
+        final AtomicInteger nextTile = new AtomicInteger(0);
         // Generate threads
         Thread[] threads = new Thread[threadsCount];
         for (int i = threadsCount - 1; i >= 0; --i) {
             threads[i] = new Thread(() -> {
-                Pixel pixel = new Pixel();
-                while (thePixel.nextPixel(pixel))
-                    castRay(nX, nY, pixel.col, pixel.row);
+                ProgressTracker.Worker worker = progress.newWorker();
+                int tile;
+                while ((tile = nextTile.getAndIncrement()) < tiles.size())
+                    renderTile(nX, nY, tiles.get(tile), worker);
             });
         }
         // Start threads
         for (Thread thread : threads)
             thread.start();
 
-        // Print percents on the console
-        thePixel.print();
-
         // Ensure all threads have finished
         for (Thread thread : threads)
             try {
                 thread.join();
-            } catch (Exception e) {
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-
-        if (print)
-            System.out.print("\r100%");
     }
 
     /**
@@ -209,11 +88,11 @@ public class MultiThreadsRender extends RenderBase {
     protected void renderAlg() {
         final int nX = imageWriter.getNx();
         final int nY = imageWriter.getNy();
-        if (threadsCount == 0)
-            for (int i = 0; i < nY; ++i)
-                for (int j = 0; j < nX; ++j)
-                    castRay(nX, nY, j, i);
-        else
+        if (threadsCount == 0) {
+            ProgressTracker.Worker worker = progress.newWorker();
+            for (Tile tile : splitToTiles())
+                renderTile(nX, nY, tile, worker);
+        } else
             renderImageThreaded();
     }
 }
@@ -0,0 +1,98 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writers of uncompressed image files, for fast intermediate outputs - binary
+ * PPM (8 bits RGB) and PFM (32 bit floating point RGB, keeping the full range of
+ * the colors). The pixels are copied to the channel through a buffer of a few
+ * rows, with no encoding at all.
+ */
+public final class NetpbmFiles {
+    // the size of the rows buffer
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private NetpbmFiles() {
+    }
+
+    /**
+     * Write a binary PPM file
+     *
+     * @param out    - the output channel (not closed).
+     * @param rgb    - the pixel colors by rows, packed as 0xRRGGBB.
+     * @param width  - the image width.
+     * @param height - the image height.
+     * @throws IOException
+     */
+    public static void writePpm(WritableByteChannel out, int[] rgb, int width, int height) throws IOException {
+        PngWriter.writeFully(out, header("P6", width, height, "255"));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, 3 * width));
+        for (int i = 0; i < height; ++i) {
+            if (buffer.remaining() < 3 * width)
+                flush(out, buffer);
+            for (int j = i * width; j < (i + 1) * width; ++j) {
+                int pixel = rgb[j];
+                buffer.put((byte) (pixel >> 16)).put((byte) (pixel >> 8)).put((byte) pixel);
+            }
+        }
+        flush(out, buffer);
+    }
+
+    /**
+     * Write a little endian PFM file (the rows are stored from the bottom up, by
+     * the format)
+     *
+     * @param out    - the output channel (not closed).
+     * @param rgb    - the pixel color components by rows (red, green and blue of
+     *               every pixel).
+     * @param width  - the image width.
+     * @param height - the image height.
+     * @throws IOException
+     */
+    public static void writePfm(WritableByteChannel out, float[] rgb, int width, int height) throws IOException {
+        PngWriter.writeFully(out, header("PF", width, height, "-1.0"));
+        int rowSize = 3 * Float.BYTES * width;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, rowSize)).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = height - 1; i >= 0; --i) {
+            if (buffer.remaining() < rowSize)
+                flush(out, buffer);
+            buffer.asFloatBuffer().put(rgb, 3 * i * width, 3 * width);
+            buffer.position(buffer.position() + rowSize);
+        }
+        flush(out, buffer);
+    }
+
+    /**
+     * The text header of a file
+     *
+     * @param magic    - the format mark.
+     * @param width    - the image width.
+     * @param height   - the image height.
+     * @param maxValue - the maximal value (or the scale and byte order of PFM).
+     * @return the header bytes
+     */
+    private static ByteBuffer header(String magic, int width, int height, String maxValue) {
+        return ByteBuffer.wrap(
+                String.format("%s\n%d %d\n%s\n", magic, width, height, maxValue).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Write the buffer content to the channel and clear it
+     *
+     * @param out    - the channel.
+     * @param buffer - the buffer.
+     * @throws IOException
+     */
+    private static void flush(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        PngWriter.writeFully(out, buffer);
+        buffer.clear();
+    }
+}
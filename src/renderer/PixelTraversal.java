@@ -0,0 +1,104 @@
+package renderer;
+
+/**
+ * The order in which the renderers walk over the tiles of the image and over the
+ * pixels inside a tile. Along a space filling curve (Hilbert or Morton)
+ * consecutive work items are close to each other in the image, so consecutive
+ * rays hit the same geometry (and the same BVH nodes) and the caches stay warm.
+ */
+public enum PixelTraversal {
+    /**
+     * Row by row, from left to right
+     */
+    ROW_MAJOR,
+    /**
+     * Along a Morton (Z-order) curve
+     */
+    MORTON,
+    /**
+     * Along a Hilbert curve - every step moves to an adjacent cell
+     */
+    HILBERT;
+
+    /**
+     * Calculate the order of the cells of a grid. For a grid that is not a square
+     * of a power of 2 the curve of the smallest such square that contains the grid
+     * is used and the cells outside the grid are skipped.
+     *
+     * @param width  - amount of columns in the grid.
+     * @param height - amount of rows in the grid.
+     * @return the indices of the cells (row * width + column) by order.
+     */
+    public int[] order(int width, int height) {
+        int[] order = new int[width * height];
+        if (this == ROW_MAJOR) {
+            for (int i = 0; i < order.length; ++i)
+                order[i] = i;
+            return order;
+        }
+
+        int side = Integer.highestOneBit(Math.max(width, height) - 1) << 1;
+        if (side == 0)
+            side = 1;
+        long cells = (long) side * side;
+        int count = 0;
+        int[] xy = new int[2];
+        for (long d = 0; d < cells && count < order.length; ++d) {
+            if (this == MORTON)
+                mortonToXY(d, xy);
+            else
+                hilbertToXY(side, d, xy);
+            if (xy[0] < width && xy[1] < height)
+                order[count++] = xy[1] * width + xy[0];
+        }
+        return order;
+    }
+
+    /**
+     * Convert a distance along a Morton curve to grid coordinates - the bits of the
+     * distance are interleaved bits of the coordinates.
+     *
+     * @param d  - the distance along the curve.
+     * @param xy - array for the result column and row.
+     */
+    private static void mortonToXY(long d, int[] xy) {
+        int x = 0, y = 0;
+        for (int bit = 0; bit < 31; ++bit) {
+            x |= (int) ((d >> (2 * bit)) & 1) << bit;
+            y |= (int) ((d >> (2 * bit + 1)) & 1) << bit;
+        }
+        xy[0] = x;
+        xy[1] = y;
+    }
+
+    /**
+     * Convert a distance along a Hilbert curve to grid coordinates.
+     *
+     * @param side - the curve square side (a power of 2).
+     * @param d    - the distance along the curve.
+     * @param xy   - array for the result column and row.
+     */
+    private static void hilbertToXY(int side, long d, int[] xy) {
+        int x = 0, y = 0;
+        long t = d;
+        for (int s = 1; s < side; s *= 2) {
+            int rx = (int) (1 & (t / 2));
+            int ry = (int) (1 & (t ^ rx));
+            // rotate the quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                int tmp = x;
+                x = y;
+                y = tmp;
+            }
+            x += s * rx;
+            y += s * ry;
+            t /= 4;
+        }
+        xy[0] = x;
+        xy[1] = y;
+    }
+}
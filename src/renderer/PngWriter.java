@@ -0,0 +1,418 @@
+package renderer;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A streaming PNG encoder for 8 bit RGB images - the rows are filtered,
+ * compressed and written out one by one as they are given, so only a single
+ * row (and the previous one, for the filters) is kept in memory for any size of
+ * image.<br/>
+ * A whole image in memory can also be encoded in parallel (see
+ * {@link #writeImage(WritableByteChannel, int[], int, int, int)}) - the image is
+ * cut to horizontal strips that are filtered and compressed as separate raw
+ * deflate streams by several threads, and the streams are joined to the single
+ * zlib stream of the image (every strip but the last ends with a sync flush, so
+ * it ends on a byte boundary, and the Adler-32 checksums of the strips are
+ * combined).
+ */
+public class PngWriter implements Closeable {
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    // the size of the compressed data in an IDAT chunk
+    private static final int CHUNK_SIZE = 1 << 16;
+    // the least amount of rows in a strip of a parallel encoding
+    private static final int MIN_STRIP_ROWS = 16;
+    // the modulus of the Adler-32 checksum
+    private static final int ADLER_BASE = 65521;
+
+    private final DataOutputStream out;
+    private final int width;
+    private final int height;
+    private final DeflaterOutputStream idat;
+    private final Deflater deflater = new Deflater();
+    private int rows = 0;
+
+    // the current and the previous row (filter byte excluded), and the filtered
+    // row of every filter type (with the filter byte)
+    private byte[] row;
+    private byte[] previous;
+    private final byte[][] filtered = new byte[5][];
+
+    /**
+     * Start a PNG stream - the signature and the header are written at once
+     *
+     * @param out    - the output stream (closed with the writer).
+     * @param width  - the image width.
+     * @param height - the image height.
+     * @throws IOException
+     */
+    public PngWriter(OutputStream out, int width, int height) throws IOException {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Illegal image size");
+        this.out = new DataOutputStream(out);
+        this.width = width;
+        this.height = height;
+        row = new byte[3 * width];
+        previous = new byte[3 * width];
+        initFiltered(filtered, width);
+
+        this.out.write(SIGNATURE);
+        writeChunk("IHDR", header(width, height), 0, 13);
+
+        idat = new DeflaterOutputStream(new ChunkStream(), deflater, CHUNK_SIZE);
+    }
+
+    /**
+     * Write the next row of the image
+     *
+     * @param rgb    - the pixel colors, packed as 0xRRGGBB.
+     * @param offset - the index of the first pixel of the row in the array.
+     * @throws IOException
+     */
+    public void writeRow(int[] rgb, int offset) throws IOException {
+        if (rows == height)
+            throw new IllegalStateException("All the rows are written");
+        toBytes(rgb, offset, row);
+        idat.write(filter(row, rows == 0 ? null : previous, filtered));
+        byte[] swap = previous;
+        previous = row;
+        row = swap;
+        ++rows;
+    }
+
+    /**
+     * The data of the header chunk
+     *
+     * @param width  - the image width.
+     * @param height - the image height.
+     * @return the header data
+     */
+    private static byte[] header(int width, int height) {
+        return ByteBuffer.allocate(13) //
+                .putInt(width).putInt(height) //
+                .put((byte) 8) // bit depth
+                .put((byte) 2) // color type - RGB
+                .put((byte) 0) // compression - deflate
+                .put((byte) 0) // filter - adaptive
+                .put((byte) 0) // interlace - none
+                .array();
+    }
+
+    /**
+     * Prepare the filtered rows of every filter type
+     *
+     * @param filtered - array for the rows.
+     * @param width    - the image width.
+     */
+    private static void initFiltered(byte[][] filtered, int width) {
+        for (int f = 0; f < filtered.length; ++f) {
+            filtered[f] = new byte[3 * width + 1];
+            filtered[f][0] = (byte) f;
+        }
+    }
+
+    /**
+     * Unpack a row of pixel colors to bytes
+     *
+     * @param rgb    - the pixel colors, packed as 0xRRGGBB.
+     * @param offset - the index of the first pixel of the row in the array.
+     * @param row    - array for the row bytes.
+     */
+    private static void toBytes(int[] rgb, int offset, byte[] row) {
+        for (int i = offset, b = 0; b < row.length; ++i) {
+            int pixel = rgb[i];
+            row[b++] = (byte) (pixel >> 16);
+            row[b++] = (byte) (pixel >> 8);
+            row[b++] = (byte) pixel;
+        }
+    }
+
+    /**
+     * Filter a row by every filter type, and choose the type with the minimal sum
+     * of absolute differences (the usual heuristic of PNG encoders)
+     *
+     * @param current  - the row.
+     * @param prior    - the previous row, or null for the first row.
+     * @param filtered - the filtered rows of every filter type.
+     * @return the filtered row with its filter type byte
+     */
+    private static byte[] filter(byte[] current, byte[] prior, byte[][] filtered) {
+        long[] sums = new long[5];
+        int n = current.length;
+        byte[] none = filtered[0], sub = filtered[1], up = filtered[2], average = filtered[3], paeth = filtered[4];
+        for (int i = 0; i < n; ++i) {
+            int x = current[i] & 0xFF;
+            int a = i >= 3 ? current[i - 3] & 0xFF : 0;
+            int b = prior == null ? 0 : prior[i] & 0xFF;
+            int c = i >= 3 && prior != null ? prior[i - 3] & 0xFF : 0;
+            none[i + 1] = (byte) x;
+            sub[i + 1] = (byte) (x - a);
+            up[i + 1] = (byte) (x - b);
+            average[i + 1] = (byte) (x - ((a + b) >> 1));
+            paeth[i + 1] = (byte) (x - paethPredictor(a, b, c));
+            for (int f = 0; f < 5; ++f)
+                sums[f] += Math.abs((int) filtered[f][i + 1]);
+        }
+        int best = 0;
+        for (int f = 1; f < 5; ++f)
+            if (sums[f] < sums[best])
+                best = f;
+        return filtered[best];
+    }
+
+    /**
+     * The Paeth predictor of the PNG specification
+     *
+     * @param a - the left byte.
+     * @param b - the upper byte.
+     * @param c - the upper left byte.
+     * @return the predicted byte
+     */
+    private static int paethPredictor(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a), pb = Math.abs(p - b), pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc)
+            return a;
+        return pb <= pc ? b : c;
+    }
+
+    /**
+     * Finish the image - the rest of the compressed data and the end chunk are
+     * written, and the output stream is closed
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rows != height)
+                throw new IllegalStateException("Only " + rows + " of " + height + " rows are written");
+            idat.finish();
+            writeChunk("IEND", new byte[0], 0, 0);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    /**
+     * Encode a whole image in parallel - the image is cut to strips that are
+     * filtered and compressed by several threads, and written to the channel in
+     * order as they are ready
+     *
+     * @param out     - the output channel (not closed).
+     * @param rgb     - the pixel colors by rows, packed as 0xRRGGBB.
+     * @param width   - the image width.
+     * @param height  - the image height.
+     * @param threads - amount of compressing threads.
+     * @throws IOException
+     */
+    public static void writeImage(WritableByteChannel out, int[] rgb, int width, int height, int threads)
+            throws IOException {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Illegal image size");
+        if (threads <= 0)
+            throw new IllegalArgumentException("Compressing threads amount must be positive");
+        // a few strips for every thread, for balancing
+        int stripRows = Math.max(MIN_STRIP_ROWS, (height + 4 * threads - 1) / (4 * threads));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Strip>> strips = new ArrayList<>();
+            for (int from = 0; from < height; from += stripRows) {
+                int first = from, last = Math.min(height, from + stripRows);
+                strips.add(executor.submit(() -> new Strip(rgb, width, first, last, last == height)));
+            }
+
+            writeFully(out, ByteBuffer.wrap(SIGNATURE));
+            writeChunk(out, "IHDR", header(width, height));
+            // the zlib header - deflate with a 32K window and the default level
+            writeChunk(out, "IDAT", new byte[] { 0x78, (byte) 0x9C });
+            long adler = 1;
+            for (Future<Strip> future : strips) {
+                Strip strip = future.get();
+                writeChunk(out, "IDAT", strip.data);
+                adler = combineAdler(adler, strip.adler, strip.length);
+            }
+            writeChunk(out, "IDAT", ByteBuffer.allocate(4).putInt((int) adler).array());
+            writeChunk(out, "IEND", new byte[0]);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted PNG encoding", e);
+        } catch (ExecutionException e) {
+            throw new IOException("PNG strip encoding failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A compressed strip of rows of a parallel encoding
+     */
+    private static class Strip {
+        private final byte[] data;
+        private final long adler;
+        private final long length;
+
+        /**
+         * Filter and compress a strip of rows to a raw deflate stream
+         *
+         * @param rgb   - the pixel colors of the image.
+         * @param width - the image width.
+         * @param from  - the first row of the strip.
+         * @param to    - the row after the last row of the strip.
+         * @param last  - whether it is the last strip (that finishes the stream).
+         */
+        Strip(int[] rgb, int width, int from, int to, boolean last) {
+            byte[][] filtered = new byte[5][];
+            initFiltered(filtered, width);
+            byte[] row = new byte[3 * width];
+            byte[] previous = new byte[3 * width];
+            if (from > 0)
+                toBytes(rgb, (from - 1) * width, previous);
+
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            Adler32 checksum = new Adler32();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[CHUNK_SIZE];
+            try {
+                for (int y = from; y < to; ++y) {
+                    toBytes(rgb, y * width, row);
+                    byte[] filteredRow = filter(row, y == 0 ? null : previous, filtered);
+                    checksum.update(filteredRow);
+                    deflater.setInput(filteredRow);
+                    while (!deflater.needsInput())
+                        out.write(buffer, 0, deflater.deflate(buffer));
+                    byte[] swap = previous;
+                    previous = row;
+                    row = swap;
+                }
+                if (last) {
+                    deflater.finish();
+                    while (!deflater.finished())
+                        out.write(buffer, 0, deflater.deflate(buffer));
+                } else {
+                    // end the strip on a byte boundary, with no end of stream mark
+                    int n;
+                    do {
+                        n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                        out.write(buffer, 0, n);
+                    } while (n == buffer.length);
+                }
+            } finally {
+                deflater.end();
+            }
+            data = out.toByteArray();
+            adler = checksum.getValue();
+            length = (long) (to - from) * (3 * width + 1);
+        }
+    }
+
+    /**
+     * Combine the Adler-32 checksums of two consecutive blocks of data to the
+     * checksum of the whole data (as adler32_combine of zlib)
+     *
+     * @param adler1  - the checksum of the first block.
+     * @param adler2  - the checksum of the second block.
+     * @param length2 - the length of the second block.
+     * @return the checksum of both blocks
+     */
+    static long combineAdler(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = remainder * sum1 % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += (adler1 >>> 16) + (adler2 >>> 16) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE)
+            sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE)
+            sum1 -= ADLER_BASE;
+        if (sum2 >= 2L * ADLER_BASE)
+            sum2 -= 2L * ADLER_BASE;
+        if (sum2 >= ADLER_BASE)
+            sum2 -= ADLER_BASE;
+        return sum1 | sum2 << 16;
+    }
+
+    /**
+     * Write a PNG chunk to a channel
+     *
+     * @param out  - the channel.
+     * @param type - the chunk type.
+     * @param data - the chunk data.
+     * @throws IOException
+     */
+    private static void writeChunk(WritableByteChannel out, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        writeFully(out, ByteBuffer.allocate(8).putInt(data.length).put(typeBytes).flip());
+        writeFully(out, ByteBuffer.wrap(data));
+        writeFully(out, ByteBuffer.allocate(4).putInt((int) crc.getValue()).flip());
+    }
+
+    /**
+     * Write all the remaining bytes of a buffer to a channel
+     *
+     * @param out    - the channel.
+     * @param buffer - the buffer.
+     * @throws IOException
+     */
+    static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            out.write(buffer);
+    }
+
+    /**
+     * Write a PNG chunk
+     *
+     * @param type   - the chunk type.
+     * @param data   - the chunk data.
+     * @param offset - the offset of the data in the array.
+     * @param length - the length of the data.
+     * @throws IOException
+     */
+    private void writeChunk(String type, byte[] data, int offset, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, offset, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, offset, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * The compressed data stream - every block of compressed data is written as an
+     * IDAT chunk
+     */
+    private class ChunkStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0)
+                writeChunk("IDAT", b, off, len);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package renderer;
+
+/**
+ * A callback for following up the progress of a render. The listener is called
+ * periodically from a dedicated sampling thread (never from the rendering
+ * threads), so an implementation may export the data to a metrics system or
+ * block for a while without slowing down the rendering itself.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+    /**
+     * Called with a fresh snapshot of the render progress. The last call of every
+     * render is always made with a finished snapshot ({@link RenderProgress#isDone()}).
+     *
+     * @param progress - the progress snapshot.
+     */
+    void onProgress(RenderProgress progress);
+
+    /**
+     * A listener that prints the progress percentage on the console (the old debug
+     * print).
+     *
+     * @return - a new console printing listener.
+     */
+    static ProgressListener console() {
+        return new ProgressListener() {
+            private int lastPercents = -1;
+
+            @Override
+            public void onProgress(RenderProgress progress) {
+                int percents = progress.getPercents();
+                if (percents != lastPercents) {
+                    lastPercents = percents;
+                    System.out.printf("\r%02d%%", percents);
+                    System.out.flush();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,139 @@
+package renderer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the progress counters of a single render. Every rendering thread
+ * gets its own {@link Worker} counter that only it writes to, so counting costs
+ * the workers no locking or waiting. The counters are read by a separate
+ * sampling thread which reports snapshots to the {@link ProgressListener}.
+ */
+class ProgressTracker {
+    private final long totalPixels;
+    private final List<Worker> workers = new CopyOnWriteArrayList<>();
+    private final LongAdder raysTraced = new LongAdder();
+    private final ProgressListener listener;
+    private final long intervalMillis;
+
+    private long startTime;
+    private ScheduledExecutorService sampler;
+    private ScheduledFuture<?> reports;
+
+    /**
+     * A progress counter of a single rendering thread. It must be updated only by
+     * the thread it belongs to.
+     */
+    static class Worker {
+        private volatile long pixels = 0;
+
+        /**
+         * Count a finished pixel.
+         */
+        void pixelDone() {
+            pixels++; // not atomic, but there is a single writer
+        }
+
+        /**
+         * Count several finished pixels at once.
+         *
+         * @param count - amount of finished pixels.
+         */
+        void pixelsDone(int count) {
+            pixels += count; // not atomic, but there is a single writer
+        }
+    }
+
+    /**
+     * Constructor for the progress tracker of a render.
+     *
+     * @param totalPixels    - amount of pixels the render will produce.
+     * @param listener       - the listener to report to, or null for counting only.
+     * @param intervalMillis - the time between two reports.
+     */
+    ProgressTracker(long totalPixels, ProgressListener listener, long intervalMillis) {
+        this.totalPixels = totalPixels;
+        this.listener = listener;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Create the counter of a new rendering thread.
+     *
+     * @return the new worker counter.
+     */
+    Worker newWorker() {
+        Worker worker = new Worker();
+        workers.add(worker);
+        return worker;
+    }
+
+    /**
+     * Count camera rays that were traced.
+     *
+     * @param rays - amount of rays.
+     */
+    void raysTraced(long rays) {
+        raysTraced.add(rays);
+    }
+
+    /**
+     * Start the clock and the sampling thread (if there is a listener).
+     */
+    void start() {
+        startTime = System.nanoTime();
+        if (listener == null)
+            return;
+        sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "render-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reports = sampler.scheduleAtFixedRate(() -> listener.onProgress(snapshot()), 0, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the periodic reports and report the final snapshot. The final report is
+     * made by the sampling thread too, after the report it may be in the middle of,
+     * so the listener is never called by two threads at once.
+     */
+    void finish() {
+        if (listener == null)
+            return;
+        reports.cancel(false);
+        Future<?> last = sampler.submit(() -> listener.onProgress(snapshot()));
+        sampler.shutdown();
+        try {
+            last.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new IllegalStateException("Progress listener failed", e.getCause());
+        }
+    }
+
+    /**
+     * Read all the counters into a progress snapshot.
+     *
+     * @return the current progress.
+     */
+    RenderProgress snapshot() {
+        Object[] current = workers.toArray();
+        long[] threadPixels = new long[current.length];
+        for (int i = 0; i < current.length; ++i)
+            threadPixels[i] = ((Worker) current[i]).pixels;
+        return new RenderProgress(totalPixels, raysTraced.sum(), System.nanoTime() - startTime, threadPixels);
+    }
+}
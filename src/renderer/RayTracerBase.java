@@ -2,6 +2,7 @@ package renderer;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Serializable;
 import java.nio.file.ProviderMismatchException;
 import java.util.LinkedList;
 import java.util.List;
@@ -20,6 +21,7 @@ import org.xml.sax.SAXException;
 
 import elements.AmbientLight;
 import geometries.*;
+import geometries.Intersectable.GeoPoint;
 import primitives.*;
 import scene.Scene;
 
@@ -29,7 +31,9 @@ import static primitives.Util.getDoublesFromString;
  * A basic requirement for all ray tracing object to follow. represented by
  * abstract class.
  */
-public abstract class RayTracerBase {
+public abstract class RayTracerBase implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private static final String FOLDER_PATH = System.getProperty("user.dir");
 
     protected Scene scene;
@@ -53,6 +57,30 @@ public abstract class RayTracerBase {
      */
     public abstract Color traceRay(Ray ray);
 
+    /**
+     * Trace a ray of a camera sample - the sampling decisions along the ray path
+     * (i.e. the points on area lights) take their points from the sample stream of
+     * the camera sample. Tracers that do not sample ignore the stream.
+     * 
+     * @param ray     - The ray to test the scene with.
+     * @param samples - the sample stream of the camera sample.
+     * @return Color - The appropriate color for the pixel that the ray intersected
+     *         the scene with.
+     */
+    public Color traceRay(Ray ray, SampleStream samples) {
+        return traceRay(ray);
+    }
+
+    /**
+     * A helper function to find all intersection to a ray in the scene.
+     *
+     * @param ray
+     * @return the closest GP or null.
+     */
+    public GeoPoint findClosestIntersection(Ray ray) {
+        return ray.findClosestGeoPoint(scene.geometries.findGeoIntersections(ray));
+    }
+
     /**
      * An XML loader function - read data of scene from XML file and update scene.
      * 
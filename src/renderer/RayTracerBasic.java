@@ -1,11 +1,25 @@
 package renderer;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
 import elements.LightSource;
+import elements.LightTree;
+import geometries.Geometries;
+import geometries.Geometry;
 import geometries.Intersectable.GeoPoint;
 import primitives.Color;
 import primitives.Material;
 import primitives.Point3D;
 import primitives.Ray;
+import primitives.SampleStream;
+import primitives.Sampler;
 import primitives.Vector;
 import scene.Scene;
 
@@ -16,11 +30,32 @@ import static primitives.Util.isZero;
  * A Basic Ray tracing implementation.
  */
 public class RayTracerBasic extends RayTracerBase {
+    private static final long serialVersionUID = 1L;
 
     protected static final double INITIAL_K = 1.0;
     protected static final int MAX_CALC_COLOR_LEVEL = 10;
     protected static final double MIN_CALC_COLOR_K = 0.001;
 
+    private int maxLevel = MAX_CALC_COLOR_LEVEL;
+    private double minK = MIN_CALC_COLOR_K;
+    private double rouletteK = 0;
+    private int rayBudget = 0;
+    private boolean occluderCache = true;
+    private double lightCutoff = 0;
+    private int lightSamples = 0;
+    private double irradianceCell = 0;
+    private int irradianceCapacity = 0;
+    // the diffuse direct lighting cache of matte surfaces (not serialized, every
+    // worker fills its own)
+    private transient IrradianceCache irradianceCache = null;
+    // the light culling hierarchy, built on the first use (and again when the
+    // lights of the scene are changed)
+    private transient volatile LightTree lightTree = null;
+    // the last opaque geometry that blocked each light, for every rendering thread
+    private transient ThreadLocal<Occluders> lastOccluders = new ThreadLocal<>();
+    // the pending secondary rays of the rays tree, for every rendering thread
+    private transient ThreadLocal<RayStack> rayStacks = ThreadLocal.withInitial(RayStack::new);
+
     /**
      * A Constructor for the basic Ray Tracing object.
      * 
@@ -30,6 +65,256 @@ public class RayTracerBasic extends RayTracerBase {
         super(scene);
     }
 
+    /**
+     * Setter for the maximal depth of the rays tree (10 by default) - 1 for no
+     * reflections and refractions at all.
+     * 
+     * @param maxLevel - the maximal amount of rays along a path.
+     * @return RayTracerBasic - self return for builder pattern.
+     */
+    public RayTracerBasic setMaxLevel(int maxLevel) {
+        if (maxLevel < 1)
+            throw new IllegalArgumentException("The maximal level must be at least 1");
+        this.maxLevel = maxLevel;
+        return this;
+    }
+
+    /**
+     * Setter for the minimal accumulated attenuation (k) of a ray (0.001 by
+     * default) - reflected and refracted rays with less are not traced, and lights
+     * with less are not calculated.
+     * 
+     * @param minK - the minimal k.
+     * @return RayTracerBasic - self return for builder pattern.
+     */
+    public RayTracerBasic setMinK(double minK) {
+        if (minK < 0 || minK >= 1)
+            throw new IllegalArgumentException("The minimal k must be in [0, 1)");
+        this.minK = minK;
+        return this;
+    }
+
+    /**
+     * @return the minimal accumulated attenuation (k) of a ray
+     */
+    protected double getMinK() {
+        return minK;
+    }
+
+    /**
+     * Setter for the Russian roulette termination of the reflected and refracted
+     * rays (0 - off by default). A secondary ray with accumulated attenuation k
+     * below the threshold is traced with probability k / threshold, and its color
+     * is weighted by the inverse of that probability, so the weak branches of the
+     * rays tree are cut without a bias (instead of the hard cut at the minimal k,
+     * which is not applied to them). The random decisions take their numbers from
+     * the sample stream of the camera sample.
+     * 
+     * @param rouletteK - the accumulated attenuation threshold, in (0, 1], or 0 for
+     *                  no Russian roulette.
+     * @return RayTracerBasic - self return for builder pattern.
+     */
+    public RayTracerBasic setRussianRoulette(double rouletteK) {
+        if (rouletteK < 0 || rouletteK > 1)
+            throw new IllegalArgumentException("The Russian roulette threshold must be in [0, 1]");
+        this.rouletteK = rouletteK;
+        return this;
+    }
+
+    /**
+     * Setter for the budget of reflected and refracted rays of a pixel (0 -
+     * unlimited by default). The budget is shared by the camera samples of the
+     * pixel (see {@link SampleStream#getBudget()}): when they have spawned that
+     * many secondary rays together, the rest of their rays trees is not traced, so
+     * the cost of a pixel is bounded (i.e. in scenes of mirrors facing each
+     * other). A camera ray that is not a sample of a single pixel (i.e. of adaptive
+     * super sampling, that shares its samples with the neighbour pixels) has a
+     * budget of its own.
+     * 
+     * @param rayBudget - the maximal amount of secondary rays for a pixel, or 0 for
+     *                  no limit.
+     * @return RayTracerBasic - self return for builder pattern.
+     */
+    public RayTracerBasic setRayBudget(int rayBudget) {
+        if (rayBudget < 0)
+            throw new IllegalArgumentException("Negative rays budget is illegal");
+        this.rayBudget = rayBudget;
+        return this;
+    }
+
+    /**
+     * Setter for the shadow occluder cache (on by default). Adjacent shading points
+     * are usually blocked from a light by the same geometry, so the last opaque
+     * geometry that blocked each light (per thread) is tested first, and the whole
+     * scene is queried only when it does not block the shadow ray. The cache
+     * starts over when the scene shapes are replaced or shapes are added (see
+     * {@link Geometries#getVersion()}), so the result is exactly the same with or
+     * without the cache. A geometry that is changed in place is not noticed - set
+     * the cache again (which resets it) after such a change.
+     * 
+     * @param occluderCache - whether the shadow rays test the last occluder first.
+     * @return RayTracerBasic - self return for builder pattern.
+     */
+    public RayTracerBasic setOccluderCache(boolean occluderCache) {
+        this.occluderCache = occluderCache;
+        lastOccluders = new ThreadLocal<>();
+        return this;
+    }
+
+    /**
+     * Setter for the light culling cutoff (0 by default). A light is evaluated at a
+     * shading point only when its intensity there (the strongest color component,
+     * after the attenuation and the spot light cone) is at least the cutoff, so no
+     * shadow rays are cast toward negligible lights. The lights are kept in a
+     * bounding volume hierarchy by their influence spheres, so in scenes with
+     * hundreds of lights a point visits only the few lights around it. With a
+     * cutoff of 0 a light is culled only where it is black, i.e. at the points
+     * behind a spot light (and at the light position itself).
+     * 
+     * @param lightCutoff - the negligible light intensity (in color units, i.e. 0.5
+     *                    is less than a half of a color level).
+     * @return RayTracerBasic - self return for builder pattern.
+     */
+    public RayTracerBasic setLightCutoff(double lightCutoff) {
+        if (lightCutoff < 0)
+            throw new IllegalArgumentException("Negative light cutoff is illegal");
+        this.lightCutoff = lightCutoff;
+        return this;
+    }
+
+    /**
+     * Find the lights that are not negligible at a point
+     * 
+     * @param point - the shading point.
+     * @return the influencing lights, in the order of the scene lights
+     */
+    protected List<LightSource> influencingLights(Point3D point) {
+        return lightTree().influencing(point);
+    }
+
+    /**
+     * @return the lights hierarchy of the scene lights
+     */
+    private LightTree lightTree() {
+        LightTree tree = lightTree;
+        if (tree == null || !tree.isOf(scene.lights, lightCutoff)) {
+            tree = new LightTree(scene.lights, lightCutoff);
+            lightTree = tree;
+        }
+        return tree;
+    }
+
+    /**
+     * Setter for the stochastic many lights sampling (0 - off by default). When
+     * the scene has more lights than the amount of light samples, every shading
+     * point evaluates only that amount of lights, chosen at random by their
+     * estimated intensity at the point (the light power, the distance attenuation
+     * and the spot light falloff) through the lights hierarchy, and every chosen
+     * light is weighted by the inverse of its probability. The cost of a point
+     * stays the same for any amount of lights, and the result is unbiased (the
+     * noise is averaged by the pixel samples). Lights with no position
+     * (directional lights) are always evaluated.
+     * 
+     * @param lightSamples - the amount of lights to sample at every point, or 0 to
+     *                     evaluate all the lights.
+     * @return RayTracerBasic - self return for builder pattern.
+     */
+    public RayTracerBasic setLightSamples(int lightSamples) {
+        if (lightSamples < 0)
+            throw new IllegalArgumentException("Negative amount of light samples is illegal");
+        this.lightSamples = lightSamples;
+        return this;
+    }
+
+    /**
+     * Setter for the irradiance cache of the matte surfaces (off by default). The
+     * diffuse direct lighting of the points of surfaces with no specular factor
+     * (kS = 0) is interpolated from a lattice of world space cells, whose corners
+     * are calculated once (with their shadow rays) and kept in a hash table shared
+     * by the rendering threads, so close points - neighbour pixels, the samples of
+     * a pixel and reflected rays that hit the same area - share the shadow rays.
+     * The lighting is smoothed over the cell size (i.e. hard shadow edges are
+     * blurred by about a cell), so the cells should be about the size of a pixel
+     * on the surfaces. The cache is kept across renders of this ray tracer - set
+     * it again after the geometries or the lights of the scene are changed.
+     * 
+     * @param cellSize - the edge length of the lattice cells, or 0 for no cache.
+     * @param capacity - the amount of corners kept (a newer corner with the same
+     *                 hash evicts an older one).
+     * @return RayTracerBasic - self return for builder pattern.
+     */
+    public RayTracerBasic setIrradianceCache(double cellSize, int capacity) {
+        if (cellSize < 0)
+            throw new IllegalArgumentException("Negative cell size is illegal");
+        irradianceCell = cellSize;
+        irradianceCapacity = capacity;
+        irradianceCache = cellSize == 0 ? null : new IrradianceCache(cellSize, capacity);
+        return this;
+    }
+
+    /**
+     * The last occluders cache of a thread, valid for a version of the scene
+     * shapes only. The shapes composite is referenced weakly, so a thread does
+     * not keep an old scene reachable after its render.
+     */
+    private static final class Occluders {
+        private final WeakReference<Geometries> geometries;
+        private final long version;
+        private final Map<LightSource, Geometry> lights = new IdentityHashMap<>();
+
+        /**
+         * Constructor for an empty cache
+         * 
+         * @param geometries - the scene shapes.
+         * @param version    - the version of the shapes.
+         */
+        private Occluders(Geometries geometries, long version) {
+            this.geometries = new WeakReference<>(geometries);
+            this.version = version;
+        }
+
+        /**
+         * @param geometries - the scene shapes.
+         * @param version    - the version of the shapes.
+         * @return true if the cache was filled for these shapes in this version
+         */
+        private boolean isOf(Geometries geometries, long version) {
+            return this.version == version && this.geometries.get() == geometries;
+        }
+    }
+
+    /**
+     * Get the last occluders cache of the current thread, a new one when the
+     * scene shapes were replaced or changed since it was filled
+     * 
+     * @return the last occluder of each light
+     */
+    private Map<LightSource, Geometry> lastOccluders() {
+        long version = scene.geometries.getVersion();
+        Occluders occluders = lastOccluders.get();
+        if (occluders == null || !occluders.isOf(scene.geometries, version)) {
+            occluders = new Occluders(scene.geometries, version);
+            lastOccluders.set(occluders);
+        }
+        return occluders.lights;
+    }
+
+    /**
+     * Restore the (not serialized) last occluders cache, rays stacks and
+     * irradiance cache after deserialization
+     * 
+     * @param in - the object input stream.
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        lastOccluders = new ThreadLocal<>();
+        rayStacks = ThreadLocal.withInitial(RayStack::new);
+        if (irradianceCell != 0)
+            irradianceCache = new IrradianceCache(irradianceCell, irradianceCapacity);
+    }
+
     /**
      * Calculate what color the intersection of Ray with scene should be.
      * 
@@ -39,57 +324,174 @@ public class RayTracerBasic extends RayTracerBase {
      */
     @Override
     public Color traceRay(Ray ray) {
+        return traceRay(ray, SampleStream.of(Sampler.SOBOL, ray));
+    }
+
+    @Override
+    public Color traceRay(Ray ray, SampleStream samples) {
         GeoPoint closest = findClosestIntersection(ray);
-        return closest == null ? scene.background : calcColor(closest, ray);
+        return closest == null ? scene.background : calcColor(closest, ray, samples);
     }
 
     /**
-     * Calculate what color the point3D has according to the scene.
+     * Calculate what color the point3D has according to the scene. The rays tree
+     * is evaluated iteratively: the color of a ray is the sum of the emission and
+     * the local effects of all the points of its tree, every one scaled by the
+     * accumulated attenuation (k) of its path, so the reflected and refracted rays
+     * are pushed to a stack of pending rays (with their k and level) instead of
+     * being traced recursively.
      * 
      * @param closest Point3D - A point in the scene or null.
+     * @param samples - the sample stream of the camera sample.
      * @return Color - The Color of the point in the scene or the background color
      *         if param is null.
      */
-    private Color calcColor(GeoPoint closest, Ray ray) {
-        return calcColor(closest, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K) //
-                .add(scene.ambientLight.getIntensity());
+    private Color calcColor(GeoPoint closest, Ray ray, SampleStream samples) {
+        RayStack stack = rayStacks.get();
+        int base = stack.size;
+        Color color = scene.ambientLight.getIntensity();
+        GeoPoint point = closest;
+        int level = maxLevel;
+        double k = INITIAL_K;
+        while (point != null) {
+            color = color.add(calcColor(point, ray, k, samples));
+            if (level > 1)
+                pushSecondaryRays(stack, point, ray, level, k, samples);
+
+            // the next pending ray that hits the scene
+            point = null;
+            while (point == null && stack.size > base) {
+                --stack.size;
+                ray = stack.rays[stack.size];
+                level = stack.levels[stack.size];
+                k = stack.ks[stack.size];
+                stack.rays[stack.size] = null;
+                point = findClosestIntersection(ray);
+            }
+        }
+        return color;
+    }
+
+    /**
+     * Calculate the color of a single point of the rays tree - without its
+     * reflections and refractions.
+     * 
+     * @param point   - the point.
+     * @param ray     - the ray that hits the point.
+     * @param k       - the accumulated attenuation of the ray path.
+     * @param samples - the sample stream of the camera sample.
+     * @return the color of the point, scaled by the attenuation
+     */
+    private Color calcColor(GeoPoint point, Ray ray, double k, SampleStream samples) {
+        Color color = point.geometry.getEmission()
+                // add calculated light contribution from all light sources)
+                .add(calcLocalEffects(point, ray, k, samples));
+        return k == INITIAL_K ? color : color.scale(k);
     }
 
     /**
-     * A helper function to reduce clutter in the calcColor function.
+     * A helper function to reduce clutter in the calcColor function. The
+     * lighting of matte surfaces is taken from the irradiance cache, when it is
+     * on (the corners of the cache are calculated as seen by a camera ray with
+     * samples of their own, so they may be shared by any ray).
      * 
      * @param intersection GeoPoint - The intersection between point and shape
      *                     GeoPoint represent.
      * @param ray          Ray - The ray we want to test with the intersection.
+     * @param samples      - the sample stream of the camera sample.
      * @return Color - The Color of the point in the scene according to all lights
      *         effects in the scene.
      */
-    protected Color calcLocalEffects(GeoPoint intersection, Ray ray, double k) {
+    protected Color calcLocalEffects(GeoPoint intersection, Ray ray, double k, SampleStream samples) {
         Vector v = ray.getDir();
         Vector n = intersection.geometry.getNormal(intersection.point);
         double nv = alignZero(n.dotProduct(v));
         if (isZero(nv))
             return Color.BLACK;
+        IrradianceCache cache = irradianceCache;
         Material material = intersection.geometry.getMaterial();
-        int nShininess = material.nShininess;
-        double kd = material.kD;
-        double ks = material.kS;
+        if (cache != null && material.kS == 0) {
+            if (material.kD == 0)
+                return Color.BLACK;
+            Point3D head = (nv > 0 ? n.scale(-1) : n).getHead();
+            Color irradiance = cache.get(intersection, head.getX(), head.getY(), head.getZ(),
+                    (point, cornerRay, seed) -> calcDirectLighting(point, cornerRay, INITIAL_K,
+                            new SampleStream(samples.getSampler(), seed, 0, 1)).scale(1 / material.kD));
+            // the point is lit directly where the geometry has no corners around it
+            if (irradiance != null)
+                return irradiance.scale(material.kD);
+        }
+        return calcDirectLighting(intersection, ray, k, samples);
+    }
+
+    /**
+     * Calculate the direct lighting of all the lights of the scene at a point
+     * (without a cache).
+     * 
+     * @param intersection - the point.
+     * @param ray          - the ray toward the point.
+     * @param k            - the accumulated attenuation of the ray path.
+     * @param samples      - the sample stream of the camera sample.
+     * @return the light effects at the point
+     */
+    private Color calcDirectLighting(GeoPoint intersection, Ray ray, double k, SampleStream samples) {
+        Vector v = ray.getDir();
+        Vector n = intersection.geometry.getNormal(intersection.point);
+        double nv = alignZero(n.dotProduct(v));
+        if (isZero(nv))
+            return Color.BLACK;
         Color color = Color.BLACK;
-        for (LightSource lightSource : scene.lights) {
-            Vector l = lightSource.getL(intersection.point);
-            double nl = alignZero(n.dotProduct(l));
-            if (nl * nv > 0) { // sign(nl) == sign(nv)
-                double ktr = transparency(lightSource, l, n, intersection.point);
-                if (ktr * k > MIN_CALC_COLOR_K) {
-                    Color lightIntensity = lightSource.getIntensity(intersection.point).scale(ktr);
-                    color = color.add(calcDiffusive(kd, lightIntensity, nl),
-                            calcSpecular(ks, l, n, v, nShininess, lightIntensity, nl));
-                }
+        if (lightSamples == 0 || scene.lights.size() <= lightSamples) {
+            for (LightSource lightSource : influencingLights(intersection.point))
+                color = color.add(calcLightEffect(intersection, lightSource, v, n, nv, k, samples));
+            return color;
+        }
+
+        LightTree tree = lightTree();
+        for (LightSource lightSource : tree.getUnbounded())
+            if (lightSource.isInfluencing(intersection.point, lightCutoff))
+                color = color.add(calcLightEffect(intersection, lightSource, v, n, nv, k, samples));
+        double[][] points = samples.next(lightSamples);
+        double[] probability = new double[1];
+        for (double[] point : points) {
+            LightSource lightSource = tree.sample(intersection.point, point[0], probability);
+            if (lightSource != null && lightSource.isInfluencing(intersection.point, lightCutoff)) {
+                double weight = 1 / (probability[0] * lightSamples);
+                color = color.add(calcLightEffect(intersection, lightSource, v, n, nv, k * weight, samples) //
+                        .scale(weight));
             }
         }
         return color;
     }
 
+    /**
+     * Calculate the diffusive and specular effect of a single light on a point.
+     * 
+     * @param intersection - the intersection point.
+     * @param lightSource  - the light source.
+     * @param v            - the direction of the ray toward the point.
+     * @param n            - the normal at the point.
+     * @param nv           - the dot product of the normal and the ray direction.
+     * @param k            - the current k (color scalar) of the point.
+     * @param samples      - the sample stream of the camera sample.
+     * @return the light effect
+     */
+    protected Color calcLightEffect(GeoPoint intersection, LightSource lightSource, Vector v, Vector n, double nv,
+            double k, SampleStream samples) {
+        Vector l = lightSource.getL(intersection.point);
+        double nl = alignZero(n.dotProduct(l));
+        if (nl * nv > 0) { // sign(nl) == sign(nv)
+            double ktr = transparency(lightSource, l, n, intersection.point);
+            if (ktr * k > minK) {
+                Material material = intersection.geometry.getMaterial();
+                Color lightIntensity = lightSource.getIntensity(intersection.point).scale(ktr);
+                return calcDiffusive(material.kD, lightIntensity, nl)
+                        .add(calcSpecular(material.kS, l, n, v, material.nShininess, lightIntensity, nl));
+            }
+        }
+        return Color.BLACK;
+    }
+
     /**
      * A helper function to reduce clutter in calcLocalEffects function.
      * 
@@ -133,61 +535,87 @@ public class RayTracerBasic extends RayTracerBase {
     }
 
     /**
-     * A helper function to find all intersection to a ray in the scene.
-     *
-     * @param ray
-     * @return the closest GP or null.
-     */
-    public GeoPoint findClosestIntersection(Ray ray) {
-        return ray.findClosestGeoPoint(scene.geometries.findGeoIntersections(ray));
-    }
-
-    /**
-     * find all light effects on the ray in teh scene in order to calculate the
-     * proper color we should give back.
+     * Push the reflected and the refracted rays of a point of the rays tree to the
+     * pending rays.
      * 
+     * @param stack   - the pending rays.
      * @param closest - The GeoPoint we want to check in for the color.
      * @param ray     - The ray we using to look at the GeoPoint given.
-     * @param level   - ...
-     * @param k       - ...
-     * @return Color - The Color the point should be in the scene.
+     * @param level   - the level of the point.
+     * @param k       - the accumulated attenuation of the point.
+     * @param samples - the sample stream of the camera sample.
      */
-    private Color calcColor(GeoPoint closest, Ray ray, int level, double k) {
-        Color color = closest.geometry.getEmission()
-                // add calculated light contribution from all light sources)
-                .add(calcLocalEffects(closest, ray, k));
-        return 1 == level ? color : color.add(calcGlobalEffects(closest, ray, level, k));
+    private void pushSecondaryRays(RayStack stack, GeoPoint closest, Ray ray, int level, double k,
+            SampleStream samples) {
+        Material material = closest.geometry.getMaterial();
+        double kr = material.kR, kt = material.kT;
+        if (kr <= 0 && kt <= 0)
+            return;
+        var n = closest.geometry.getNormal(closest.point);
+        // the refracted ray is pushed first, so the reflected one is traced first
+        if (kt > 0)
+            pushSecondaryRay(stack, () -> constructRefractedRay(n, closest.point, ray), kt, level, k, samples);
+        if (kr > 0)
+            pushSecondaryRay(stack, () -> constructReflectedRay(n, closest.point, ray), kr, level, k, samples);
     }
 
     /**
+     * Push a reflected or refracted ray to the pending rays, if it is not cut (by
+     * the minimal k, by the Russian roulette or by the rays budget)
      * 
-     * @param closest - The GeoPoint we want to check in for the color.
-     * @param ray     - The ray we using to look at the GeoPoint given.
-     * @param level   - ...
-     * @param k       - ...
-     * @return Color - The Color of light the Scene affect our GeoPoint.
+     * @param stack        - the pending rays.
+     * @param secondaryRay - the construction of the secondary ray.
+     * @param kx           - the reflection or the refraction factor.
+     * @param level        - the level of the current point.
+     * @param k            - the accumulated attenuation of the current point.
+     * @param samples      - the sample stream of the camera sample (with the rays
+     *                     budget of its pixel).
      */
-    private Color calcGlobalEffects(GeoPoint closest, Ray ray, int level, double k) {
-        Color color = Color.BLACK;
-        Material material = closest.geometry.getMaterial();
-        double kr = material.kR, kkr = k * kr;
-        var n = closest.geometry.getNormal(closest.point);
-        if (kkr > MIN_CALC_COLOR_K) {
-            Ray reflectedRay = constructReflectedRay(n, closest.point, ray);
-            GeoPoint reflectedPoint = findClosestIntersection(reflectedRay);
-            if (reflectedPoint != null) {
-                color = color.add(calcColor(reflectedPoint, reflectedRay, level - 1, kkr).scale(kr));
-            }
+    private void pushSecondaryRay(RayStack stack, Supplier<Ray> secondaryRay, double kx, int level, double k,
+            SampleStream samples) {
+        double kkx = k * kx;
+        if (rouletteK > 0 && kkx < rouletteK) {
+            // trace with probability kkx / rouletteK, weighted by the inverse
+            double survival = kkx / rouletteK;
+            if (samples.next()[0] >= survival)
+                return;
+            kkx = rouletteK;
+        } else if (kkx <= minK) {
+            return;
         }
-        double kt = material.kT, kkt = k * kt;
-        if (kkt > MIN_CALC_COLOR_K) {
-            Ray refractedRay = constructRefractedRay(n, closest.point, ray);
-            GeoPoint refractedPoint = findClosestIntersection(refractedRay);
-            if (refractedPoint != null) {
-                color = color.add(calcColor(refractedPoint, refractedRay, level - 1, kkt).scale(kt));
+        if (rayBudget != 0 && !samples.getBudget().spend(rayBudget))
+            return;
+        stack.push(secondaryRay.get(), level - 1, kkx);
+    }
+
+    /**
+     * A reusable stack of pending rays of the rays tree, with their levels and
+     * accumulated attenuations
+     */
+    private static class RayStack {
+        private Ray[] rays = new Ray[16];
+        private int[] levels = new int[16];
+        private double[] ks = new double[16];
+        private int size = 0;
+
+        /**
+         * Push a pending ray
+         * 
+         * @param ray   - the ray.
+         * @param level - the level of the ray.
+         * @param k     - the accumulated attenuation of the ray path.
+         */
+        void push(Ray ray, int level, double k) {
+            if (size == rays.length) {
+                rays = Arrays.copyOf(rays, 2 * size);
+                levels = Arrays.copyOf(levels, 2 * size);
+                ks = Arrays.copyOf(ks, 2 * size);
             }
+            rays[size] = ray;
+            levels[size] = level;
+            ks[size] = k;
+            ++size;
         }
-        return color;
     }
 
     /**
@@ -231,6 +659,14 @@ public class RayTracerBasic extends RayTracerBase {
         Vector lightDirection = l.scale(-1);
 
         Ray shadowRay = new Ray(point, lightDirection, n);
+        var lightDistance = ls.getDistance(point);
+
+        Map<LightSource, Geometry> occluders = occluderCache ? lastOccluders() : null;
+        if (occluders != null) {
+            Geometry occluder = occluders.get(ls);
+            if (occluder != null && isBlocking(occluder.findGeoIntersections(shadowRay), point, lightDistance))
+                return 0.0;
+        }
 
         var intersections = scene.geometries.findGeoIntersections(shadowRay);
 
@@ -238,15 +674,36 @@ public class RayTracerBasic extends RayTracerBase {
         if (intersections == null)
             return ktr;
 
-        var lightDistance = ls.getDistance(point);
-
         for (GeoPoint gp : intersections) {
             if (alignZero(gp.point.distance(point) - lightDistance) <= 0) {
                 ktr *= gp.geometry.getMaterial().kT;
-                if (ktr < MIN_CALC_COLOR_K)
+                if (ktr < MIN_CALC_COLOR_K) {
+                    if (occluders != null && gp.geometry.getMaterial().kT < MIN_CALC_COLOR_K)
+                        occluders.put(ls, gp.geometry);
                     return 0.0;
+                }
             }
         }
         return ktr;
     }
+
+    /**
+     * Check whether an opaque geometry blocks the light from a point
+     * 
+     * @param intersections - the intersections of the geometry with the shadow ray
+     *                      (or null).
+     * @param point         - the point on the shape.
+     * @param lightDistance - the distance from the point to the light.
+     * @return true if the geometry is opaque and intersects the shadow ray before
+     *         the light
+     */
+    private boolean isBlocking(List<GeoPoint> intersections, Point3D point, double lightDistance) {
+        if (intersections == null)
+            return false;
+        for (GeoPoint gp : intersections)
+            if (gp.geometry.getMaterial().kT < MIN_CALC_COLOR_K
+                    && alignZero(gp.point.distance(point) - lightDistance) <= 0)
+                return true;
+        return false;
+    }
 }
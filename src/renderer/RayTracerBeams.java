@@ -2,11 +2,16 @@ package renderer;
 
 import static primitives.Util.*;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
 import elements.LightSource;
 import geometries.Intersectable.GeoPoint;
 import primitives.Color;
 import primitives.Material;
+import primitives.Point3D;
 import primitives.Ray;
+import primitives.SampleStream;
 import primitives.Vector;
 import scene.Scene;
 
@@ -14,7 +19,13 @@ import scene.Scene;
  * A Ray tracing class with enhancement capabilities of soft shadows.
  */
 public class RayTracerBeams extends RayTracerBasic {
+    private static final long serialVersionUID = 1L;
+
     private int numOfShadowRays = 1;
+    private boolean adaptiveShadows = false;
+    // the coordinates of the light points of the shadow rays, for every rendering
+    // thread
+    private transient ThreadLocal<double[]> lightPoints = ThreadLocal.withInitial(() -> new double[0]);
 
     /**
      * Constructor for our advanced RayTracer with beams.
@@ -26,66 +37,121 @@ public class RayTracerBeams extends RayTracerBasic {
     }
 
     /**
-     * calculate the local effect on point's color, if needed then soft shadows
-     * improvement is used.
+     * calculate the effect of a light on point's color, if needed then soft
+     * shadows improvement is used.
      * 
      * @param intersection - the geopoint we want to check color effects.
-     * @param ray          - the camera ray toward the scene.
+     * @param lightSource  - the light source.
+     * @param v            - the direction of the camera ray toward the point.
+     * @param n            - the normal at the point.
+     * @param nv           - the dot product of the normal and the ray direction.
      * @param k            - the current k (color scalar) we check
-     * @return - A Color after all local effects are included.
+     * @param samples      - the sample stream of the camera sample.
+     * @return - A Color of the light effect.
      */
     @Override
-    protected Color calcLocalEffects(GeoPoint intersection, Ray ray, double k) {
+    protected Color calcLightEffect(GeoPoint intersection, LightSource lightSource, Vector v, Vector n, double nv,
+            double k, SampleStream samples) {
         if (numOfShadowRays == 1) { // if we do not have a number of rays aka no advance ray tracing so call
             // rayTracerBasic function.
-            return super.calcLocalEffects(intersection, ray, k);
+            return super.calcLightEffect(intersection, lightSource, v, n, nv, k, samples);
         }
-        Vector v = ray.getDir();
-        Vector n = intersection.geometry.getNormal(intersection.point);
-        double nv = alignZero(n.dotProduct(v));
-        if (nv == 0)
-            return Color.BLACK;
-        Material material = intersection.geometry.getMaterial();
-        int nShininess = material.nShininess;
-        double kd = material.kD;
-        double ks = material.kS;
-        Color color = Color.BLACK;
-        for (LightSource lightSource : scene.lights) {
-            Vector l = lightSource.getL(intersection.point);
-            double ktr = calcKtr(intersection, lightSource, nv, l, n);
-            if (ktr * k > MIN_CALC_COLOR_K) {
-                double nl = alignZero(n.dotProduct(l));
-                Color lightIntensity = lightSource.getIntensity(intersection.point).scale(ktr);
-                color = color.add(calcDiffusive(kd, lightIntensity, nl),
-                        calcSpecular(ks, l, n, v, nShininess, lightIntensity, nl));
-            }
+        Vector l = lightSource.getL(intersection.point);
+        double ktr = calcKtr(intersection, lightSource, nv, l, n, samples);
+        if (ktr * k > getMinK()) {
+            Material material = intersection.geometry.getMaterial();
+            double nl = alignZero(n.dotProduct(l));
+            Color lightIntensity = lightSource.getIntensity(intersection.point).scale(ktr);
+            return calcDiffusive(material.kD, lightIntensity, nl)
+                    .add(calcSpecular(material.kS, l, n, v, material.nShininess, lightIntensity, nl));
         }
-        return color;
+        return Color.BLACK;
     }
 
     /**
-     * A function to calc the average ktr for point on shape.
+     * A function to calc the average ktr for point on shape. In adaptive mode the
+     * center and the corners of the light area are probed first, and when they
+     * all agree (the point is fully lit or fully in the umbra) their ktr is taken
+     * without the rest of the shadow rays.
      * 
      * @param intersection - the geopoint we want to check.
      * @param lightSource  - the light source that effecting the geopoint
+     * @param samples      - the sample stream of the camera sample.
      * @return - average ktr
      */
-    private double calcKtr(GeoPoint intersection, LightSource lightSource, double nv, Vector baseL, Vector n) {
-        // if no soft shadows.
-        // if (numOfShadowRays == 1) {
-        // return transparency(lightSource, baseL, n, intersection.point);
-        // } - un needd anymore it's being handle in calcLocalEffect
-        // else soft shadows.
+    private double calcKtr(GeoPoint intersection, LightSource lightSource, double nv, Vector baseL, Vector n,
+            SampleStream samples) {
+        if (adaptiveShadows) {
+            var probes = lightSource.calculateProbePoints(baseL);
+            if (probes.size() > 1) {
+                double probeKtr = pointKtr(intersection, lightSource, probes.get(0), nv, n);
+                boolean agree = true;
+                for (int i = 1; agree && i < probes.size(); ++i)
+                    agree = isZero(pointKtr(intersection, lightSource, probes.get(i), nv, n) - probeKtr);
+                if (agree) {
+                    samples.skip(); // the light samples dimension is not used this time
+                    return probeKtr;
+                }
+            }
+        }
+
+        double[] coordinates = lightPoints.get();
+        if (coordinates.length < 3 * numOfShadowRays) {
+            coordinates = new double[3 * numOfShadowRays];
+            lightPoints.set(coordinates);
+        }
+        int count = lightSource.calculatePoints(baseL, numOfShadowRays, samples, coordinates);
+        if (count == 1) { // a light with no area
+            return pointKtr(intersection, lightSource, lightSource.getL(intersection.point), nv, n);
+        }
+        Point3D p = intersection.point;
         double sumOfKtr = 0;
+        for (int i = 0; i < 3 * count; i += 3) {
+            Vector l = new Vector(p.getX() - coordinates[i], p.getY() - coordinates[i + 1],
+                    p.getZ() - coordinates[i + 2]).normalize();
+            sumOfKtr += pointKtr(intersection, lightSource, l, nv, n);
+        }
+        return alignZero(sumOfKtr / count);
+    }
 
-        var points = lightSource.calculatePoints(baseL, numOfShadowRays);
-        for (var point : points) {
-            Vector l = lightSource.getDirection(point, intersection.point);
-            if (alignZero(n.dotProduct(l)) * nv > 0) {
-                sumOfKtr += transparency(lightSource, l, n, intersection.point);
-            }
+    /**
+     * A function to calc the ktr of a single point of the light source.
+     * 
+     * @param intersection - the geopoint we want to check.
+     * @param lightSource  - the light source that effecting the geopoint
+     * @param point        - the point of the light source.
+     * @return - the ktr, 0 if the light point is behind the surface
+     */
+    private double pointKtr(GeoPoint intersection, LightSource lightSource, Point3D point, double nv, Vector n) {
+        return pointKtr(intersection, lightSource, lightSource.getDirection(point, intersection.point), nv, n);
+    }
+
+    /**
+     * A function to calc the ktr of a single direction from the light source.
+     * 
+     * @param intersection - the geopoint we want to check.
+     * @param lightSource  - the light source that effecting the geopoint
+     * @param l            - the direction from the point of the light source to
+     *                     the geopoint.
+     * @return - the ktr, 0 if the light point is behind the surface
+     */
+    private double pointKtr(GeoPoint intersection, LightSource lightSource, Vector l, double nv, Vector n) {
+        if (alignZero(n.dotProduct(l)) * nv > 0) {
+            return transparency(lightSource, l, n, intersection.point);
         }
-        return alignZero(sumOfKtr / points.size());
+        return 0;
+    }
+
+    /**
+     * Restore the (not serialized) light points buffers after deserialization
+     * 
+     * @param in - the object input stream.
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        lightPoints = ThreadLocal.withInitial(() -> new double[0]);
     }
 
     /**
@@ -102,4 +168,17 @@ public class RayTracerBeams extends RayTracerBasic {
         this.numOfShadowRays = numOfRays;
         return this;
     }
+
+    /**
+     * A setter for adaptive soft shadows - the full amount of shadow rays is taken
+     * only where the probe rays to the center and the corners of the light area
+     * disagree (in the penumbra).
+     * 
+     * @param adaptive - whether the soft shadows are adaptive.
+     * @return - self return for builder pattern.
+     */
+    public RayTracerBeams setAdaptiveShadows(boolean adaptive) {
+        this.adaptiveShadows = adaptive;
+        return this;
+    }
 }
@@ -12,16 +12,16 @@ public class Render extends RenderBase {
 
     /**
      * render Camera point of view image from the scene using the camera view panel
-     * and ray tracing from to the scene.
+     * and ray tracing from to the scene. The tiles and their pixels are rendered by
+     * the traversal order.
      */
     @Override
     protected void renderAlg() {
         int ny = imageWriter.getNy();
         int nx = imageWriter.getNx();
-        for (int i = 0; i < ny; i++) {
-            for (int j = 0; j < nx; j++) {
-                castRay(nx, ny, j, i);
-            }
+        ProgressTracker.Worker worker = progress.newWorker();
+        for (Tile tile : splitToTiles()) {
+            renderTile(nx, ny, tile, worker);
         }
     }
 
@@ -1,21 +1,41 @@
 package renderer;
 
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import elements.Camera;
+import geometries.Intersectable.GeoPoint;
 import primitives.Color;
-import primitives.Point3D;
 import primitives.Ray;
+import primitives.SampleStream;
+import primitives.Sampler;
 
 public abstract class RenderBase {
     private static final String RESOURCE_ERROR = "Renderer resource not set";
     private static final String IMAGE_WRITER_COMPONENT = "Image writer";
     private static final String CAMERA_COMPONENT = "Camera";
     private static final String RAY_TRACER_COMPONENT = "Ray tracer";
+    private static final long DEFAULT_PROGRESS_INTERVAL = 500; // milliseconds
+    private static final int DEFAULT_TILE_SIZE = 32;
     private String renderClass;
     protected boolean adaptive = false;
+    /**
+     * Edge anti aliasing - super sample only the pixels on the edges found by a
+     * single sample pass.
+     */
+    protected boolean edgeAntiAliasing = false;
+
+    private ProgressListener progressListener = null;
+    private long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+    /**
+     * The progress counters of the current render.
+     */
+    ProgressTracker progress;
 
     /**
      * how much ray we will calculate in a grid. Level = number of Rows and Columns
@@ -24,6 +44,55 @@ public abstract class RenderBase {
      */
     protected int antiAliasingLevel = 1;
 
+    /**
+     * Variance driven sampling - amount of samples added to a pixel at once, 0 for
+     * no variance driven sampling.
+     */
+    protected int sampleBatch = 0;
+    /**
+     * Variance driven sampling - the standard error of the pixel color (in color
+     * units) the sampling stops at.
+     */
+    protected double sampleError;
+    /**
+     * Variance driven sampling - the maximal amount of samples in a pixel.
+     */
+    protected int maxSamples;
+
+    /**
+     * The generator of the pixel samples and of the samples along their paths.
+     */
+    protected Sampler sampler = Sampler.SOBOL;
+
+    /**
+     * The image is rendered in square tiles of this edge length.
+     */
+    protected int tileSize = DEFAULT_TILE_SIZE;
+    /**
+     * The order of the tiles in the image and of the pixels in a tile.
+     */
+    protected PixelTraversal traversal = PixelTraversal.HILBERT;
+    private int[] tileOrder = null; // pixels order in a full tile, calculated once
+    // adaptive super sampling samples on the tile edges, shared by the tiles
+    private final Map<Long, Color> edgeSamples = new ConcurrentHashMap<>();
+    // amount of tiles left to render by their top row - the edge samples above the
+    // top of the first of them are not needed anymore (empty when not tracked)
+    private final TreeMap<Integer, Integer> pendingTops = new TreeMap<>();
+    /**
+     * The block size of the cost estimation pre-pass, 0 for no pre-pass.
+     */
+    protected int costPrepass = 0;
+
+    /**
+     * The features of the first hits of the pixels, filled while rendering (null
+     * for no auxiliary buffers).
+     */
+    protected AuxiliaryBuffers auxiliaryBuffers = null;
+    /**
+     * The temporal reprojection cache of an animation frame (null for no cache).
+     */
+    ReprojectionCache reprojection = null;
+
     protected Camera camera;
     protected ImageWriter imageWriter;
     protected RayTracerBase rayTracer;
@@ -53,6 +122,132 @@ public abstract class RenderBase {
         return this;
     }
 
+    /**
+     * Turn on edge anti aliasing - every tile is rendered first by a single sample
+     * through each pixel center (and the pixels around the tile), and the first
+     * hits and the colors of the neighbour pixels are compared to find the edges in
+     * the image space: silhouettes, material boundaries, creases, depth jumps and
+     * shadow edges. Only the pixels on the edges are super sampled by the anti
+     * aliasing settings, the others keep their single sample - so the flat
+     * interiors of the scene cost a ray a pixel. It has no effect without anti
+     * aliasing (level 1) and with variance driven sampling.
+     * 
+     * @param edgeAntiAliasing - true to super sample only the edges.
+     * @return - self return builder pattern.
+     */
+    public RenderBase setEdgeAntiAliasing(boolean edgeAntiAliasing) {
+        this.edgeAntiAliasing = edgeAntiAliasing;
+        return this;
+    }
+
+    /**
+     * Turn on variance driven sampling - the samples of each pixel are added in
+     * batches while the running mean and variance of the pixel color are kept, until
+     * the standard error of the mean drops below the error threshold or the pixel
+     * has the maximal amount of samples. Smooth pixels stop after the first batch
+     * and the rays go where the noise is (edges, soft shadows). It replaces the
+     * anti aliasing settings.
+     * 
+     * @param batchSize  - amount of samples added at once (at least 2), 0 to turn
+     *                   variance driven sampling off.
+     * @param error      - the standard error of the mean of each color component
+     *                   to stop at, in color units (0..255 for the printed
+     *                   colors).
+     * @param maxSamples - the maximal amount of samples in a pixel.
+     * @return - self return builder pattern.
+     */
+    public RenderBase setVarianceSampling(int batchSize, double error, int maxSamples) {
+        if (batchSize != 0 && (batchSize < 2 || error < 0 || maxSamples < batchSize))
+            throw new IllegalArgumentException("Illegal variance sampling parameters");
+        this.sampleBatch = batchSize;
+        this.sampleError = error;
+        this.maxSamples = maxSamples;
+        return this;
+    }
+
+    /**
+     * A setter for the generator of the sample points - the points in the pixels
+     * and the points on area lights. The points depend only on the pixel and the
+     * sample, so the image is the same for any amount of threads.
+     * 
+     * @param sampler - the sample generator ({@link Sampler#SOBOL} by default).
+     * @return - self return builder pattern.
+     */
+    public RenderBase setSampler(Sampler sampler) {
+        this.sampler = sampler;
+        return this;
+    }
+
+    /**
+     * A setter for the edge length of the tiles the image is rendered in.
+     * 
+     * @param tileSize - the tile edge length in pixels.
+     * @return - self return builder pattern.
+     */
+    public RenderBase setTileSize(int tileSize) {
+        if (tileSize <= 0)
+            throw new IllegalArgumentException("Tile size must be positive");
+        this.tileSize = tileSize;
+        tileOrder = null;
+        return this;
+    }
+
+    /**
+     * A setter for the order the tiles of the image and the pixels of each tile are
+     * rendered in.
+     * 
+     * @param traversal - the order.
+     * @return - self return builder pattern.
+     */
+    public RenderBase setTraversal(PixelTraversal traversal) {
+        this.traversal = traversal;
+        tileOrder = null;
+        return this;
+    }
+
+    /**
+     * Turn on the cost estimation pre-pass - before the rendering a single ray is
+     * traced through each block of blockSize x blockSize pixels and timed, and the
+     * image is cut to tiles of about the same cost (instead of the same size)
+     * according to the times. The amount of tiles stays as with the tile size.
+     * 
+     * @param blockSize - the block edge length in pixels (i.e. 8 for a pre-pass in
+     *                  1/8 of the resolution), 0 to turn the pre-pass off.
+     * @return - self return builder pattern.
+     */
+    public RenderBase setCostPrepass(int blockSize) {
+        if (blockSize < 0)
+            throw new IllegalArgumentException("Pre-pass block size must be 0 or higher");
+        this.costPrepass = blockSize;
+        return this;
+    }
+
+    /**
+     * Set a listener to follow up the progress of the renders. The listener is
+     * called from a separate sampling thread so it does not slow down the
+     * rendering threads.
+     * 
+     * @param listener - the progress listener, or null for no progress reports.
+     * @return - self return builder pattern.
+     */
+    public RenderBase setProgressListener(ProgressListener listener) {
+        this.progressListener = listener;
+        return this;
+    }
+
+    /**
+     * A setter for the time between two progress reports.
+     * 
+     * @param intervalMillis - time between reports in milliseconds.
+     * @return - self return builder pattern.
+     */
+    public RenderBase setProgressInterval(long intervalMillis) {
+        if (intervalMillis <= 0)
+            throw new IllegalArgumentException("Progress interval must be positive");
+        this.progressInterval = intervalMillis;
+        return this;
+    }
+
     /**
      * A builder setter for chaining definitions.
      * 
@@ -87,6 +282,20 @@ public abstract class RenderBase {
         return this;
     }
 
+    /**
+     * Set buffers for the features of the first hit of every pixel (its normal,
+     * albedo, depth and geometry) - they are filled while the image is rendered,
+     * by one more camera ray through the center of every pixel.
+     * 
+     * @param buffers - the auxiliary buffers (of the image size), or null for no
+     *                auxiliary buffers.
+     * @return - self return builder pattern.
+     */
+    public RenderBase setAuxiliaryBuffers(AuxiliaryBuffers buffers) {
+        this.auxiliaryBuffers = buffers;
+        return this;
+    }
+
     /**
      * save rendered image to file.
      */
@@ -97,6 +306,21 @@ public abstract class RenderBase {
         imageWriter.writeToImage();
     }
 
+    /**
+     * Save the rendered image to file in the background - the image is taken at
+     * once (waiting for a place in the encoder queue if it is full), so the next
+     * image can be rendered while this one is written.
+     * 
+     * @param encoder - the background image encoder.
+     * @throws InterruptedException if interrupted while waiting for the encoder
+     */
+    public void writeToImage(ImageEncoder encoder) throws InterruptedException {
+        if (imageWriter == null)
+            throw new MissingResourceException(RESOURCE_ERROR, renderClass, IMAGE_WRITER_COMPONENT);
+
+        encoder.submit(imageWriter);
+    }
+
     /**
      * Create a grid [over the picture] in the pixel color map. given the grid's
      * step and color.
@@ -128,8 +352,24 @@ public abstract class RenderBase {
             throw new MissingResourceException(RESOURCE_ERROR, renderClass, CAMERA_COMPONENT);
         if (rayTracer == null)
             throw new MissingResourceException(RESOURCE_ERROR, renderClass, RAY_TRACER_COMPONENT);
+        if (auxiliaryBuffers != null && (auxiliaryBuffers.getNx() != imageWriter.getNx()
+                || auxiliaryBuffers.getNy() != imageWriter.getNy()))
+            throw new IllegalArgumentException("Auxiliary buffers size differs from the image size");
+        if (costPrepass != 0 && imageWriter.isStreaming())
+            throw new IllegalArgumentException("Cost pre-pass tiles cannot be streamed in rows order");
 
-        renderAlg();
+        progress = new ProgressTracker((long) imageWriter.getNx() * imageWriter.getNy(), progressListener,
+                progressInterval);
+        edgeSamples.clear();
+        synchronized (pendingTops) {
+            pendingTops.clear();
+        }
+        progress.start();
+        try {
+            renderAlg();
+        } finally {
+            progress.finish();
+        }
     }
 
     /**
@@ -141,88 +381,385 @@ public abstract class RenderBase {
      * @param row pixel's row number (pixel index in column)
      */
     protected void castRay(int nX, int nY, int col, int row) {
-        if (antiAliasingLevel == 1) { // no AA
-            Ray ray = camera.constructRayThroughPixel(nX, nY, col, row);
-            Color color = rayTracer.traceRay(ray);
-            imageWriter.writePixel(col, row, color);
-        } else if (adaptive) { // adaptive AA
-            Color averageColor = adaptiveSuperSampling(nX, nY, col, row);
-            imageWriter.writePixel(col, row, averageColor);
-        } else { // normal AA
-            Color averageColor = superSampling(nX, nY, col, row, antiAliasingLevel);
-            imageWriter.writePixel(col, row, averageColor);
-        }
+        imageWriter.writePixel(col, row, calcPixelColor(nX, nY, col, row));
     }
 
-    protected Color adaptiveSuperSampling(int nx, int ny, int j, int i) {
-        HashMap<Point3D, Color> colorRepo = new HashMap<>();
-        Ray centerRay = camera.constructRayThroughPixel(nx, ny, j, i);
-        Color baseColor = getPointColor(colorRepo, camera.getPixel(centerRay));
-        return calculateColorAdaptive(nx, ny, antiAliasingLevel, centerRay.getP0(), baseColor, colorRepo);
+    /**
+     * Prepare the adaptive super sampling samples of a tile
+     * 
+     * @param nX   resolution on X axis (number of pixels in row)
+     * @param nY   resolution on Y axis (number of pixels in column)
+     * @param tile the tile
+     * @return the tile samples
+     */
+    SampleLattice sampleLattice(int nX, int nY, Tile tile) {
+        // the finest sub pixel center is 1/2^level of a pixel from its corners
+        int unit = 1 << antiAliasingLevel;
+        return new SampleLattice(tile, nX, unit, edgeSamples,
+                (x, y) -> traceRay(camera.constructRayThroughSubPixel(nX, nY, (double) x / unit, (double) y / unit),
+                        new SampleStream(sampler, SampleStream.seed(x, y), 0, 1)));
     }
 
-    protected Color getPointColor(HashMap<Point3D, Color> colorRepo, Point3D point) {
-        if (colorRepo.containsKey(point)) {
-            return colorRepo.get(point);
+    /**
+     * Render all the pixels of a tile into the image
+     * 
+     * @param nX     resolution on X axis (number of pixels in row)
+     * @param nY     resolution on Y axis (number of pixels in column)
+     * @param tile   the tile to render
+     * @param worker progress counter of the rendering thread
+     */
+    void renderTile(int nX, int nY, Tile tile, ProgressTracker.Worker worker) {
+        SampleLattice samples = sampleLattice(nX, nY, tile);
+        EdgeMask edges = isEdgeSampling() ? edgeMask(nX, nY, tile) : null;
+        for (int index : pixelOrder(tile)) {
+            int col = tile.x + index % tile.width;
+            int row = tile.y + index / tile.width;
+            imageWriter.writePixel(col, row, calcPixelColor(nX, nY, col, row, samples, edges));
+            if (auxiliaryBuffers != null && edges == null)
+                writeAuxiliary(nX, nY, col, row);
+            worker.pixelDone();
         }
-        Color color = rayTracer.traceRay(camera.constructRayThroughPixel(point));
-        colorRepo.put(point, color);
-        return color;
+        imageWriter.tileDone(tile);
+        tileFinished(tile);
     }
 
-    protected Color calculateColorAdaptive(int nx, int ny, int level, Point3D center, Color base,
-            HashMap<Point3D, Color> colorRepo) {
-        if (level == 1) { // end of recursion
-            return getPointColor(colorRepo, center);
+    /**
+     * Count the tiles left to render by their top row, so the edge samples of the
+     * finished rows of tiles are dropped while the image is rendered
+     * 
+     * @param tiles the tiles to render
+     */
+    void trackTiles(List<Tile> tiles) {
+        synchronized (pendingTops) {
+            pendingTops.clear();
+            for (Tile tile : tiles)
+                pendingTops.merge(tile.y, 1, Integer::sum);
         }
-        List<Point3D> corners = camera.pixelCorners(nx, ny, center);
-        List<Point3D> centers = camera.getNewCenters(nx, ny, corners);
+    }
 
-        Point3D tl = corners.get(0); // top left
-        Point3D tr = corners.get(1); // top right
-        Point3D bl = corners.get(2); // bottom left
-        Point3D br = corners.get(3); // bottom right
-        boolean difference = false;
+    /**
+     * Drop the edge samples that no tile left to render shares - the samples above
+     * the top of the first tile left, once the last tile of a row is finished
+     * 
+     * @param tile the finished tile
+     */
+    private void tileFinished(Tile tile) {
+        int top;
+        synchronized (pendingTops) {
+            Integer count = pendingTops.get(tile.y);
+            if (count == null)
+                return;
+            if (count > 1) {
+                pendingTops.put(tile.y, count - 1);
+                return;
+            }
+            pendingTops.remove(tile.y);
+            if (!pendingTops.isEmpty() && pendingTops.firstKey() < tile.y)
+                return;
+            top = pendingTops.isEmpty() ? imageWriter.getNy() + 1 : pendingTops.firstKey();
+        }
+        // the key of a lattice point is its row * stride + its column (see SampleLattice)
+        int unit = 1 << antiAliasingLevel;
+        long limit = (long) top * unit * ((long) imageWriter.getNx() * unit + 1);
+        edgeSamples.keySet().removeIf(key -> key < limit);
+    }
+
+    /**
+     * @return true if the tiles are rendered by edge anti aliasing
+     */
+    boolean isEdgeSampling() {
+        return edgeAntiAliasing && antiAliasingLevel > 1 && sampleBatch == 0;
+    }
 
-        Color tlRayColor = getPointColor(colorRepo, tl);
-        if (!tlRayColor.equals(base)) {
-            tlRayColor = calculateColorAdaptive(nx / 2, ny / 2, level - 1, centers.get(0), base, colorRepo);
-            difference = true;
+    /**
+     * The first pass of the edge anti aliasing of a tile - a single sample through
+     * each pixel of the tile and around it (the auxiliary buffers of the tile are
+     * filled by the same camera rays)
+     * 
+     * @param nX   resolution on X axis (number of pixels in row)
+     * @param nY   resolution on Y axis (number of pixels in column)
+     * @param tile the tile
+     * @return the samples and the edges of the tile
+     */
+    EdgeMask edgeMask(int nX, int nY, Tile tile) {
+        EdgeMask edges = new EdgeMask(tile, nX, nY);
+        for (int row = edges.getTop(); row < edges.getTop() + edges.getHeight(); ++row)
+            for (int col = edges.getLeft(); col < edges.getLeft() + edges.getWidth(); ++col) {
+                Ray ray = camera.constructRayThroughPixel(nX, nY, col, row);
+                GeoPoint hit = rayTracer.findClosestIntersection(ray);
+                edges.set(col, row, traceRay(ray, new SampleStream(sampler, SampleStream.seed(col, row), 0, 1)), ray,
+                        hit);
+                if (auxiliaryBuffers != null && tile.contains(col, row))
+                    auxiliaryBuffers.write(col, row, ray, hit);
+            }
+        return edges;
+    }
+
+    /**
+     * Calculate the color of a pixel of a tile - by its single sample if the tile
+     * is rendered by edge anti aliasing and the pixel is not on an edge, and by
+     * the anti aliasing settings otherwise. With a reprojection cache, the color
+     * of the previous frame is reused where it is valid (the ray that finds the
+     * first hit of the pixel for the cache is counted as a camera ray).
+     * 
+     * @param nX      resolution on X axis (number of pixels in row)
+     * @param nY      resolution on Y axis (number of pixels in column)
+     * @param col     pixel's column number (pixel index in row)
+     * @param row     pixel's row number (pixel index in column)
+     * @param samples the adaptive super sampling samples of the pixel's tile
+     * @param edges   the first pass of the edge anti aliasing of the tile, or null
+     * @return the color of the pixel
+     */
+    Color calcPixelColor(int nX, int nY, int col, int row, SampleLattice samples, EdgeMask edges) {
+        if (reprojection == null)
+            return edges == null || edges.isEdge(col, row) ? calcPixelColor(nX, nY, col, row, samples)
+                    : edges.getColor(col, row);
+
+        // the first hit of the pixel center is a camera ray of its own
+        GeoPoint hit = rayTracer.findClosestIntersection(camera.constructRayThroughPixel(nX, nY, col, row));
+        progress.raysTraced(1);
+        Color color = reprojection.reuse(col, row, hit);
+        if (color == null) {
+            color = edges == null || edges.isEdge(col, row) ? calcPixelColor(nX, nY, col, row, samples)
+                    : edges.getColor(col, row);
+            reprojection.store(col, row, hit, color);
         }
+        return color;
+    }
 
-        Color trRayColor = getPointColor(colorRepo, tr);
-        if (!trRayColor.equals(base)) {
-            trRayColor = calculateColorAdaptive(nx / 2, ny / 2, level - 1, centers.get(1), base, colorRepo);
-            difference = true;
+    /**
+     * Fill the auxiliary buffers of a pixel by the first hit of the camera ray
+     * through its center
+     * 
+     * @param nX  resolution on X axis (number of pixels in row)
+     * @param nY  resolution on Y axis (number of pixels in column)
+     * @param col pixel's column number (pixel index in row)
+     * @param row pixel's row number (pixel index in column)
+     */
+    void writeAuxiliary(int nX, int nY, int col, int row) {
+        Ray ray = camera.constructRayThroughPixel(nX, nY, col, row);
+        auxiliaryBuffers.write(col, row, ray, rayTracer.findClosestIntersection(ray));
+    }
+
+    /**
+     * Split the image to tiles by the tile size and the traversal order, or to
+     * tiles of equal cost when the cost pre-pass is on. For a streaming image
+     * writer the tiles are ordered from top to bottom (keeping the traversal order
+     * in every row of tiles), so the rows of the image are completed in order.
+     * The tiles that the image writer has already (see
+     * {@link ImageWriter#isTileDone(Tile)}) are left out.
+     * 
+     * @return the tiles of the image by order
+     */
+    protected List<Tile> splitToTiles() {
+        int nX = imageWriter.getNx();
+        int nY = imageWriter.getNy();
+        List<Tile> tiles = Tile.split(nX, nY, tileSize, traversal);
+        if (costPrepass != 0)
+            tiles = CostMap.measure(camera, rayTracer, nX, nY, costPrepass).split(tiles.size());
+        if (imageWriter.isStreaming())
+            tiles.sort(Comparator.comparingInt(tile -> tile.y));
+        // the tiles that a previous run has rendered already are counted as done
+        int resumed = 0;
+        for (Iterator<Tile> iterator = tiles.iterator(); iterator.hasNext();) {
+            Tile tile = iterator.next();
+            if (imageWriter.isTileDone(tile)) {
+                resumed += tile.size();
+                iterator.remove();
+            }
         }
+        if (resumed > 0)
+            progress.newWorker().pixelsDone(resumed);
+        trackTiles(tiles);
+        return tiles;
+    }
 
-        Color blRayColor = getPointColor(colorRepo, bl);
-        if (!blRayColor.equals(base)) {
-            blRayColor = calculateColorAdaptive(nx / 2, ny / 2, level - 1, centers.get(2), base, colorRepo);
-            difference = true;
+    /**
+     * The order of the pixels in a tile by the traversal. The order of full tiles is
+     * calculated only once.
+     * 
+     * @param tile the tile
+     * @return the pixel indices (row * tile width + column) by order
+     */
+    private int[] pixelOrder(Tile tile) {
+        if (tile.width != tileSize || tile.height != tileSize)
+            return traversal.order(tile.width, tile.height);
+        int[] order = tileOrder;
+        if (order == null)
+            tileOrder = order = traversal.order(tileSize, tileSize);
+        return order;
+    }
+
+    /**
+     * Calculate the color of a pixel by the camera rays through it (according to
+     * the anti aliasing settings)
+     * 
+     * @param nX  resolution on X axis (number of pixels in row)
+     * @param nY  resolution on Y axis (number of pixels in column)
+     * @param col pixel's column number (pixel index in row)
+     * @param row pixel's row number (pixel index in column)
+     * @return the color of the pixel
+     */
+    protected Color calcPixelColor(int nX, int nY, int col, int row) {
+        return calcPixelColor(nX, nY, col, row, sampleLattice(nX, nY, new Tile(col, row, 1, 1)));
+    }
+
+    /**
+     * Calculate the color of a pixel by the camera rays through it (according to
+     * the anti aliasing settings)
+     * 
+     * @param nX      resolution on X axis (number of pixels in row)
+     * @param nY      resolution on Y axis (number of pixels in column)
+     * @param col     pixel's column number (pixel index in row)
+     * @param row     pixel's row number (pixel index in column)
+     * @param samples the adaptive super sampling samples of the pixel's tile
+     * @return the color of the pixel
+     */
+    Color calcPixelColor(int nX, int nY, int col, int row, SampleLattice samples) {
+        if (sampleBatch != 0) { // variance driven sampling
+            return varianceSampling(nX, nY, col, row);
+        } else if (antiAliasingLevel == 1) { // no AA
+            Ray ray = camera.constructRayThroughPixel(nX, nY, col, row);
+            return traceRay(ray, new SampleStream(sampler, SampleStream.seed(col, row), 0, 1));
+        } else if (adaptive) { // adaptive AA
+            return adaptiveSuperSampling(col, row, samples);
+        } else { // normal AA
+            return superSampling(nX, nY, col, row, antiAliasingLevel);
         }
+    }
+
+    /**
+     * Calculate the color of a pixel by adaptive super sampling - the pixel is
+     * divided to quarters recursively only where its corners differ from its
+     * center, up to the anti aliasing level. The samples lie on the integer
+     * lattice of the tile, so the corners shared with the neighbour pixels are
+     * traced only once.
+     * 
+     * @param j       pixel's column number (pixel index in row)
+     * @param i       pixel's row number (pixel index in column)
+     * @param samples the samples of the pixel's tile
+     * @return the color of the pixel
+     */
+    protected Color adaptiveSuperSampling(int j, int i, SampleLattice samples) {
+        int unit = samples.getUnit();
+        int x = j * unit + unit / 2;
+        int y = i * unit + unit / 2;
+        Color baseColor = samples.get(x, y);
+        return calculateColorAdaptive(antiAliasingLevel, x, y, unit / 2, baseColor, samples);
+    }
 
-        Color brRayColor = getPointColor(colorRepo, br);
-        if (!brRayColor.equals(base)) {
-            brRayColor = calculateColorAdaptive(nx / 2, ny / 2, level - 1, centers.get(3), base, colorRepo);
-            difference = true;
+    /**
+     * Calculate the color of a (sub) pixel by adaptive super sampling
+     * 
+     * @param level   the levels of division left
+     * @param x       lattice column of the (sub) pixel center
+     * @param y       lattice row of the (sub) pixel center
+     * @param half    half of the (sub) pixel edge in lattice cells
+     * @param base    the color of the pixel center
+     * @param samples the samples of the pixel's tile
+     * @return the color of the (sub) pixel
+     */
+    protected Color calculateColorAdaptive(int level, int x, int y, int half, Color base, SampleLattice samples) {
+        if (level == 1) { // end of recursion
+            return samples.get(x, y);
         }
+        int quarter = half / 2;
+        boolean difference = false;
+        Color sum = base;
+        for (int dy = -1; dy <= 1; dy += 2)
+            for (int dx = -1; dx <= 1; dx += 2) {
+                Color cornerColor = samples.get(x + dx * half, y + dy * half);
+                if (!cornerColor.equals(base)) {
+                    cornerColor = calculateColorAdaptive(level - 1, x + dx * quarter, y + dy * quarter, quarter, base,
+                            samples);
+                    difference = true;
+                }
+                sum = sum.add(cornerColor);
+            }
 
         if (difference) {
-            return base.add(tlRayColor, trRayColor, blRayColor, brRayColor).reduce(4);
+            return sum.reduce(5);
         } else {
             return base;
         }
     }
 
-    protected Color superSampling(int ny, int nx, int j, int i, int gridSize) {
+    /**
+     * Calculate the color of a pixel by variance driven sampling. The samples are
+     * spread over the pixel by the sampler (with the Halton and Sobol samplers every
+     * prefix of the samples covers the pixel evenly). The mean and the variance are
+     * kept by Welford's online algorithm for each color component.
+     * 
+     * @param nX  resolution on X axis (number of pixels in row)
+     * @param nY  resolution on Y axis (number of pixels in column)
+     * @param col pixel's column number (pixel index in row)
+     * @param row pixel's row number (pixel index in column)
+     * @return the color of the pixel
+     */
+    protected Color varianceSampling(int nX, int nY, int col, int row) {
+        double[] mean = new double[3];
+        double[] m2 = new double[3]; // sums of squared differences from the mean
+        int n = 0;
+        long seed = SampleStream.seed(col, row);
+        SampleStream.Budget budget = new SampleStream.Budget();
+        double errorSquared = sampleError * sampleError;
+        while (n < maxSamples) {
+            int batchEnd = Math.min(n + sampleBatch, maxSamples);
+            while (n < batchEnd) {
+                ++n;
+                SampleStream samples = new SampleStream(sampler, seed, n - 1, maxSamples, budget);
+                double[] uv = samples.next();
+                Color color = traceRay(camera.constructRayThroughSubPixel(nX, nY, col + uv[0], row + uv[1]), samples);
+                double[] rgb = { color.getR(), color.getG(), color.getB() };
+                for (int c = 0; c < 3; ++c) {
+                    double delta = rgb[c] - mean[c];
+                    mean[c] += delta / n;
+                    m2[c] += delta * (rgb[c] - mean[c]);
+                }
+            }
+            // the squared standard error of the mean is variance / n
+            double worst = Math.max(m2[0], Math.max(m2[1], m2[2])) / (n - 1) / n;
+            if (worst <= errorSquared)
+                break;
+        }
+        return new Color(mean[0], mean[1], mean[2]);
+    }
+
+    /**
+     * Calculate the color of a pixel by super sampling - the average of
+     * gridSize * gridSize camera samples spread over the pixel by the sampler.
+     * 
+     * @param nX       resolution on X axis (number of pixels in row)
+     * @param nY       resolution on Y axis (number of pixels in column)
+     * @param col      pixel's column number (pixel index in row)
+     * @param row      pixel's row number (pixel index in column)
+     * @param gridSize square root of the amount of samples
+     * @return the color of the pixel
+     */
+    protected Color superSampling(int nX, int nY, int col, int row, int gridSize) {
         Color averageColor = Color.BLACK;
-        List<Ray> rays = camera.createGridCameraRays(camera.calculatePoints(nx, ny, j, i, gridSize));
-        for (Ray cameraRay : rays) {
-            averageColor = averageColor.add(rayTracer.traceRay(cameraRay));
+        int count = gridSize * gridSize;
+        long seed = SampleStream.seed(col, row);
+        SampleStream.Budget budget = new SampleStream.Budget();
+        for (int k = 0; k < count; ++k) {
+            SampleStream samples = new SampleStream(sampler, seed, k, count, budget);
+            double[] uv = samples.next();
+            Ray cameraRay = camera.constructRayThroughSubPixel(nX, nY, col + uv[0], row + uv[1]);
+            averageColor = averageColor.add(traceRay(cameraRay, samples));
         }
-        averageColor = averageColor.reduce(rays.size());
-        return averageColor;
+        return averageColor.reduce(count);
+    }
+
+    /**
+     * Trace a camera ray and count it in the render progress.
+     * 
+     * @param ray     - the camera ray.
+     * @param samples - the sample stream of the camera sample.
+     * @return the color the ray sees in the scene.
+     */
+    protected Color traceRay(Ray ray, SampleStream samples) {
+        progress.raysTraced(1);
+        return rayTracer.traceRay(ray, samples);
     }
 
     protected abstract void renderAlg();
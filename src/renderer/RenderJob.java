@@ -0,0 +1,109 @@
+package renderer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import elements.Camera;
+import primitives.Sampler;
+
+/**
+ * Everything a remote worker needs in order to render tiles of an image - the
+ * ray tracer (together with its scene), the camera and the image settings
+ * (including whether the features of the first hits are wanted). It
+ * is serialized once by the coordinator and sent as is to every worker.
+ */
+class RenderJob implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // a worker deserializes only the classes of the scene model and the renderer
+    // settings (and the JDK classes they use) - anything else is rejected
+    private static final ObjectInputFilter JOB_FILTER = ObjectInputFilter.Config
+            .createFilter("renderer.*;elements.*;geometries.*;primitives.*;scene.*;java.**;!*");
+
+    final RayTracerBase rayTracer;
+    final Camera camera;
+    final int nX;
+    final int nY;
+    final int antiAliasingLevel;
+    final boolean adaptive;
+    final boolean edgeAntiAliasing;
+    final int sampleBatch;
+    final double sampleError;
+    final int maxSamples;
+    final Sampler sampler;
+    final boolean auxiliary;
+
+    /**
+     * Constructor for the render job of a renderer - takes its ray tracer, camera
+     * and image settings.
+     *
+     * @param render - the renderer.
+     */
+    RenderJob(RenderBase render) {
+        this.rayTracer = render.rayTracer;
+        this.camera = render.camera;
+        this.nX = render.imageWriter.getNx();
+        this.nY = render.imageWriter.getNy();
+        this.antiAliasingLevel = render.antiAliasingLevel;
+        this.adaptive = render.adaptive;
+        this.edgeAntiAliasing = render.edgeAntiAliasing;
+        this.sampleBatch = render.sampleBatch;
+        this.sampleError = render.sampleError;
+        this.maxSamples = render.maxSamples;
+        this.sampler = render.sampler;
+        this.auxiliary = render.auxiliaryBuffers != null;
+    }
+
+    /**
+     * Set a renderer up by the job - the ray tracer, the camera and the pixel
+     * sampling settings.
+     *
+     * @param render - the renderer.
+     */
+    void configure(RenderBase render) {
+        render.setCamera(camera) //
+                .setRayTracer(rayTracer) //
+                .setAntiAliasingLevel(antiAliasingLevel) //
+                .setAdaptive(adaptive) //
+                .setEdgeAntiAliasing(edgeAntiAliasing) //
+                .setVarianceSampling(sampleBatch, sampleError, maxSamples) //
+                .setSampler(sampler);
+    }
+
+    /**
+     * Serialize the job.
+     *
+     * @return the serialized job.
+     * @throws IOException if some part of the scene cannot be serialized.
+     */
+    byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(this);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserialize a job - only the classes a job is made of are accepted.
+     *
+     * @param bytes - the serialized job.
+     * @return the job.
+     * @throws IOException if the bytes do not hold a job (i.e.
+     *                     {@link java.io.InvalidClassException} for a class that a
+     *                     job does not hold).
+     */
+    static RenderJob fromBytes(byte[] bytes) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            in.setObjectInputFilter(JOB_FILTER);
+            return (RenderJob) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Received data is not a render job", e);
+        }
+    }
+}
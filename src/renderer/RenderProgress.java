@@ -0,0 +1,126 @@
+package renderer;
+
+/**
+ * An immutable snapshot of a render progress, given to a
+ * {@link ProgressListener}.
+ */
+public class RenderProgress {
+    private static final double NANOS_IN_SECOND = 1e9;
+
+    private final long totalPixels;
+    private final long pixelsDone;
+    private final long raysTraced;
+    private final long elapsedNanos;
+    private final long[] threadPixels;
+
+    /**
+     * Constructor for a progress snapshot.
+     *
+     * @param totalPixels  - amount of pixels in the whole render.
+     * @param raysTraced   - amount of camera rays traced so far.
+     * @param elapsedNanos - time passed since the render started (nanoseconds).
+     * @param threadPixels - amount of pixels finished by each rendering thread.
+     */
+    public RenderProgress(long totalPixels, long raysTraced, long elapsedNanos, long[] threadPixels) {
+        this.totalPixels = totalPixels;
+        this.raysTraced = raysTraced;
+        this.elapsedNanos = elapsedNanos;
+        this.threadPixels = threadPixels.clone();
+        long done = 0;
+        for (long pixels : threadPixels)
+            done += pixels;
+        this.pixelsDone = done;
+    }
+
+    /**
+     * @return the amount of pixels in the whole render
+     */
+    public long getTotalPixels() {
+        return totalPixels;
+    }
+
+    /**
+     * @return the amount of pixels finished so far
+     */
+    public long getPixelsDone() {
+        return pixelsDone;
+    }
+
+    /**
+     * @return the amount of camera rays traced so far
+     */
+    public long getRaysTraced() {
+        return raysTraced;
+    }
+
+    /**
+     * @return the time passed since the render started in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    /**
+     * @return the finished percentage of the render (0 - 100)
+     */
+    public int getPercents() {
+        return totalPixels == 0 ? 100 : (int) (pixelsDone * 100 / totalPixels);
+    }
+
+    /**
+     * @return true if all the pixels were rendered
+     */
+    public boolean isDone() {
+        return pixelsDone >= totalPixels;
+    }
+
+    /**
+     * Estimated time left for the render, by the average speed so far.
+     *
+     * @return the estimated time left in milliseconds, or -1 if there is no
+     *         estimation yet.
+     */
+    public long getEtaMillis() {
+        if (isDone())
+            return 0;
+        if (pixelsDone == 0)
+            return -1;
+        return (long) ((double) getElapsedMillis() * (totalPixels - pixelsDone) / pixelsDone);
+    }
+
+    /**
+     * @return the amount of threads that took part in the render
+     */
+    public int getThreadsCount() {
+        return threadPixels.length;
+    }
+
+    /**
+     * @param thread - index of the rendering thread.
+     * @return the amount of pixels finished by the thread
+     */
+    public long getThreadPixels(int thread) {
+        return threadPixels[thread];
+    }
+
+    /**
+     * @param thread - index of the rendering thread.
+     * @return the average throughput of the thread (pixels per second)
+     */
+    public double getThreadThroughput(int thread) {
+        return elapsedNanos == 0 ? 0 : threadPixels[thread] * NANOS_IN_SECOND / elapsedNanos;
+    }
+
+    /**
+     * @return the average throughput of the whole render (pixels per second)
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : pixelsDone * NANOS_IN_SECOND / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d%% (%d/%d pixels, %d rays, eta %d ms)", getPercents(), pixelsDone, totalPixels,
+                raysTraced, getEtaMillis());
+    }
+}
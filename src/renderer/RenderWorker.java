@@ -0,0 +1,213 @@
+package renderer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import geometries.Geometry;
+import geometries.Intersectable.GeoPoint;
+import primitives.Color;
+import primitives.Ray;
+
+/**
+ * A worker process for {@link DistributedRender}. The worker connects to the
+ * coordinator, receives the render job once and then renders the tiles it is
+ * given until the coordinator tells it to stop.<br/>
+ * Usage: {@code java renderer.RenderWorker <host> <port> [threads]} - each
+ * thread opens its own connection to the coordinator.
+ */
+public class RenderWorker {
+    private static final int CONNECT_ATTEMPTS = 100;
+    private static final long CONNECT_RETRY_MILLIS = 200;
+
+    private final String host;
+    private final int port;
+
+    private static Logger logger = Logger.getLogger("RenderWorker");
+
+    /**
+     * A renderer of single tiles - all the settings come from the render job. It
+     * is a plain serial renderer, only it has no image writer, so it renders just
+     * the tiles it is given.
+     */
+    private static class TileRender extends Render {
+        private final int nX;
+        private final int nY;
+        // the indices of the geometries in the scene, the same as in the coordinator
+        private final Map<Geometry, Integer> geometryIndices = new IdentityHashMap<>();
+
+        /**
+         * Constructor for the tile renderer of a job
+         *
+         * @param job the render job
+         */
+        TileRender(RenderJob job) {
+            nX = job.nX;
+            nY = job.nY;
+            job.configure(this);
+            if (job.auxiliary) {
+                List<Geometry> geometries = rayTracer.scene.geometries.flatten();
+                for (int i = 0; i < geometries.size(); ++i)
+                    geometryIndices.put(geometries.get(i), i);
+            }
+        }
+
+        /**
+         * Render a tile
+         *
+         * @param tile the tile
+         * @param rgb  array for the RGB components of the tile pixels row by row (in
+         *             full precision)
+         * @return the amount of camera rays traced
+         */
+        long renderTile(Tile tile, double[] rgb) {
+            progress = new ProgressTracker(tile.size(), null, 1);
+            SampleLattice samples = sampleLattice(nX, nY, tile);
+            EdgeMask edges = isEdgeSampling() ? edgeMask(nX, nY, tile) : null;
+            for (int i = 0, c = 0; i < tile.height; ++i)
+                for (int j = 0; j < tile.width; ++j) {
+                    Color color = calcPixelColor(nX, nY, tile.x + j, tile.y + i, samples, edges);
+                    rgb[c++] = color.getR();
+                    rgb[c++] = color.getG();
+                    rgb[c++] = color.getB();
+                }
+            return progress.snapshot().getRaysTraced();
+        }
+
+        /**
+         * Find the first hits of the camera rays through the centers of the pixels of
+         * a tile (for the auxiliary buffers of the coordinator)
+         *
+         * @param tile       the tile
+         * @param geometries array for the indices of the hit geometries in the scene
+         *                   (see {@link geometries.Geometries#flatten()}) row by row,
+         *                   {@link AuxiliaryBuffers#BACKGROUND} for no hit
+         * @param features   array for the features of the hits row by row
+         *                   ({@link AuxiliaryBuffers#FEATURES} values a pixel)
+         */
+        void firstHits(Tile tile, int[] geometries, float[] features) {
+            for (int i = 0, p = 0; i < tile.height; ++i)
+                for (int j = 0; j < tile.width; ++j, ++p) {
+                    Ray ray = camera.constructRayThroughPixel(nX, nY, tile.x + j, tile.y + i);
+                    GeoPoint hit = rayTracer.findClosestIntersection(ray);
+                    if (hit == null) {
+                        geometries[p] = AuxiliaryBuffers.BACKGROUND;
+                    } else {
+                        geometries[p] = geometryIndices.get(hit.geometry);
+                        AuxiliaryBuffers.features(ray, hit, features, p * AuxiliaryBuffers.FEATURES);
+                    }
+                }
+        }
+    }
+
+    /**
+     * Constructor for a worker
+     *
+     * @param host the coordinator host
+     * @param port the coordinator port
+     */
+    public RenderWorker(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Connect to the coordinator (it may not be listening yet) and render tiles
+     * until there is no more work
+     *
+     * @throws IOException if the connection failed
+     */
+    public void run() throws IOException {
+        try (Socket socket = connect();
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            byte[] job = new byte[in.readInt()];
+            in.readFully(job);
+            RenderJob renderJob = RenderJob.fromBytes(job);
+            TileRender render = new TileRender(renderJob);
+
+            int x;
+            while ((x = in.readInt()) != DistributedRender.END_OF_WORK) {
+                Tile tile = new Tile(x, in.readInt(), in.readInt(), in.readInt());
+                double[] rgb = new double[3 * tile.size()];
+                out.writeLong(render.renderTile(tile, rgb));
+                for (double value : rgb)
+                    out.writeDouble(value);
+                if (renderJob.auxiliary) {
+                    int[] geometries = new int[tile.size()];
+                    float[] features = new float[AuxiliaryBuffers.FEATURES * tile.size()];
+                    render.firstHits(tile, geometries, features);
+                    for (int value : geometries)
+                        out.writeInt(value);
+                    for (float value : features)
+                        out.writeFloat(value);
+                }
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Connect to the coordinator, retrying while it is not listening yet
+     *
+     * @return the connection
+     * @throws IOException if the coordinator could not be reached
+     */
+    private Socket connect() throws IOException {
+        for (int attempt = 1;; ++attempt) {
+            try {
+                return new Socket(host, port);
+            } catch (ConnectException e) {
+                if (attempt == CONNECT_ATTEMPTS)
+                    throw e;
+                try {
+                    Thread.sleep(CONNECT_RETRY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Worker process entry point
+     *
+     * @param args coordinator host, coordinator port and optionally the amount of
+     *             threads (connections)
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: RenderWorker <host> <port> [threads]");
+            System.exit(1);
+        }
+        RenderWorker worker = new RenderWorker(args[0], Integer.parseInt(args[1]));
+        int threadsCount = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        Thread[] threads = new Thread[threadsCount];
+        for (int i = 0; i < threadsCount; ++i) {
+            threads[i] = new Thread(() -> {
+                try {
+                    worker.run();
+                } catch (IOException e) {
+                    logger.log(Level.SEVERE, "Worker failed", e);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+    }
+}
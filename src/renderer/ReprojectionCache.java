@@ -0,0 +1,170 @@
+package renderer;
+
+import elements.Camera;
+import geometries.Geometry;
+import geometries.Intersectable.GeoPoint;
+import primitives.Color;
+import primitives.Material;
+import primitives.Point3D;
+import primitives.Vector;
+
+/**
+ * A temporal reprojection cache of an animation frame - for every pixel it
+ * keeps the first hit of the camera ray through the pixel center and the color
+ * of the pixel, if the color does not depend on the view direction (the hit
+ * surface is matte - no specular, reflection or transparency - so its color is
+ * the emission, the ambient light and the diffuse lighting with its shadows).
+ * <br/>
+ * The first hit of a pixel of the next frame is projected into the camera of
+ * this frame. If the pixel it falls in hit the same geometry at a point near it
+ * (up to the footprint of a pixel), and its 4 neighbours saw the same geometry
+ * in about the same color (so it is not on the edge of a geometry or of a
+ * shadow), the color is reused instead of tracing the pixel again. Otherwise -
+ * the point was hidden in this frame (disocclusion), out of the view, on a shiny
+ * surface or on an edge, or this frame has not rendered the pixels yet - the
+ * pixel is traced.<br/>
+ * A reused entry keeps the point it was traced at, so the reuses do not drift
+ * farther than the tolerance from the point the color belongs to. The entries are
+ * immutable, so the next frame may read them while this frame is rendered by
+ * other threads.
+ */
+final class ReprojectionCache {
+    // the largest color component difference of a reusable pixel from its
+    // neighbours, in color units
+    private static final double COLOR_THRESHOLD = 10;
+
+    /**
+     * The first hit and the color of a pixel
+     */
+    private static final class Entry {
+        final Point3D point;
+        final Geometry geometry;
+        final Color color;
+
+        /**
+         * @param point    - the point the color was traced at.
+         * @param geometry - the geometry of the point.
+         * @param color    - the color of the pixel.
+         */
+        Entry(Point3D point, Geometry geometry, Color color) {
+            this.point = point;
+            this.geometry = geometry;
+            this.color = color;
+        }
+    }
+
+    private final Camera camera;
+    private final int nX;
+    private final int nY;
+    private final Entry[] entries;
+    // size of a pixel on the view plane divided by the view plane distance
+    private final double pixelAngle;
+    private volatile ReprojectionCache previous;
+
+    /**
+     * Constructor for the cache of a frame
+     *
+     * @param camera   - the camera of the frame.
+     * @param nX       - amount of pixel columns.
+     * @param nY       - amount of pixel rows.
+     * @param previous - the cache of the previous frame, or null for the first
+     *                 frame.
+     */
+    ReprojectionCache(Camera camera, int nX, int nY, ReprojectionCache previous) {
+        this.camera = camera;
+        this.nX = nX;
+        this.nY = nY;
+        this.previous = previous;
+        entries = new Entry[nX * nY];
+        pixelAngle = Math.max(camera.getWidth() / nX, camera.getHeight() / nY) / camera.getDistance();
+    }
+
+    /**
+     * Reuse the color of the previous frame for a pixel, if its first hit is
+     * valid there
+     *
+     * @param col - pixel's column number.
+     * @param row - pixel's row number.
+     * @param hit - the first hit of the camera ray through the pixel center.
+     * @return the color of the pixel, or null if it must be traced
+     */
+    Color reuse(int col, int row, GeoPoint hit) {
+        ReprojectionCache cache = previous;
+        if (cache == null || hit == null || !isMatte(hit.geometry))
+            return null;
+        Entry entry = cache.project(hit.point);
+        if (entry == null || entry.geometry != hit.geometry
+                || entry.point.distance(hit.point) > pixelAngle * camera.getPosition().distance(hit.point))
+            return null;
+        entries[row * nX + col] = entry;
+        return entry.color;
+    }
+
+    /**
+     * Keep the traced color of a pixel
+     *
+     * @param col   - pixel's column number.
+     * @param row   - pixel's row number.
+     * @param hit   - the first hit of the camera ray through the pixel center.
+     * @param color - the color of the pixel.
+     */
+    void store(int col, int row, GeoPoint hit, Color color) {
+        if (hit != null && isMatte(hit.geometry))
+            entries[row * nX + col] = new Entry(hit.point, hit.geometry, color);
+    }
+
+    /**
+     * Drop the previous frame cache - when the frame is done
+     */
+    void release() {
+        previous = null;
+    }
+
+    /**
+     * Find the entry of the pixel a point is seen through
+     *
+     * @param point - the point.
+     * @return the entry, or null if the point is out of the view or the pixel
+     *         has no reusable entry
+     */
+    private Entry project(Point3D point) {
+        Vector v = point.subtract(camera.getPosition());
+        double z = v.dotProduct(camera.getVTo());
+        if (z <= 0)
+            return null;
+        double scale = camera.getDistance() / z;
+        int col = (int) Math.floor(v.dotProduct(camera.getVRight()) * scale * nX / camera.getWidth() + nX / 2d);
+        int row = (int) Math.floor(nY / 2d - v.dotProduct(camera.getVUp()) * scale * nY / camera.getHeight());
+        if (col < 1 || col >= nX - 1 || row < 1 || row >= nY - 1)
+            return null;
+        int i = row * nX + col;
+        Entry entry = entries[i];
+        if (entry == null || !isSmooth(entry, entries[i - 1]) || !isSmooth(entry, entries[i + 1])
+                || !isSmooth(entry, entries[i - nX]) || !isSmooth(entry, entries[i + nX]))
+            return null;
+        return entry;
+    }
+
+    /**
+     * @param entry     - the entry of a pixel.
+     * @param neighbour - the entry of a neighbour pixel.
+     * @return true if the neighbour saw the same geometry in about the same color
+     */
+    private static boolean isSmooth(Entry entry, Entry neighbour) {
+        if (neighbour == null || neighbour.geometry != entry.geometry)
+            return false;
+        Color c1 = entry.color, c2 = neighbour.color;
+        return Math.abs(c1.getR() - c2.getR()) <= COLOR_THRESHOLD && Math.abs(c1.getG() - c2.getG()) <= COLOR_THRESHOLD
+                && Math.abs(c1.getB() - c2.getB()) <= COLOR_THRESHOLD;
+    }
+
+    /**
+     * @param geometry - the geometry.
+     * @return true if the color of the geometry does not depend on the view
+     *         direction
+     */
+    private static boolean isMatte(Geometry geometry) {
+        Material material = geometry.getMaterial();
+        return material.kS == 0 && material.kR == 0 && material.kT == 0;
+    }
+}
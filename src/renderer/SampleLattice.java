@@ -0,0 +1,85 @@
+package renderer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import primitives.Color;
+
+/**
+ * The samples of the adaptive super sampling of a tile. The samples lie on an
+ * integer lattice over the whole image - every pixel is divided to
+ * {@code unit x unit} lattice cells - so a corner shared by neighbour pixels (or
+ * by neighbour sub pixels) has exactly one key and is traced only once.<br/>
+ * The samples inside the tile are kept only while the tile is rendered, and the
+ * samples on the tile edges (which the neighbour tiles share) are kept in a map
+ * of the whole image, which may be shared by rendering threads.
+ */
+final class SampleLattice {
+    /**
+     * Traces the ray through a lattice point
+     */
+    @FunctionalInterface
+    interface Sampler {
+        /**
+         * @param x - the lattice column.
+         * @param y - the lattice row.
+         * @return the color seen through the lattice point
+         */
+        Color sample(int x, int y);
+    }
+
+    private final int unit;
+    private final long stride;
+    private final int left, top, right, bottom; // the lattice bounds of the tile
+    private final Map<Long, Color> tileSamples = new HashMap<>();
+    private final Map<Long, Color> edgeSamples;
+    private final Sampler sampler;
+
+    /**
+     * Constructor for the samples of a tile
+     *
+     * @param tile        - the tile.
+     * @param nX          - amount of pixel columns in the image.
+     * @param unit        - amount of lattice cells along a pixel edge.
+     * @param edgeSamples - the samples of the tile edges of the whole image (must
+     *                    be a concurrent map if it is shared by threads).
+     * @param sampler     - traces the ray through a lattice point.
+     */
+    SampleLattice(Tile tile, int nX, int unit, Map<Long, Color> edgeSamples, Sampler sampler) {
+        this.unit = unit;
+        this.stride = (long) nX * unit + 1;
+        this.left = tile.x * unit;
+        this.top = tile.y * unit;
+        this.right = (tile.x + tile.width) * unit;
+        this.bottom = (tile.y + tile.height) * unit;
+        this.edgeSamples = edgeSamples;
+        this.sampler = sampler;
+    }
+
+    /**
+     * @return amount of lattice cells along a pixel edge
+     */
+    int getUnit() {
+        return unit;
+    }
+
+    /**
+     * Get the color through a lattice point - the ray is traced only if the point
+     * was not sampled before
+     *
+     * @param x - the lattice column.
+     * @param y - the lattice row.
+     * @return the color seen through the lattice point
+     */
+    Color get(int x, int y) {
+        Long key = y * stride + x;
+        if (x == left || x == right || y == top || y == bottom)
+            return edgeSamples.computeIfAbsent(key, k -> sampler.sample(x, y));
+        Color color = tileSamples.get(key);
+        if (color == null) {
+            color = sampler.sample(x, y);
+            tileSamples.put(key, color);
+        }
+        return color;
+    }
+}
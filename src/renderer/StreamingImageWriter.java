@@ -0,0 +1,184 @@
+package renderer;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import primitives.Color;
+
+/**
+ * An image writer for images larger than the memory - the image is kept in
+ * bands of rows, and every band is encoded and written to the png file (see
+ * {@link PngWriter}) as soon as it and all the bands above it are complete, so
+ * only the bands that are being rendered are in memory, for any image size. The
+ * renderers hand out the tiles band after band for a streaming writer.<br/>
+ * Every pixel must be written exactly once (a band is complete when all its
+ * pixels are written), and the pixels of a band that was written to the file
+ * cannot be read or written any more.
+ */
+public class StreamingImageWriter extends ImageWriter {
+    private final int bandHeight;
+    private final int bandsCount;
+    private final Map<Integer, Band> bands = new ConcurrentHashMap<>();
+    // the first band that is not written to the file yet
+    private volatile int nextBand = 0;
+    private PngWriter png = null;
+
+    /**
+     * A band of rows of the image
+     */
+    private static class Band {
+        private final double[] pixels;
+        private final AtomicInteger remaining;
+
+        /**
+         * Constructor for a band
+         *
+         * @param size - amount of pixels in the band.
+         */
+        Band(int size) {
+            pixels = new double[3 * size];
+            remaining = new AtomicInteger(size);
+        }
+    }
+
+    /**
+     * Constructor for a streaming image writer
+     *
+     * @param imageName  the name of the png file
+     * @param nX         amount of pixels by Width
+     * @param nY         amount of pixels by height
+     * @param bandHeight amount of rows in a band (i.e. the tile size of the
+     *                   renderer)
+     */
+    public StreamingImageWriter(String imageName, int nX, int nY, int bandHeight) {
+        super(imageName, nX, nY, false);
+        if (bandHeight <= 0)
+            throw new IllegalArgumentException("Band height must be positive");
+        if (3L * Math.min(bandHeight, nY) * nX > MAX_ARRAY_SIZE)
+            throw new IllegalArgumentException("Band is too large");
+        this.bandHeight = bandHeight;
+        bandsCount = (nY + bandHeight - 1) / bandHeight;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
+    /**
+     * Get a band that is not written to the file yet
+     *
+     * @param yIndex - a row of the band.
+     * @return the band
+     */
+    private Band band(int yIndex) {
+        int index = yIndex / bandHeight;
+        if (index < nextBand)
+            throw new IllegalStateException("Row " + yIndex + " is already written to the file");
+        return bands.computeIfAbsent(index,
+                i -> new Band(getNx() * (Math.min(getNy(), (i + 1) * bandHeight) - i * bandHeight)));
+    }
+
+    /**
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the index of the pixel components in its band
+     */
+    private int offset(int xIndex, int yIndex) {
+        return 3 * ((yIndex % bandHeight) * getNx() + xIndex);
+    }
+
+    @Override
+    public void writePixel(int xIndex, int yIndex, Color color) {
+        Band band = band(yIndex);
+        int i = offset(xIndex, yIndex);
+        band.pixels[i] = color.getR();
+        band.pixels[i + 1] = color.getG();
+        band.pixels[i + 2] = color.getB();
+        if (band.remaining.decrementAndGet() == 0)
+            writeBands();
+    }
+
+    /**
+     * {@inheritDoc} A pixel can be accumulated only until its band is written to
+     * the file (when all the pixels of the band are written by
+     * {@link #writePixel(int, int, Color)}).
+     *
+     * @throws IllegalStateException if the band of the pixel is already written to
+     *                               the file
+     */
+    @Override
+    public void accumulatePixel(int xIndex, int yIndex, Color color, double weight) {
+        Band band = band(yIndex);
+        int i = offset(xIndex, yIndex);
+        band.pixels[i] += (color.getR() - band.pixels[i]) * weight;
+        band.pixels[i + 1] += (color.getG() - band.pixels[i + 1]) * weight;
+        band.pixels[i + 2] += (color.getB() - band.pixels[i + 2]) * weight;
+    }
+
+    @Override
+    public Color getPixel(int xIndex, int yIndex) {
+        Band band = band(yIndex);
+        int i = offset(xIndex, yIndex);
+        return new Color(band.pixels[i], band.pixels[i + 1], band.pixels[i + 2]);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException always - the writer does not keep the image
+     */
+    @Override
+    public BufferedImage getImage() {
+        throw new IllegalStateException("Streaming image writer does not keep the image");
+    }
+
+    /**
+     * Write the complete bands (that all the bands above them are written) to the
+     * file, and free them
+     */
+    private synchronized void writeBands() {
+        try {
+            Band band;
+            while (nextBand < bandsCount && (band = bands.get(nextBand)) != null && band.remaining.get() == 0) {
+                if (png == null)
+                    png = new PngWriter(new BufferedOutputStream(new FileOutputStream(getFile())), getNx(), getNy());
+                int[] row = new int[getNx()];
+                for (int i = 0; i < band.pixels.length; i += row.length * 3) {
+                    for (int j = 0; j < row.length; ++j)
+                        row[j] = quantize(band.pixels[i + 3 * j]) << 16 | quantize(band.pixels[i + 3 * j + 1]) << 8
+                                | quantize(band.pixels[i + 3 * j + 2]);
+                    png.writeRow(row, 0);
+                }
+                bands.remove(nextBand);
+                ++nextBand;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Finish the png file - all the pixels must be written (the bands are already
+     * in the file, so only the end of the file is left)
+     */
+    @Override
+    protected synchronized Runnable prepareEncoding() {
+        if (nextBand < bandsCount)
+            throw new IllegalStateException("Only " + nextBand + " of " + bandsCount + " bands are complete");
+        PngWriter finished = png;
+        return () -> {
+            try {
+                finished.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,120 @@
+package renderer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A rectangular block of pixels in the image - the unit of work that is handed
+ * out to the rendering threads and workers.
+ */
+public final class Tile implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Column of the top left pixel of the tile
+     */
+    public final int x;
+    /**
+     * Row of the top left pixel of the tile
+     */
+    public final int y;
+    /**
+     * Amount of pixel columns in the tile
+     */
+    public final int width;
+    /**
+     * Amount of pixel rows in the tile
+     */
+    public final int height;
+
+    /**
+     * Constructor for a tile
+     *
+     * @param x      - column of the top left pixel.
+     * @param y      - row of the top left pixel.
+     * @param width  - amount of pixel columns.
+     * @param height - amount of pixel rows.
+     */
+    public Tile(int x, int y, int width, int height) {
+        if (x < 0 || y < 0 || width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Illegal tile dimensions");
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * @return the amount of pixels in the tile
+     */
+    public int size() {
+        return width * height;
+    }
+
+    /**
+     * @param col - pixel's column number.
+     * @param row - pixel's row number.
+     * @return true if the pixel is in the tile
+     */
+    public boolean contains(int col, int row) {
+        return col >= x && col < x + width && row >= y && row < y + height;
+    }
+
+    /**
+     * Split an image to tiles row by row. The tiles on the right and bottom edges
+     * are cut to the image size.
+     *
+     * @param nX       - amount of pixel columns in the image.
+     * @param nY       - amount of pixel rows in the image.
+     * @param tileSize - the edge length of a tile.
+     * @return list of the tiles covering the image.
+     */
+    public static List<Tile> split(int nX, int nY, int tileSize) {
+        return split(nX, nY, tileSize, PixelTraversal.ROW_MAJOR);
+    }
+
+    /**
+     * Split an image to tiles ordered by a traversal. The tiles on the right and
+     * bottom edges are cut to the image size.
+     *
+     * @param nX        - amount of pixel columns in the image.
+     * @param nY        - amount of pixel rows in the image.
+     * @param tileSize  - the edge length of a tile.
+     * @param traversal - the order of the tiles.
+     * @return list of the tiles covering the image.
+     */
+    public static List<Tile> split(int nX, int nY, int tileSize, PixelTraversal traversal) {
+        if (tileSize <= 0)
+            throw new IllegalArgumentException("Tile size must be positive");
+        int columns = (nX + tileSize - 1) / tileSize;
+        int rows = (nY + tileSize - 1) / tileSize;
+        List<Tile> tiles = new ArrayList<>(columns * rows);
+        for (int index : traversal.order(columns, rows)) {
+            int x = index % columns * tileSize;
+            int y = index / columns * tileSize;
+            tiles.add(new Tile(x, y, Math.min(tileSize, nX - x), Math.min(tileSize, nY - y)));
+        }
+        return tiles;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof Tile))
+            return false;
+        Tile other = (Tile) obj;
+        return x == other.x && y == other.y && width == other.width && height == other.height;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((x * 31 + y) * 31 + width) * 31 + height;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + x + ", " + y + " " + width + "x" + height + "]";
+    }
+}
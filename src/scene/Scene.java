@@ -5,13 +5,16 @@ import geometries.*;
 import elements.AmbientLight;
 import elements.LightSource;
 
+import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
 
 /**
  * A Class to combine elements to one scene.
  */
-public class Scene {
+public class Scene implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     public String name;
     public Color background;
     public Geometries geometries;
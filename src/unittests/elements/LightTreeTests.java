@@ -0,0 +1,149 @@
+package unittests.elements;
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import elements.*;
+import primitives.*;
+
+/**
+ * Unit tests for elements.LightTree class
+ */
+public class LightTreeTests {
+    /**
+     * Test method for {@link elements.PointLight#getInfluenceRadius(double)}
+     */
+    @Test
+    public void testInfluenceRadius() {
+        PointLight light = new PointLight(new Color(100, 200, 50), Point3D.ZERO).setKL(0.1).setKQ(0.01);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the intensity on the radius is the cutoff
+        double radius = light.getInfluenceRadius(0.5);
+        Color intensity = light.getIntensity(new Point3D(radius, 0, 0));
+        assertEquals("Wrong intensity on the influence radius", 0.5, intensity.getG(), 1e-9);
+        assertTrue("Light must influence in the radius", light.isInfluencing(new Point3D(0, radius - 1, 0), 0.5));
+        assertFalse("Light must not influence out of the radius",
+                light.isInfluencing(new Point3D(0, 0, radius + 1), 0.5));
+
+        // TC02: a spot light does not influence behind it
+        SpotLight spot = new SpotLight(new Color(100, 100, 100), Point3D.ZERO, new Vector(0, 0, -1));
+        assertTrue("Spot light must influence in its cone", spot.isInfluencing(new Point3D(1, 1, -10), 0.5));
+        assertFalse("Spot light must not influence out of its cone", spot.isInfluencing(new Point3D(1, 1, 10), 0.5));
+
+        // TC03: the culling of a spot light agrees with its intensity (an even narrow
+        // beam lights behind it too)
+        spot.setNarrowBeam(2);
+        assertTrue("Spot light must influence where it lights", spot.isInfluencing(new Point3D(1, 1, 10), 0.5));
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a light without attenuation or a cutoff of 0 reaches everywhere
+        assertEquals("Light without attenuation must reach everywhere", Double.POSITIVE_INFINITY,
+                new PointLight(new Color(100, 100, 100), Point3D.ZERO).getInfluenceRadius(0.5), 0);
+        assertEquals("Cutoff 0 must reach everywhere", Double.POSITIVE_INFINITY, light.getInfluenceRadius(0), 0);
+        SpotLight narrow = new SpotLight(new Color(100, 100, 100), Point3D.ZERO, new Vector(0, 0, -1));
+        narrow.setNarrowBeam(3);
+        assertTrue("Cutoff 0 must not cull a narrow spot light in its cone",
+                narrow.isInfluencing(new Point3D(1, 1, -10), 0));
+        assertFalse("Cutoff 0 must cull a spot light behind it", narrow.isInfluencing(new Point3D(1, 1, 10), 0));
+        // TC12: a cutoff over the light intensity culls it everywhere
+        assertEquals("Light weaker than the cutoff must have no radius", 0, light.getInfluenceRadius(300), 0);
+    }
+
+    /**
+     * Test method for {@link elements.LightTree#influencing(Point3D)} - the tree
+     * must find exactly the lights that influence the points
+     */
+    @Test
+    public void testInfluencing() {
+        List<LightSource> lights = new LinkedList<>();
+        for (int i = 0; i < 20; ++i)
+            for (int j = 0; j < 20; ++j)
+                lights.add(new PointLight(new Color(100, 100, 100), new Point3D(10 * i, 10 * j, 5 * ((i + j) % 3))) //
+                        .setKL(0.05).setKQ(0.5));
+        lights.add(new SpotLight(new Color(100, 100, 100), new Point3D(100, 100, 50), new Vector(0, 0, -1)));
+        lights.add(new DirectionalLight(new Color(100, 100, 100), new Vector(1, 1, -1)));
+        LightTree tree = new LightTree(lights, 1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the lights around points, in the lights order
+        for (int i = 0; i < 50; ++i) {
+            Point3D p = new Point3D(4 * i, 3 * i % 200, i % 7);
+            List<LightSource> expected = lights.stream().filter(l -> l.isInfluencing(p, 1))
+                    .collect(Collectors.toList());
+            assertEquals("Wrong influencing lights", expected, tree.influencing(p));
+            assertTrue("Too many lights around a point", expected.size() < 30);
+        }
+
+        // TC02: the tree must be built again when the lights are changed
+        assertTrue("Tree must be of its lights", tree.isOf(lights, 1));
+        assertFalse("Tree must not be of another cutoff", tree.isOf(lights, 2));
+        lights.add(new PointLight(new Color(100, 100, 100), Point3D.ZERO));
+        assertFalse("Tree must not be of changed lights", tree.isOf(lights, 1));
+
+        // =============== Boundary Values Tests ==================
+        // TC11: no lights
+        assertTrue("Empty tree must have no lights", new LightTree(List.of(), 1).influencing(Point3D.ZERO).isEmpty());
+    }
+
+    /**
+     * Test method for {@link elements.LightTree#sample(Point3D, double, double[])}
+     * - weighting the chosen lights by their probabilities must give the total
+     * intensity of all the lights on average
+     */
+    @Test
+    public void testSample() {
+        List<LightSource> lights = new LinkedList<>();
+        for (int i = 0; i < 10; ++i)
+            for (int j = 0; j < 10; ++j)
+                lights.add(new PointLight(new Color(10 * i + 5, 100, 10 * j + 5), new Point3D(10 * i, 10 * j, 20)) //
+                        .setKL(0.05).setKQ(0.01));
+        lights.add(new SpotLight(new Color(500, 500, 500), new Point3D(50, 50, 50), new Vector(1, 0, -1)));
+        lights.add(new DirectionalLight(new Color(100, 100, 100), new Vector(1, 1, -1)));
+        LightTree tree = new LightTree(lights, 0);
+        assertEquals("Wrong lights without position", List.of(lights.get(lights.size() - 1)), tree.getUnbounded());
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the average of the weighted samples is the total intensity
+        Point3D p = new Point3D(30, 60, 0);
+        double expected = 0;
+        for (LightSource light : lights)
+            if (light instanceof PointLight)
+                expected += light.getIntensity(p).getG();
+        int count = 100000;
+        double sum = 0;
+        double[] probability = new double[1];
+        for (int i = 0; i < count; ++i) {
+            LightSource light = tree.sample(p, (i + 0.5) / count, probability);
+            assertTrue("Wrong probability", probability[0] > 0 && probability[0] <= 1);
+            sum += light.getIntensity(p).getG() / probability[0];
+        }
+        assertEquals("Weighted samples are biased", expected, sum / count, expected * 0.01);
+
+        // TC02: the strongest light at the point is chosen with the highest
+        // probability
+        LightSource strongest = null, mostProbable = null;
+        double maxIntensity = 0, maxProbability = 0;
+        for (int i = 0; i < 1000; ++i) {
+            LightSource light = tree.sample(p, (i + 0.5) / 1000, probability);
+            if (probability[0] > maxProbability) {
+                maxProbability = probability[0];
+                mostProbable = light;
+            }
+            if (light.getIntensity(p).getG() > maxIntensity) {
+                maxIntensity = light.getIntensity(p).getG();
+                strongest = light;
+            }
+        }
+        assertSame("Strongest light is not the most probable", strongest, mostProbable);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: no positional lights
+        assertNull("Light chosen from empty tree", new LightTree(List.of(), 0).sample(p, 0.5, probability));
+    }
+}
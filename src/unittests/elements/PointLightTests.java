@@ -0,0 +1,86 @@
+package unittests.elements;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import elements.PointLight;
+import primitives.*;
+
+/**
+ * Unit tests for elements.PointLight class
+ */
+public class PointLightTests {
+    /**
+     * Test method for
+     * {@link elements.PointLight#calculatePoints(Vector, int, SampleStream)}
+     */
+    @Test
+    public void testCalculatePoints() {
+        Point3D position = new Point3D(1, 2, 3);
+        PointLight light = new PointLight(new Color(100, 100, 100), position);
+        light.setSquareEdge(4);
+        Vector n = new Vector(0, 0, -1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the points are on the light square, orthogonal to the direction
+        List<Point3D> points = light.calculatePoints(n, 16, new SampleStream(Sampler.SOBOL, 1, 0, 4));
+        assertEquals("Wrong amount of points", 16, points.size());
+        for (Point3D point : points) {
+            assertEquals("Point is not on the light plane", 3, point.getZ(), 1e-10);
+            assertTrue("Point is out of the light square",
+                    Math.abs(point.getX() - 1) <= 2 && Math.abs(point.getY() - 2) <= 2);
+        }
+
+        // TC02: the pattern is shifted differently for another camera sample
+        List<Point3D> other = light.calculatePoints(n, 16, new SampleStream(Sampler.SOBOL, 1, 1, 4));
+        assertNotEquals("Camera samples share the same points", points.get(0), other.get(0));
+
+        // TC03: the same camera sample gets the same points
+        assertEquals("Points are not deterministic", points,
+                light.calculatePoints(n, 16, new SampleStream(Sampler.SOBOL, 1, 0, 4)));
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a light with no area has only its position
+        assertEquals("Wrong point of a light without area", List.of(position),
+                new PointLight(new Color(100, 100, 100), position).calculatePoints(n, 16,
+                        new SampleStream(Sampler.SOBOL, 1, 0, 4)));
+    }
+
+    /**
+     * Test method for
+     * {@link elements.PointLight#calculatePoints(Vector, int, SampleStream, double[])}
+     */
+    @Test
+    public void testCalculatePointsBuffer() {
+        Point3D position = new Point3D(1, 2, 3);
+        PointLight light = new PointLight(new Color(100, 100, 100), position);
+        light.setSquareEdge(4);
+        Vector n = new Vector(0, 0, -1);
+        double[] coordinates = new double[3 * 16];
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the buffer holds the same points as the list
+        List<Point3D> points = light.calculatePoints(n, 16, new SampleStream(Sampler.SOBOL, 1, 0, 4));
+        assertEquals("Wrong amount of points", 16,
+                light.calculatePoints(n, 16, new SampleStream(Sampler.SOBOL, 1, 0, 4), coordinates));
+        for (int i = 0; i < 16; ++i)
+            assertEquals("Wrong point in the buffer", points.get(i),
+                    new Point3D(coordinates[3 * i], coordinates[3 * i + 1], coordinates[3 * i + 2]));
+
+        // TC02: the patterns of other amounts of points do not change the points
+        light.calculatePoints(n, 4, new SampleStream(Sampler.SOBOL, 1, 0, 4), coordinates);
+        assertEquals("Points changed by another amount of points", points,
+                light.calculatePoints(n, 16, new SampleStream(Sampler.SOBOL, 1, 0, 4)));
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a light with no area has only its position
+        assertEquals("Wrong amount of points of a light without area", 1,
+                new PointLight(new Color(100, 100, 100), position).calculatePoints(n, 16,
+                        new SampleStream(Sampler.SOBOL, 1, 0, 4), coordinates));
+        assertEquals("Wrong point of a light without area", position,
+                new Point3D(coordinates[0], coordinates[1], coordinates[2]));
+    }
+}
@@ -1,6 +1,7 @@
 package unittests.geometries;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 
 import java.util.List;
@@ -64,4 +65,54 @@ public class GeometriesTests {
         assertEquals("There should be 5 intersections with our shapes.", 5, actualValue.size());
     }
 
+    /**
+     * Test method for {@link geometries.Geometries#buildBVHTree()}.
+     */
+    @Test
+    public void testBuildBVHTree() {
+        Geometries geom = new Geometries();
+        geom.add(new Sphere(new Point3D(0, 0, 0), 1), new Sphere(new Point3D(10, 20, 30), 2),
+                new Triangle(new Point3D(-5, 0, 0), new Point3D(0, -5, 0), new Point3D(0, 0, -5)));
+        geom.buildBVHTree();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The box bounds all the shapes.
+        assertEquals("Wrong box minimum", new Point3D(-5, -5, -5), geom.getAABB().getMinLocation());
+        assertEquals("Wrong box maximum", new Point3D(12, 22, 32), geom.getAABB().getMaxLocation());
+
+        // TC02: The rays through the tree find the shapes in all its nodes.
+        List<Point3D> actualValue = geom.findIntersections(new Ray(new Point3D(10, 20, 0), new Vector(0, 0, 1)));
+        assertEquals("There should be 2 intersections with the far sphere.", 2, actualValue.size());
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#getVersion()}.
+     */
+    @Test
+    public void testGetVersion() {
+        Geometries inner = new Geometries();
+        Geometries scene = new Geometries();
+        scene.add(inner);
+        Geometries other = new Geometries();
+        long version = scene.getVersion(), otherVersion = other.getVersion();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a shape added to a composite inside the scene changes the scene
+        inner.add(new Sphere(new Point3D(0, 0, 0), 1), new Sphere(new Point3D(0, 0, 5), 1));
+        assertNotEquals("Scene version must change", version, scene.getVersion());
+
+        // TC02: another composite is not changed
+        assertEquals("Other composite version must not change", otherVersion, other.getVersion());
+
+        // TC03: building the BVH tree changes the scene, and the composites of the
+        // tree are a part of the scene
+        inner.buildBVHTree();
+        version = scene.getVersion();
+        scene.add(new Sphere(new Point3D(10, 0, 0), 1), new Sphere(new Point3D(20, 0, 0), 1));
+        scene.buildBVHTree();
+        assertNotEquals("Scene version must change", version, scene.getVersion());
+        version = scene.getVersion();
+        inner.add(new Sphere(new Point3D(0, 5, 0), 1));
+        assertNotEquals("Scene version must change", version, scene.getVersion());
+    }
 }
@@ -0,0 +1,97 @@
+package unittests.primitives;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import primitives.SampleStream;
+import primitives.Sampler;
+
+/**
+ * Unit tests for primitives.Sampler and primitives.SampleStream classes
+ */
+public class SamplerTests {
+    /**
+     * Take the points of a dimension of all the camera samples of a pixel
+     *
+     * @param sampler   the sampler
+     * @param seed      the pixel seed
+     * @param count     amount of camera samples
+     * @param dimension the dimension
+     * @return the points
+     */
+    private static double[][] pixelPoints(Sampler sampler, long seed, int count, int dimension) {
+        double[][] points = new double[count][];
+        for (int k = 0; k < count; ++k) {
+            SampleStream stream = new SampleStream(sampler, seed, k, count);
+            for (int d = 0; d < dimension; ++d)
+                stream.next();
+            points[k] = stream.next();
+        }
+        return points;
+    }
+
+    /**
+     * Test method for {@link primitives.SampleStream#next()}
+     */
+    @Test
+    public void testStratification() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: 16 samples of a pixel fall one in each cell of a 4x4 grid, in the
+        // first dimension and in a shuffled dimension
+        for (Sampler sampler : new Sampler[] { Sampler.STRATIFIED, Sampler.SOBOL })
+            for (int dimension = 0; dimension < 3; ++dimension) {
+                boolean[] cells = new boolean[16];
+                for (double[] uv : pixelPoints(sampler, SampleStream.seed(3, 7), 16, dimension)) {
+                    assertTrue("Point out of the unit square", uv[0] >= 0 && uv[0] < 1 && uv[1] >= 0 && uv[1] < 1);
+                    int cell = (int) (uv[1] * 4) * 4 + (int) (uv[0] * 4);
+                    assertFalse(sampler + " puts two samples in a cell", cells[cell]);
+                    cells[cell] = true;
+                }
+            }
+
+        // TC02: the same pixel and sample always get the same points
+        for (Sampler sampler : Sampler.values())
+            assertArrayEquals("Samples are not deterministic", pixelPoints(sampler, SampleStream.seed(5, 5), 8, 2),
+                    pixelPoints(sampler, SampleStream.seed(5, 5), 8, 2));
+
+        // TC03: different pixels are decorrelated
+        assertNotEquals("Pixels share their samples", pixelPoints(Sampler.SOBOL, SampleStream.seed(1, 0), 1, 1)[0][0],
+                pixelPoints(Sampler.SOBOL, SampleStream.seed(0, 1), 1, 1)[0][0], 0);
+    }
+
+    /**
+     * Test method for {@link primitives.SampleStream#next(int)} - estimating the
+     * area of a quarter disc with the samplers must have a lower error than with
+     * independent random points
+     */
+    @Test
+    public void testLowerNoise() {
+        final int pixels = 500, count = 64;
+        Random random = new Random(7);
+        double randomError = 0;
+        for (int p = 0; p < pixels; ++p) {
+            int inside = 0;
+            for (int k = 0; k < count; ++k) {
+                double u = random.nextDouble(), v = random.nextDouble();
+                if (u * u + v * v < 1)
+                    ++inside;
+            }
+            randomError += Math.pow((double) inside / count - Math.PI / 4, 2);
+        }
+
+        for (Sampler sampler : Sampler.values()) {
+            double error = 0;
+            for (int p = 0; p < pixels; ++p) {
+                int inside = 0;
+                for (double[] uv : pixelPoints(sampler, SampleStream.seed(p, 0), count, 1))
+                    if (uv[0] * uv[0] + uv[1] * uv[1] < 1)
+                        ++inside;
+                error += Math.pow((double) inside / count - Math.PI / 4, 2);
+            }
+            assertTrue(sampler + " is noisier than random points", error < randomError / 2);
+        }
+    }
+}
@@ -314,4 +314,24 @@ public class VectorTests {
         assertFalse("Vectors should not Be equals", vector.equals(differentClassObj));
     }
 
+    /**
+     * Test method for {@link primitives.Vector#orthogonalVector()}.
+     */
+    @Test
+    public void testOrthogonalVector() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: components of mixed signs
+        Vector vector = new Vector(-1, 1, -1);
+        Vector orthogonal = vector.orthogonalVector();
+        assertTrue("Vector is not orthogonal", isZero(vector.dotProduct(orthogonal)));
+        assertEquals("Vector is not normalized", 1, orthogonal.length(), 0.00001);
+
+        vector = new Vector(3, -2, 5);
+        assertTrue("Vector is not orthogonal", isZero(vector.dotProduct(vector.orthogonalVector())));
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a vector along an axis
+        vector = new Vector(0, 0, -2);
+        assertTrue("Vector is not orthogonal", isZero(vector.dotProduct(vector.orthogonalVector())));
+    }
 }
@@ -1,5 +1,10 @@
 package unittests.renderer;
 
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.junit.Test;
 
 import elements.*;
@@ -80,4 +85,35 @@ public class AdaptiveTest {
         render.renderImage();
         render.writeToImage();
     }
+
+    /**
+     * Test method for {@link renderer.RenderBase#adaptiveSuperSampling(int, int, renderer.SampleLattice)}
+     * - every sample ray must be traced at most once in the image, also where the
+     * pixels and the tiles meet
+     */
+    @Test
+    public void adaptiveSamplesTracedOnce() {
+        setScene();
+        RayTracerBase beams = new RayTracerBasic(scene);
+        Map<String, Integer> traced = new ConcurrentHashMap<>();
+        RayTracerBase tracer = new RayTracerBase(scene) {
+            @Override
+            public Color traceRay(Ray ray) {
+                Point3D dir = ray.getDir().getHead();
+                traced.merge(String.format("%.9f %.9f %.9f", dir.getX(), dir.getY(), dir.getZ()), 1, Integer::sum);
+                return beams.traceRay(ray);
+            }
+        };
+        RenderBase render = new MultiThreadsRender().setMultithreading(3) //
+                .setAntiAliasingLevel(4).setAdaptive(true).setTileSize(10) //
+                .setImageWriter(new ImageWriter("antialiasing adaptive lattice", 100, 100)) //
+                .setCamera(camera) //
+                .setRayTracer(tracer);
+        render.renderImage();
+
+        for (Map.Entry<String, Integer> entry : traced.entrySet())
+            assertEquals("Ray traced more than once: " + entry.getKey(), 1, (int) entry.getValue());
+        // the pixel corners are shared by 4 pixels - less than 4 corners and a center per pixel
+        assertTrue("Corners are not shared", traced.size() < 100 * 100 * 5);
+    }
 }
@@ -0,0 +1,239 @@
+package unittests.renderer;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import elements.*;
+import geometries.*;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
+
+/**
+ * Testing {@link renderer.AnimationRender}
+ */
+public class AnimationRenderTests {
+    private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
+    private static final int FRAMES = 6;
+
+    private Camera camera = new Camera(new Point3D(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+            .setViewPlaneSize(200, 200).setViewPlaneDistance(1000);
+
+    private Scene scene = new Scene("Test scene") //
+            .setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.15));
+
+    /**
+     * A ray tracer that fails after an amount of camera rays
+     */
+    private static class FailingTracer extends RayTracerBasic {
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicLong raysLeft;
+
+        FailingTracer(Scene scene, long rays) {
+            super(scene);
+            raysLeft = new AtomicLong(rays);
+        }
+
+        @Override
+        public Color traceRay(Ray ray, SampleStream samples) {
+            if (raysLeft.decrementAndGet() < 0)
+                throw new IllegalStateException("Tracer failure");
+            return super.traceRay(ray, samples);
+        }
+    }
+
+    /**
+     * setting a scene of spheres above a floor, with a BVH
+     */
+    private void setScene() {
+        scene.geometries.add( //
+                new Polygon(new Point3D(-150, -150, -150), new Point3D(150, -150, -150),
+                        new Point3D(150, 150, -150), new Point3D(-150, 150, -150)) //
+                                .setEmission(new Color(20, 20, 20)) //
+                                .setMaterial(new Material().setKD(0.5).setKS(0.3).setNShininess(30)), //
+                new Sphere(new Point3D(-50, -50, -100), 30) //
+                        .setEmission(new Color(java.awt.Color.BLUE)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(100)), //
+                new Sphere(new Point3D(50, 40, -120), 25) //
+                        .setEmission(new Color(java.awt.Color.RED)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(100)), //
+                new Sphere(new Point3D(0, 70, -80), 15) //
+                        .setEmission(new Color(java.awt.Color.GREEN)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(100)));
+        scene.lights.add(new SpotLight(new Color(700, 400, 400), new Point3D(100, -100, 100), new Vector(-1, 1, -2)) //
+                .setKL(0.00001).setKQ(0.000005));
+        scene.geometries.buildBVHTree();
+    }
+
+    /**
+     * Test method for {@link renderer.AnimationRender#renderAnimation()} - the
+     * frames rendered concurrently must be the same as frames rendered one after
+     * another.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testRotationSequence() throws IOException {
+        setScene();
+        RayTracerBase tracer = new RayTracerBasic(scene);
+        List<Camera> path = AnimationRender.cameraPath(camera, FRAMES, c -> c.rotateCameraClockWise(15));
+
+        for (int i = 0; i < FRAMES; ++i) {
+            RenderBase render = new Render() //
+                    .setImageWriter(new ImageWriter(String.format("animationSerial-%04d", i), 200, 200)) //
+                    .setCamera(path.get(i)) //
+                    .setRayTracer(tracer);
+            render.renderImage();
+            render.writeToImage();
+        }
+
+        new AnimationRender().setFrames(path).setRayTracer(tracer) //
+                .setImage("animationConcurrent", 200, 200) //
+                .setMultithreading(3).setTileSize(25) //
+                .renderAnimation();
+
+        for (int i = 0; i < FRAMES; ++i) {
+            ImageDiff diff = ImageDiff.compare(
+                    new File(String.format("%s/animationSerial-%04d.png", FOLDER_PATH, i)),
+                    new File(String.format("%s/animationConcurrent-%04d.png", FOLDER_PATH, i)), 0);
+            assertTrue("Wrong pixels in frame " + i + ": " + diff, diff.isSame());
+        }
+    }
+
+    /**
+     * Test method for {@link renderer.AnimationRender#setEdgeAntiAliasing(boolean)}
+     * - the frames must be the same as frames rendered one after another with edge
+     * anti aliasing.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testEdgeAntiAliasing() throws IOException {
+        setScene();
+        RayTracerBase tracer = new RayTracerBasic(scene);
+        List<Camera> path = AnimationRender.cameraPath(camera, 3, c -> c.rotateCameraClockWise(15));
+
+        for (int i = 0; i < path.size(); ++i) {
+            RenderBase render = new Render() //
+                    .setAntiAliasingLevel(3) //
+                    .setEdgeAntiAliasing(true) //
+                    .setImageWriter(new ImageWriter(String.format("animationEdgeSerial-%04d", i), 100, 100)) //
+                    .setCamera(path.get(i)) //
+                    .setRayTracer(tracer);
+            render.renderImage();
+            render.writeToImage();
+        }
+
+        new AnimationRender().setFrames(path).setRayTracer(tracer) //
+                .setImage("animationEdge", 100, 100) //
+                .setAntiAliasingLevel(3) //
+                .setEdgeAntiAliasing(true) //
+                .setMultithreading(3) //
+                .setTileSize(25) //
+                .renderAnimation();
+
+        for (int i = 0; i < path.size(); ++i) {
+            ImageDiff diff = ImageDiff.compare(
+                    new File(String.format("%s/animationEdgeSerial-%04d.png", FOLDER_PATH, i)),
+                    new File(String.format("%s/animationEdge-%04d.png", FOLDER_PATH, i)), 0);
+            assertTrue("Wrong pixels in frame " + i + ": " + diff, diff.isSame());
+        }
+        RenderBase plain = new Render() //
+                .setImageWriter(new ImageWriter("animationEdgePlain", 100, 100)) //
+                .setCamera(path.get(0)) //
+                .setRayTracer(tracer);
+        plain.renderImage();
+        plain.writeToImage();
+        ImageDiff diff = ImageDiff.compare(new File(FOLDER_PATH + "/animationEdgePlain.png"),
+                new File(FOLDER_PATH + "/animationEdge-0000.png"), 0);
+        assertFalse("Edge anti aliasing was not forwarded to the frames", diff.isSame());
+    }
+
+    /**
+     * Test method for {@link renderer.AnimationRender#setReprojection(boolean)} -
+     * the frames of a slow camera move reuse most of the previous frames, and stay
+     * close to the fully traced frames.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testReprojection() throws IOException {
+        Material matte = new Material().setKD(0.6);
+        scene.geometries.add( //
+                new Polygon(new Point3D(-150, -150, -150), new Point3D(150, -150, -150),
+                        new Point3D(150, 150, -150), new Point3D(-150, 150, -150)) //
+                                .setEmission(new Color(20, 20, 20)).setMaterial(matte), //
+                new Sphere(new Point3D(-50, -50, -100), 30) //
+                        .setEmission(new Color(java.awt.Color.BLUE)).setMaterial(matte), //
+                new Sphere(new Point3D(50, 40, -120), 25) //
+                        .setEmission(new Color(java.awt.Color.RED)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(100)));
+        scene.lights.add(new SpotLight(new Color(700, 400, 400), new Point3D(100, -100, 100), new Vector(-1, 1, -2)) //
+                .setKL(0.00001).setKQ(0.000005));
+        scene.geometries.buildBVHTree();
+        RayTracerBase tracer = new RayTracerBasic(scene);
+        List<Camera> path = AnimationRender.cameraPath(camera, FRAMES,
+                c -> c.moveCamera(c.getPosition().add(new Vector(10, 5, 0)), new Point3D(0, 0, -100)));
+
+        long[] rays = new long[2];
+        for (int i = 0; i < 2; ++i) {
+            RenderProgress[] last = new RenderProgress[1];
+            new AnimationRender().setFrames(path).setRayTracer(tracer) //
+                    .setImage(i == 0 ? "animationTraced" : "animationReprojected", 200, 200) //
+                    .setAntiAliasingLevel(3).setReprojection(i == 1) //
+                    .setMultithreading(2).setTileSize(25) //
+                    .setProgressListener(p -> last[0] = p) //
+                    .renderAnimation();
+            rays[i] = last[0].getRaysTraced();
+        }
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: most of the pixels are reused (each pixel still casts a ray to find
+        // its first hit)
+        assertTrue("Reprojection must save a large part of the rays", rays[1] < rays[0] * 3 / 5);
+
+        // TC02: the frames are close to the fully traced frames
+        for (int i = 0; i < FRAMES; ++i) {
+            ImageDiff diff = ImageDiff.compare(new File(String.format("%s/animationTraced-%04d.png", FOLDER_PATH, i)),
+                    new File(String.format("%s/animationReprojected-%04d.png", FOLDER_PATH, i)), 0);
+            assertTrue("Wrong pixels in frame " + i + ": " + diff, diff.getPsnr() > 45 && diff.getSsim() > 0.99);
+        }
+    }
+
+    /**
+     * Test method for {@link renderer.AnimationRender#renderAnimation()} - a failure
+     * in a rendering thread stops the render and is thrown by it (instead of
+     * leaving the other threads waiting for the failed frame).
+     */
+    @Test(timeout = 60_000)
+    public void testFailure() {
+        setScene();
+        List<Camera> path = AnimationRender.cameraPath(camera, FRAMES, c -> c.rotateCameraClockWise(15));
+        AnimationRender render = new AnimationRender().setFrames(path) //
+                .setRayTracer(new FailingTracer(scene, 200 * 200 + 1000)) //
+                .setImage("animationFailure", 200, 200) //
+                .setMultithreading(3).setTileSize(25).setFramesInFlight(1);
+        IllegalStateException e = assertThrows("Render failure was not thrown", IllegalStateException.class,
+                render::renderAnimation);
+        assertEquals("Wrong failure", "Tracer failure", e.getMessage());
+    }
+
+    /**
+     * Test method for {@link renderer.AnimationRender#cameraPath(Camera, int, java.util.function.Consumer)}
+     */
+    @Test
+    public void testCameraPath() {
+        List<Camera> path = AnimationRender.cameraPath(camera, 3, c -> c.rotateCameraClockWise(90));
+        assertEquals("Wrong amount of frames", 3, path.size());
+        assertEquals("First frame must be the start camera", camera, path.get(0));
+        assertNotEquals("Frames must differ", path.get(0), path.get(1));
+        assertEquals("The start camera must not change", new Vector(0, 1, 0), camera.getVUp());
+    }
+}
@@ -0,0 +1,126 @@
+package unittests.renderer;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Test;
+
+import elements.*;
+import geometries.*;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
+
+/**
+ * Testing {@link renderer.CostMap}
+ */
+public class CostMapTests {
+    private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
+
+    /**
+     * Test method for {@link renderer.CostMap#split(int)}
+     */
+    @Test
+    public void testSplit() {
+        // 10 x 6 blocks of 8 pixels, the last column and row are cut, and the
+        // top left corner is 100 times more expensive
+        final int nX = 75, nY = 45, columns = 10, rows = 6;
+        double[] costs = new double[columns * rows];
+        for (int i = 0; i < rows; ++i)
+            for (int j = 0; j < columns; ++j)
+                costs[i * columns + j] = i < 2 && j < 2 ? 100 : 1;
+        CostMap map = new CostMap(nX, nY, 8, costs);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the tiles cover the image exactly once
+        List<Tile> tiles = map.split(8);
+        assertEquals("Wrong amount of tiles", 8, tiles.size());
+        int[] covered = new int[nX * nY];
+        for (Tile tile : tiles)
+            for (int y = tile.y; y < tile.y + tile.height; ++y)
+                for (int x = tile.x; x < tile.x + tile.width; ++x)
+                    ++covered[y * nX + x];
+        for (int count : covered)
+            assertEquals("Pixel is not covered exactly once", 1, count);
+
+        // TC02: the expensive tiles are smaller than the cheap ones
+        Tile expensive = tiles.stream().filter(t -> t.x == 0 && t.y == 0).findFirst().get();
+        Tile cheap = tiles.stream().filter(t -> t.x + t.width == nX && t.y + t.height == nY).findFirst().get();
+        assertTrue("Expensive tile must be smaller", expensive.size() < cheap.size());
+        double total = 0;
+        for (Tile tile : tiles)
+            total += map.cost(tile);
+        assertEquals("Wrong total cost", map.getTotalCost(), total, 1e-6);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: more tiles than blocks - every block is a tile
+        assertEquals("Wrong amount of tiles", columns * rows, map.split(1000).size());
+        // TC12: a single tile
+        assertEquals("Wrong single tile", new Tile(0, 0, nX, nY), map.split(1).get(0));
+    }
+
+    /**
+     * Test method for {@link renderer.RenderBase#setCostPrepass(int)} - the image
+     * rendered with tiles of equal cost must be the same as without the pre-pass
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testCostPrepass() throws IOException {
+        Scene scene = new Scene("Test scene") //
+                .setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.15));
+        scene.geometries.add( //
+                new Sphere(new Point3D(-40, 0, -50), 40) //
+                        .setEmission(new Color(java.awt.Color.BLUE)) //
+                        .setMaterial(new Material().setKD(0.4).setKS(0.3).setNShininess(100).setKT(0.5)), //
+                new Sphere(new Point3D(-40, 0, -50), 20) //
+                        .setEmission(new Color(java.awt.Color.RED)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(100)), //
+                new Sphere(new Point3D(50, 30, -50), 20) //
+                        .setEmission(new Color(java.awt.Color.GREEN)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(100)));
+        scene.lights.add(new SpotLight(new Color(700, 400, 400), new Point3D(-100, -100, 200), new Vector(1, 1, -3)) //
+                .setKL(0.00001).setKQ(0.000005));
+        Camera camera = new Camera(new Point3D(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+                .setViewPlaneSize(200, 200).setViewPlaneDistance(1000);
+        RayTracerBase tracer = new RayTracerBasic(scene);
+
+        RenderBase render = new Render() //
+                .setImageWriter(new ImageWriter("costPrepassOff", 200, 200)) //
+                .setCamera(camera) //
+                .setRayTracer(tracer);
+        render.renderImage();
+        render.writeToImage();
+
+        render = new MultiThreadsRender().setMultithreading(3) //
+                .setCostPrepass(8) //
+                .setImageWriter(new ImageWriter("costPrepassOn", 200, 200)) //
+                .setCamera(camera) //
+                .setRayTracer(tracer);
+        render.renderImage();
+        render.writeToImage();
+
+        ImageDiff diff = ImageDiff.compare(new File(FOLDER_PATH + "/costPrepassOff.png"),
+                new File(FOLDER_PATH + "/costPrepassOn.png"), 0);
+        assertTrue("Wrong pixels: " + diff, diff.isSame());
+    }
+
+    /**
+     * Test method for {@link renderer.RenderBase#setCostPrepass(int)} - the tiles
+     * of equal cost cannot be streamed by rows
+     */
+    @Test
+    public void testCostPrepassStreaming() {
+        Camera camera = new Camera(new Point3D(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+                .setViewPlaneSize(200, 200).setViewPlaneDistance(1000);
+        RenderBase render = new Render() //
+                .setCostPrepass(8) //
+                .setImageWriter(new StreamingImageWriter("costPrepassStreaming", 100, 100, 16)) //
+                .setCamera(camera) //
+                .setRayTracer(new RayTracerBasic(new Scene("Test scene")));
+        assertThrows("Cost pre-pass with a streaming writer", IllegalArgumentException.class, render::renderImage);
+    }
+}
@@ -0,0 +1,100 @@
+package unittests.renderer;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import elements.*;
+import geometries.*;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
+
+/**
+ * Testing {@link renderer.Denoiser} with the {@link renderer.AuxiliaryBuffers}
+ */
+public class DenoiserTests {
+    private static final int SIZE = 150;
+
+    private Camera camera = new Camera(new Point3D(1000, 0, 250), new Vector(-1000, 0, -250),
+            new Vector(-250, 0, 1000)) //
+                    .setViewPlaneSize(200, 200).setViewPlaneDistance(1000);
+
+    /**
+     * Create a scene of spheres on a floor, lit by an area spot light
+     *
+     * @return the scene
+     */
+    private static Scene createScene() {
+        Scene scene = new Scene("Test scene").setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.15));
+        scene.geometries.add( //
+                new Polygon(new Point3D(200, 200, 0), new Point3D(200, -200, 0), new Point3D(-200, -200, 0),
+                        new Point3D(-200, 200, 0)) //
+                                .setEmission(new Color(java.awt.Color.BLACK)) //
+                                .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(30)),
+                new Sphere(new Point3D(-40, -60, 30), 30) //
+                        .setEmission(new Color(java.awt.Color.YELLOW)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(30)),
+                new Sphere(new Point3D(-60, 20, 20), 20) //
+                        .setEmission(new Color(java.awt.Color.CYAN)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(30)));
+        scene.lights.add(new SpotLight(new Color(700, 700, 700), new Point3D(200, -200, 200), new Vector(-1, 1, -1)) //
+                .setKL(4E-4).setKQ(2E-5).setSquareEdge(150));
+        scene.geometries.buildBVHTree();
+        return scene;
+    }
+
+    /**
+     * Render the scene with soft shadows
+     *
+     * @param scene     the scene
+     * @param rays      amount of shadow rays
+     * @param imageName the image file name
+     * @param buffers   the auxiliary buffers, or null
+     * @return the image writer
+     */
+    private ImageWriter render(Scene scene, int rays, String imageName, AuxiliaryBuffers buffers) {
+        ImageWriter writer = new ImageWriter(imageName, SIZE, SIZE);
+        RenderBase render = new Render() //
+                .setImageWriter(writer) //
+                .setAuxiliaryBuffers(buffers) //
+                .setCamera(camera) //
+                .setRayTracer(new RayTracerBeams(scene).setNumOfRays(rays));
+        render.renderImage();
+        return writer;
+    }
+
+    /**
+     * Test method for
+     * {@link renderer.Denoiser#denoise(ImageWriter, AuxiliaryBuffers)} - a few
+     * shadow rays denoised must be closer to many shadow rays than without
+     * denoising
+     */
+    @Test
+    public void testDenoise() {
+        Scene scene = createScene();
+        ImageWriter reference = render(scene, 256, "denoiseReference", null);
+        AuxiliaryBuffers buffers = new AuxiliaryBuffers(SIZE, SIZE);
+        ImageWriter noisy = render(scene, 2, "denoiseNoisy", buffers);
+        ImageDiff before = ImageDiff.compare(reference.getImage(), noisy.getImage(), 0);
+
+        new Denoiser().setMultithreading(2).denoise(noisy, buffers);
+        ImageDiff after = ImageDiff.compare(reference.getImage(), noisy.getImage(), 0);
+        reference.writeToImage();
+        noisy.writeToImage();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the denoised image is much closer to the reference
+        assertTrue("Denoising does not reduce the noise", after.getPsnr() > before.getPsnr() + 2);
+        assertTrue("Denoising does not keep the structure", after.getSsim() > before.getSsim());
+
+        // TC02: the auxiliary buffers have the first hits
+        assertEquals("Background must have no geometry", AuxiliaryBuffers.BACKGROUND,
+                buffers.getGeometryId(0, 0));
+        assertEquals("Background must be infinitely far", Double.POSITIVE_INFINITY, buffers.getDepth(0, 0), 0);
+        int floor = buffers.getGeometryId(SIZE / 2, 100);
+        assertNotEquals("Floor must have a geometry", AuxiliaryBuffers.BACKGROUND, floor);
+        assertEquals("Wrong floor normal", new Vector(0, 0, 1), buffers.getNormal(SIZE / 2, 100));
+        assertEquals("Wrong floor albedo", new Color(127.5, 127.5, 127.5), buffers.getAlbedo(SIZE / 2, 100));
+    }
+}
@@ -0,0 +1,219 @@
+package unittests.renderer;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import elements.*;
+import geometries.*;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
+
+/**
+ * Testing {@link renderer.DistributedRender} with worker processes on the local
+ * machine.
+ */
+public class DistributedRenderTests {
+    private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
+
+    private Scene scene = new Scene("Test scene");
+    private Camera camera = new Camera(new Point3D(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+            .setViewPlaneSize(200, 200).setViewPlaneDistance(1000);
+
+    /**
+     * setting a scene with reflections, transparency and shadows
+     */
+    private void setScene() {
+        scene.setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.1));
+        scene.geometries.add( //
+                new Sphere(new Point3D(-30, 0, -100), 40) //
+                        .setEmission(new Color(java.awt.Color.BLUE)) //
+                        .setMaterial(new Material().setKD(0.4).setKS(0.3).setNShininess(100).setKT(0.3)), //
+                new Sphere(new Point3D(40, 30, -150), 30) //
+                        .setEmission(new Color(java.awt.Color.RED)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(100)), //
+                new Triangle(new Point3D(-150, -150, -200), new Point3D(150, -150, -200), new Point3D(0, 150, -250)) //
+                        .setEmission(new Color(20, 20, 20)) //
+                        .setMaterial(new Material().setKD(0.5).setKR(0.5)));
+        scene.lights.add(new SpotLight(new Color(800, 500, 0), new Point3D(-100, -100, 200), new Vector(1, 1, -3)) //
+                .setKL(0.00001).setKQ(0.000005));
+        scene.lights.add(new DirectionalLight(new Color(100, 100, 100), new Vector(0, -1, -1)));
+    }
+
+    /**
+     * Find a free port on the local machine.
+     *
+     * @return a free port number
+     * @throws IOException
+     */
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Start a worker process (a separate JVM) on the local machine.
+     *
+     * @param port the coordinator port
+     * @return the worker process
+     * @throws IOException
+     */
+    private static Process startWorker(int port) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), RenderWorker.class.getName(),
+                "localhost", Integer.toString(port)).inheritIO().start();
+    }
+
+    /**
+     * Test method for {@link renderer.DistributedRender#renderImage()} - several
+     * worker JVMs and one worker that is lost after it takes a tile. The result must
+     * be the same as the local render.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLocalWorkers() throws Exception {
+        setScene();
+        ImageWriter reference = new ImageWriter("distributedLocalReference", 200, 200);
+        AuxiliaryBuffers referenceHits = new AuxiliaryBuffers(200, 200);
+        RenderBase render = new Render() //
+                .setAuxiliaryBuffers(referenceHits) //
+                .setImageWriter(reference) //
+                .setCamera(camera) //
+                .setRayTracer(new RayTracerBasic(scene));
+        render.renderImage();
+        render.writeToImage();
+
+        int port = freePort();
+        // a worker that takes a tile and dies without returning it
+        AtomicBoolean lostTile = new AtomicBoolean(false);
+        Thread lostWorker = new Thread(() -> {
+            for (int attempt = 0; attempt < 100 && !lostTile.get(); ++attempt) {
+                try (Socket socket = new Socket("localhost", port)) {
+                    DataInputStream in = new DataInputStream(socket.getInputStream());
+                    in.readFully(new byte[in.readInt()]);
+                    lostTile.set(in.readInt() >= 0);
+                } catch (IOException e) {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+            }
+        });
+        lostWorker.start();
+
+        List<Process> workers = new LinkedList<>();
+        ImageWriter distributed = new ImageWriter("distributedLocalWorkers", 200, 200);
+        AuxiliaryBuffers distributedHits = new AuxiliaryBuffers(200, 200);
+        try {
+            workers.add(startWorker(port));
+            workers.add(startWorker(port));
+            render = new DistributedRender().setPort(port).setBindAddress(InetAddress.getByName("localhost")) //
+                    .setTileSize(25) //
+                    .setAuxiliaryBuffers(distributedHits) //
+                    .setImageWriter(distributed) //
+                    .setCamera(camera) //
+                    .setRayTracer(new RayTracerBasic(scene));
+            render.renderImage();
+            render.writeToImage();
+        } finally {
+            for (Process worker : workers)
+                worker.destroy();
+            lostWorker.join();
+        }
+        assertTrue("The lost worker did not take a tile", lostTile.get());
+
+        ImageDiff diff = ImageDiff.compare(new File(FOLDER_PATH + "/distributedLocalReference.png"),
+                new File(FOLDER_PATH + "/distributedLocalWorkers.png"), 0);
+        assertTrue("Wrong pixels: " + diff, diff.isSame());
+        // the colors are sent in full precision, and the first hits by the workers
+        // (the geometry identifiers are given by order of arrival)
+        Map<Integer, Integer> ids = new HashMap<>();
+        for (int i = 0; i < 200; ++i)
+            for (int j = 0; j < 200; ++j) {
+                assertEquals("Wrong color in the framebuffer", reference.getPixel(j, i), distributed.getPixel(j, i));
+                assertEquals("Wrong normal", referenceHits.getNormal(j, i), distributedHits.getNormal(j, i));
+                assertEquals("Wrong albedo", referenceHits.getAlbedo(j, i), distributedHits.getAlbedo(j, i));
+                assertEquals("Wrong depth", referenceHits.getDepth(j, i), distributedHits.getDepth(j, i), 0);
+                int id = distributedHits.getGeometryId(j, i);
+                assertEquals("Wrong geometry", id, (int) ids.merge(referenceHits.getGeometryId(j, i), id, (a, b) -> a));
+            }
+        assertEquals("Geometries are mixed up", ids.size(), new HashSet<>(ids.values()).size());
+    }
+
+    /**
+     * Test method for {@link renderer.DistributedRender#renderImage()} - a render
+     * that no worker connects to fails after the worker timeout.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testNoWorkers() throws Exception {
+        setScene();
+        RenderBase render = new DistributedRender().setPort(freePort()).setWorkerTimeout(300).setTileSize(25) //
+                .setImageWriter(new ImageWriter("distributedNoWorkers", 50, 50)) //
+                .setCamera(camera) //
+                .setRayTracer(new RayTracerBasic(scene));
+        assertThrows("Render with no workers did not fail", IllegalStateException.class, render::renderImage);
+    }
+
+    /**
+     * A serializable class that is not a part of a render job
+     */
+    private static class Payload implements Serializable {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Test method for {@link renderer.RenderWorker#run()} - a worker must not
+     * deserialize classes that a render job does not hold.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testForeignJob() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new Payload());
+        }
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread coordinator = new Thread(() -> {
+                try (Socket socket = server.accept()) {
+                    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                    out.writeInt(bytes.size());
+                    out.write(bytes.toByteArray());
+                    out.flush();
+                    socket.getInputStream().read();
+                } catch (IOException e) {
+                    // the worker has closed the connection
+                }
+            });
+            coordinator.start();
+            assertThrows("Foreign class was deserialized", InvalidClassException.class,
+                    () -> new RenderWorker("localhost", server.getLocalPort()).run());
+            coordinator.join();
+        }
+    }
+}
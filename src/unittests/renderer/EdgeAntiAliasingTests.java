@@ -0,0 +1,109 @@
+package unittests.renderer;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import elements.*;
+import geometries.*;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
+
+/**
+ * Testing {@link renderer.RenderBase#setEdgeAntiAliasing(boolean)}
+ */
+public class EdgeAntiAliasingTests {
+    private static final int SIZE = 150;
+
+    private Camera camera = new Camera(new Point3D(1000, 0, 250), new Vector(-1000, 0, -250),
+            new Vector(-250, 0, 1000)) //
+                    .setViewPlaneSize(200, 200).setViewPlaneDistance(1000);
+
+    /**
+     * Create a scene of spheres on a floor of two triangles, lit by a spot light
+     *
+     * @return the scene
+     */
+    private static Scene createScene() {
+        Scene scene = new Scene("Test scene").setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.15));
+        Material floor = new Material().setKD(0.5).setKS(0.5).setNShininess(30);
+        scene.geometries.add( //
+                new Triangle(new Point3D(200, 200, 0), new Point3D(200, -200, 0), new Point3D(-200, -200, 0)) //
+                        .setMaterial(floor), //
+                new Triangle(new Point3D(200, 200, 0), new Point3D(-200, -200, 0), new Point3D(-200, 200, 0)) //
+                        .setMaterial(floor), //
+                new Sphere(new Point3D(-40, -60, 30), 30) //
+                        .setEmission(new Color(java.awt.Color.YELLOW)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(30)),
+                new Sphere(new Point3D(-60, 20, 20), 20) //
+                        .setEmission(new Color(java.awt.Color.CYAN)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(30)));
+        scene.lights.add(new SpotLight(new Color(700, 700, 700), new Point3D(200, -200, 200), new Vector(-1, 1, -1)) //
+                .setKL(4E-4).setKQ(2E-5));
+        scene.geometries.buildBVHTree();
+        return scene;
+    }
+
+    /**
+     * Render the scene with 4x4 super sampling
+     *
+     * @param render    the renderer
+     * @param imageName the image file name
+     * @param edges     true for edge anti aliasing
+     * @param rays      array for the amount of camera rays traced
+     * @return the image writer
+     */
+    private ImageWriter render(RenderBase render, String imageName, boolean edges, long[] rays) {
+        ImageWriter writer = new ImageWriter(imageName, SIZE, SIZE);
+        RenderProgress[] last = new RenderProgress[1];
+        render.setImageWriter(writer) //
+                .setCamera(camera) //
+                .setRayTracer(new RayTracerBasic(createScene())) //
+                .setAntiAliasingLevel(4) //
+                .setEdgeAntiAliasing(edges) //
+                .setProgressListener(p -> last[0] = p);
+        render.renderImage();
+        rays[0] = last[0].getRaysTraced();
+        writer.writeToImage();
+        return writer;
+    }
+
+    /**
+     * Test method for {@link renderer.RenderBase#setEdgeAntiAliasing(boolean)}
+     */
+    @Test
+    public void testEdgeAntiAliasing() {
+        long[] fullRays = new long[1], edgeRays = new long[1];
+        ImageWriter full = render(new Render(), "edgeAntiAliasingFull", false, fullRays);
+        AuxiliaryBuffers buffers = new AuxiliaryBuffers(SIZE, SIZE);
+        ImageWriter edges = render(new Render().setAuxiliaryBuffers(buffers), "edgeAntiAliasing", true, edgeRays);
+        ImageDiff diff = ImageDiff.compare(full.getImage(), edges.getImage(), 0);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: only the edges are super sampled
+        assertEquals("Wrong amount of rays of full super sampling", SIZE * SIZE * 16, fullRays[0]);
+        assertTrue("Flat pixels must not be super sampled", edgeRays[0] < fullRays[0] / 4);
+
+        // TC02: the image is as the fully super sampled one
+        assertTrue("Edges are not anti aliased", diff.getPsnr() > 40);
+        assertTrue("Edges are not anti aliased", diff.getSsim() > 0.98);
+
+        // TC03: the auxiliary buffers are filled by the first pass
+        assertEquals("Background must have no geometry", AuxiliaryBuffers.BACKGROUND, buffers.getGeometryId(0, 0));
+        assertEquals("Wrong floor normal", new Vector(0, 0, 1), buffers.getNormal(SIZE / 2, 100));
+
+        // TC04: the same image by several threads
+        ImageWriter threads = render(new MultiThreadsRender().setMultithreading(3).setTileSize(16),
+                "edgeAntiAliasingThreads", true, edgeRays);
+        assertTrue("Threads render different edges", ImageDiff.compare(edges.getImage(), threads.getImage(), 0).isSame());
+
+        // =============== Boundary Values Tests ==================
+        // TC11: no anti aliasing - a single ray a pixel
+        ImageWriter single = new ImageWriter("edgeAntiAliasingSingle", 20, 20);
+        RenderProgress[] last = new RenderProgress[1];
+        new Render().setImageWriter(single).setCamera(camera).setRayTracer(new RayTracerBasic(createScene()))
+                .setEdgeAntiAliasing(true).setProgressListener(p -> last[0] = p).renderImage();
+        assertEquals("Edge anti aliasing without anti aliasing", 20 * 20, last[0].getRaysTraced());
+    }
+}
@@ -0,0 +1,73 @@
+package unittests.renderer;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import renderer.ImageDiff;
+
+/**
+ * Testing {@link renderer.ImageDiff}
+ */
+public class ImageDiffTests {
+    /**
+     * Create a gradient image
+     *
+     * @return the image
+     */
+    private static BufferedImage gradient() {
+        BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 30; ++y)
+            for (int x = 0; x < 40; ++x)
+                image.setRGB(x, y, (5 * x) << 16 | (7 * y) << 8 | 100);
+        return image;
+    }
+
+    /**
+     * Test method for
+     * {@link renderer.ImageDiff#compare(BufferedImage, BufferedImage, int)}
+     */
+    @Test
+    public void testCompare() {
+        BufferedImage expected = gradient();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the same images
+        ImageDiff diff = ImageDiff.compare(expected, gradient(), 0);
+        assertTrue("Same images differ", diff.isSame());
+        assertEquals("Wrong PSNR of same images", Double.POSITIVE_INFINITY, diff.getPsnr(), 0);
+        assertEquals("Wrong SSIM of same images", 1, diff.getSsim(), 1e-12);
+
+        // TC02: a few pixels differ slightly
+        BufferedImage actual = gradient();
+        actual.setRGB(3, 4, actual.getRGB(3, 4) + 2);
+        actual.setRGB(20, 10, actual.getRGB(20, 10) + (5 << 8));
+        diff = ImageDiff.compare(expected, actual, 0);
+        assertEquals("Wrong amount of different pixels", 2, diff.getDifferentPixels());
+        assertEquals("Wrong max difference", 5, diff.getMaxDifference());
+        assertTrue("Wrong PSNR of close images", diff.getPsnr() > 40);
+        assertTrue("Wrong SSIM of close images", diff.getSsim() > 0.95 && diff.getSsim() < 1);
+        assertEquals("Wrong diff image", 0xFF800000 | 2 << 15, diff.getDiffImage().getRGB(3, 4));
+
+        // TC03: the same pixels within a tolerance
+        diff = ImageDiff.compare(expected, actual, 2);
+        assertEquals("Wrong amount of pixels beyond tolerance", 1, diff.getDifferentPixels());
+        assertEquals("Wrong diff image within tolerance", 0xFF020202, diff.getDiffImage().getRGB(3, 4));
+        assertTrue("Images within tolerance differ", ImageDiff.compare(expected, actual, 5).isSame());
+
+        // TC04: a noisy image has a low similarity
+        for (int y = 0; y < 30; ++y)
+            for (int x = 0; x < 40; ++x)
+                actual.setRGB(x, y, (x + y) % 2 == 0 ? 0 : 0xFFFFFF);
+        diff = ImageDiff.compare(expected, actual, 0);
+        assertTrue("Wrong PSNR of different images", diff.getPsnr() < 10);
+        assertTrue("Wrong SSIM of different images", diff.getSsim() < 0.5);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: images of different sizes
+        assertThrows("Different sizes are compared", IllegalArgumentException.class,
+                () -> ImageDiff.compare(expected, new BufferedImage(40, 31, BufferedImage.TYPE_INT_RGB), 0));
+    }
+}
@@ -1,15 +1,64 @@
 package unittests.renderer;
 
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
 import org.junit.Test;
 
-import primitives.Color;
-import renderer.ImageWriter;
+import elements.*;
+import geometries.*;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
 
 /**
  * A unit testing for {@link renderer.ImageWriter}
  */
 public class ImageWriterTests {
 
+    /**
+     * Create a renderer of a lit sphere in tiles of 10 pixels
+     *
+     * @param writer  the image writer
+     * @param threads amount of rendering threads
+     * @return the renderer
+     */
+    private static RenderBase createRender(ImageWriter writer, int threads) {
+        Scene scene = new Scene("Test scene").setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.15));
+        scene.geometries.add( //
+                new Sphere(new Point3D(0, 0, -50), 40) //
+                        .setEmission(new Color(java.awt.Color.BLUE)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(100)));
+        scene.lights.add(new PointLight(new Color(500, 300, 0), new Point3D(-50, -50, 50)).setKL(0.00001).setKQ(0.000001));
+        Camera camera = new Camera(new Point3D(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+                .setViewPlaneSize(150, 150).setViewPlaneDistance(1000);
+        return new MultiThreadsRender().setMultithreading(threads).setTileSize(10) //
+                .setImageWriter(writer) //
+                .setCamera(camera) //
+                .setRayTracer(new RayTracerBasic(scene));
+    }
+
     /**
      * Test for { @link renderer.ImageWriter#writeToImage() }
      */
@@ -32,4 +81,416 @@ public class ImageWriterTests {
         }
         writer.writeToImage();
     }
+
+    /**
+     * Test for {@link renderer.ImageWriter#getPixel(int, int)},
+     * {@link renderer.ImageWriter#accumulatePixel(int, int, Color, double)} and
+     * {@link renderer.ImageWriter#getImage()}
+     */
+    @Test
+    public void framebufferTest() {
+        ImageWriter writer = new ImageWriter("framebuffer", 3, 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the pixels keep their full precision, with no clamping
+        writer.writePixel(1, 1, new Color(300.25, 12.75, 0.5));
+        Color pixel = writer.getPixel(1, 1);
+        assertEquals("Wrong red", 300.25, pixel.getR(), 0);
+        assertEquals("Wrong green", 12.75, pixel.getG(), 0);
+        assertEquals("Wrong blue", 0.5, pixel.getB(), 0);
+
+        // TC02: the image is quantized as the colors were
+        for (int i = 0; i < 6; ++i)
+            writer.writePixel(i % 3, i / 3, new Color(50.7 * i, 255.9 - i, 90 * i + 0.3));
+        BufferedImage image = writer.getImage();
+        for (int i = 0; i < 6; ++i)
+            assertEquals("Wrong quantized pixel", new Color(50.7 * i, 255.9 - i, 90 * i + 0.3).getColor().getRGB(),
+                    image.getRGB(i % 3, i / 3) | 0xFF000000);
+
+        // TC03: accumulated passes are averaged
+        writer.writePixel(0, 0, Color.BLACK);
+        for (int pass = 0; pass < 4; ++pass)
+            writer.accumulatePixel(0, 0, new Color(10 * pass, 20, 0), 1d / (pass + 1));
+        assertEquals("Wrong average", 15, writer.getPixel(0, 0).getR(), 1e-9);
+        assertEquals("Wrong average", 20, writer.getPixel(0, 0).getG(), 1e-9);
+    }
+
+    /**
+     * Test for {@link renderer.ImageWriter#ImageWriter(String, int, int)} - the
+     * image size must fit a framebuffer
+     */
+    @Test
+    public void imageSizeTest() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: an image with more components than an array can hold
+        assertThrows("Too large framebuffer must throw", IllegalArgumentException.class,
+                () -> new ImageWriter("huge", 50000, 20000));
+        // TC02: a large image without a framebuffer
+        assertEquals("Wrong width", 50000, new StreamingImageWriter("huge", 50000, 20000, 16).getNx());
+
+        // =============== Boundary Values Tests ==================
+        // TC11: no pixels
+        assertThrows("Empty image must throw", IllegalArgumentException.class, () -> new ImageWriter("empty", 0, 5));
+        // TC12: the largest int index is still too large
+        assertThrows("Too large framebuffer must throw", IllegalArgumentException.class,
+                () -> new ImageWriter("huge", 1, Integer.MAX_VALUE / 3 + 1));
+    }
+
+    /**
+     * Test for {@link renderer.PngWriter} - the image must be read back exactly
+     *
+     * @throws IOException
+     */
+    @Test
+    public void pngWriterTest() throws IOException {
+        int nX = 301, nY = 97;
+        int[] rgb = new int[nX * nY];
+        for (int i = 0; i < nY; ++i)
+            for (int j = 0; j < nX; ++j)
+                rgb[i * nX + j] = (i * 7 + j) % 256 << 16 | (i * j) % 256 << 8 | (j % 13 == 0 ? 255 : i % 256);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PngWriter png = new PngWriter(out, nX, nY)) {
+            for (int i = 0; i < nY; ++i)
+                png.writeRow(rgb, i * nX);
+        }
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals("Wrong width", nX, image.getWidth());
+        assertEquals("Wrong height", nY, image.getHeight());
+        for (int i = 0; i < nY; ++i)
+            for (int j = 0; j < nX; ++j)
+                assertEquals("Wrong pixel", rgb[i * nX + j], image.getRGB(j, i) & 0xFFFFFF);
+    }
+
+    /**
+     * Test for {@link renderer.StreamingImageWriter} - a multi threaded render must
+     * give the same image as with a framebuffer
+     *
+     * @throws IOException
+     */
+    @Test
+    public void streamingWriterTest() throws IOException {
+        for (ImageWriter writer : new ImageWriter[] { new ImageWriter("streamingExpected", 157, 143),
+                new StreamingImageWriter("streamingResult", 157, 143, 10) }) {
+            RenderBase render = createRender(writer, 3);
+            render.renderImage();
+            render.writeToImage();
+        }
+
+        String folder = System.getProperty("user.dir") + "/images/";
+        ImageDiff diff = ImageDiff.compare(new File(folder + "streamingExpected.png"),
+                new File(folder + "streamingResult.png"), 0);
+        assertTrue("Wrong pixels: " + diff, diff.isSame());
+    }
+
+    /**
+     * Test for {@link renderer.StreamingImageWriter} - a large image is written
+     * with only a band of rows in memory
+     *
+     * @throws IOException
+     */
+    @Test
+    public void streamingLargeImageTest() throws IOException {
+        int nX = 4000, nY = 3000;
+        ImageWriter writer = new StreamingImageWriter("streamingLarge", nX, nY, 16);
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long baseUsed = runtime.totalMemory() - runtime.freeMemory();
+        long maxUsed = 0;
+        for (int i = 0; i < nY; ++i) {
+            for (int j = 0; j < nX; ++j)
+                writer.writePixel(j, i, new Color(j % 256, i % 256, (i + j) % 256));
+            if (i % 500 == 250) {
+                System.gc();
+                maxUsed = Math.max(maxUsed, runtime.totalMemory() - runtime.freeMemory() - baseUsed);
+            }
+        }
+        writer.writeToImage();
+        // a framebuffer of the image is 288 MB
+        assertTrue("Too much heap in use: " + (maxUsed >> 20) + " MB", maxUsed < 3L * nX * nY * Double.BYTES / 8);
+
+        try (ImageInputStream in = ImageIO.createImageInputStream(
+                new File(System.getProperty("user.dir") + "/images/streamingLarge.png"))) {
+            ImageReader reader = ImageIO.getImageReaders(in).next();
+            reader.setInput(in);
+            assertEquals("Wrong width", nX, reader.getWidth(0));
+            assertEquals("Wrong height", nY, reader.getHeight(0));
+            reader.dispose();
+        }
+    }
+
+    /**
+     * Test for {@link renderer.StreamingImageWriter} - the pixels of the bands
+     * that are not written yet behave as in a framebuffer
+     */
+    @Test
+    public void streamingPixelsTest() {
+        ImageWriter writer = new StreamingImageWriter("streamingPixels", 4, 4, 2);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: accumulated passes are averaged
+        for (int pass = 0; pass < 4; ++pass)
+            writer.accumulatePixel(1, 3, new Color(10 * pass, 20, 0), 1d / (pass + 1));
+        assertEquals("Wrong average", 15, writer.getPixel(1, 3).getR(), 1e-9);
+        assertEquals("Wrong average", 20, writer.getPixel(1, 3).getG(), 1e-9);
+
+        // TC02: a written band is not kept
+        for (int i = 0; i < 2; ++i)
+            for (int j = 0; j < 4; ++j)
+                writer.writePixel(j, i, Color.BLACK);
+        assertThrows("Written band must throw", IllegalStateException.class,
+                () -> writer.accumulatePixel(0, 0, Color.BLACK, 1));
+        assertThrows("Streaming writer has no image", IllegalStateException.class, () -> writer.getImage());
+        assertThrows("Streaming writer cannot be denoised", IllegalArgumentException.class,
+                () -> new Denoiser().denoise(writer, new AuxiliaryBuffers(4, 4)));
+
+        for (int i = 2; i < 4; ++i)
+            for (int j = 0; j < 4; ++j)
+                writer.writePixel(j, i, Color.BLACK);
+        writer.writeToImage();
+    }
+
+    /**
+     * A render into a memory mapped framebuffer that is killed (with no shutdown of
+     * the virtual machine at all) after some tiles are done, run in a separate
+     * process by {@link #mappedWriterTest()}
+     */
+    public static class KilledRender {
+        /**
+         * @param args - not used.
+         */
+        public static void main(String[] args) {
+            ImageWriter writer = new MappedImageWriter("mappedResult", 157, 143, 10, Long.MAX_VALUE) {
+                private int tiles = 0;
+
+                @Override
+                public synchronized void tileDone(Tile tile) {
+                    super.tileDone(tile);
+                    if (++tiles == 100)
+                        Runtime.getRuntime().halt(137);
+                }
+            }.setJobKey("spheres");
+            createRender(writer, 2).renderImage();
+        }
+    }
+
+    /**
+     * Test for {@link renderer.MappedImageWriter} - a render that was killed is
+     * resumed from the tiles it completed, and gives the same image as a complete
+     * render, and the framebuffer is started anew without resume or for another
+     * job
+     *
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    @Test
+    public void mappedWriterTest() throws IOException, InterruptedException {
+        ImageWriter expectedWriter = new ImageWriter("mappedExpected", 157, 143);
+        createRender(expectedWriter, 1).renderImage();
+        BufferedImage expected = expectedWriter.getImage();
+
+        new File(System.getProperty("user.dir") + "/images/mappedResult.framebuffer").delete();
+        Process process = new ProcessBuilder(
+                new File(System.getProperty("java.home"), "bin/java").getPath(), "-cp",
+                System.getProperty("java.class.path"), KilledRender.class.getName()).inheritIO().start();
+        assertEquals("The render was not killed", 137, process.waitFor());
+
+        try (MappedImageWriter writer = new MappedImageWriter("mappedResult", 157, 143, 10, 1000) //
+                .setJobKey("spheres") //
+                .setResume(true)) {
+            assertTrue("The framebuffer was not resumed", writer.isResumed());
+            int done = 0;
+            for (Tile tile : Tile.split(157, 143, 10))
+                if (writer.isTileDone(tile))
+                    ++done;
+            assertTrue("Wrong amount of completed tiles", done >= 100 && done < 240);
+
+            RenderBase render = createRender(writer, 2);
+            render.renderImage();
+            render.writeToImage();
+            ImageDiff diff = ImageDiff.compare(expected,
+                    ImageIO.read(new File(System.getProperty("user.dir") + "/images/mappedResult.png")), 0);
+            assertTrue("Wrong pixels: " + diff, diff.isSame());
+        }
+
+        try (MappedImageWriter writer = new MappedImageWriter("mappedResult", 157, 143, 10, 1000) //
+                .setJobKey("cubes") //
+                .setResume(true)) {
+            assertFalse("The framebuffer of another job was resumed", writer.isResumed());
+            assertFalse("Tile of another job is done", writer.isTileDone(new Tile(0, 0, 10, 10)));
+        }
+        try (MappedImageWriter writer = new MappedImageWriter("mappedResult", 157, 143, 10, 1000) //
+                .setJobKey("cubes")) {
+            assertFalse("The framebuffer was resumed without resume", writer.isResumed());
+        }
+    }
+
+    /**
+     * Test for {@link renderer.ImageEncoder} - the images are encoded in the
+     * background, and the caller waits when the queue is full
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void encoderTest() throws InterruptedException {
+        CountDownLatch disk = new CountDownLatch(1);
+        AtomicInteger written = new AtomicInteger();
+        ImageWriter slow = new ImageWriter("encoder", 1, 1) {
+            @Override
+            protected Runnable prepareEncoding() {
+                return () -> {
+                    try {
+                        disk.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    written.incrementAndGet();
+                };
+            }
+        };
+
+        try (ImageEncoder encoder = new ImageEncoder(1, 1)) {
+            // TC01: an image being encoded and an image in the queue do not block
+            encoder.submit(slow);
+            encoder.submit(slow);
+            assertEquals("Encoding is not in the background", 0, written.get());
+
+            // TC02: a full queue blocks the caller until a place is free
+            Thread caller = new Thread(() -> {
+                try {
+                    encoder.submit(slow);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            caller.start();
+            caller.join(200);
+            assertTrue("Full queue does not block", caller.isAlive());
+            disk.countDown();
+            caller.join();
+        }
+        // TC03: closing waits for all the images
+        assertEquals("Not all the images are written", 3, written.get());
+
+        // TC04: the image is taken when it is submitted
+        ImageWriter writer = new ImageWriter("encoderSnapshot", 2, 2);
+        writer.writePixel(0, 0, new Color(0, 210, 255));
+        try (ImageEncoder encoder = new ImageEncoder(1, 0)) {
+            new MultiThreadsRender().setImageWriter(writer).writeToImage(encoder);
+            writer.writePixel(0, 0, Color.BLACK);
+        }
+        try {
+            BufferedImage image = ImageIO.read(new File(System.getProperty("user.dir") + "/images/encoderSnapshot.png"));
+            assertEquals("The image was not taken on submission", 0x00D2FF, image.getRGB(0, 0) & 0xFFFFFF);
+        } catch (IOException e) {
+            fail("The image was not written");
+        }
+    }
+
+    /**
+     * Test for {@link renderer.ImageEncoder} - an image that cannot be written
+     * fails the encoder when it is closed
+     *
+     * @throws InterruptedException
+     */
+    @Test
+    public void encoderFailureTest() throws InterruptedException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: a png file in a missing folder
+        ImageEncoder png = new ImageEncoder(1, 1);
+        png.submit(new ImageWriter("missing/encoderFailure", 2, 2));
+        IllegalStateException e = assertThrows("Failed encoding must fail the encoder", IllegalStateException.class,
+                png::close);
+        assertTrue("Wrong failure", e.getCause() instanceof UncheckedIOException);
+
+        // TC02: a ppm file in a missing folder
+        ImageEncoder ppm = new ImageEncoder(1, 1);
+        ppm.submit(new ImageWriter("missing/encoderFailure", 2, 2).setFormat(ImageWriter.Format.PPM));
+        assertThrows("Failed encoding must fail the encoder", IllegalStateException.class, ppm::close);
+
+        // TC03: writing right away throws the failure
+        assertThrows("Failed writing must throw", UncheckedIOException.class,
+                () -> new ImageWriter("missing/encoderFailure", 2, 2).writeToImage());
+    }
+
+    /**
+     * Test for
+     * {@link renderer.PngWriter#writeImage(java.nio.channels.WritableByteChannel, int[], int, int, int)}
+     * - the strips compressed in parallel make a single valid zlib stream
+     *
+     * @throws IOException
+     * @throws DataFormatException
+     */
+    @Test
+    public void parallelPngTest() throws IOException, DataFormatException {
+        int nX = 301, nY = 247;
+        int[] rgb = new int[nX * nY];
+        Random random = new Random(7);
+        for (int i = 0; i < rgb.length; ++i)
+            rgb[i] = i % 7 == 0 ? random.nextInt(0x1000000) : (i % nX & 0xFF) << 16 | (i / nX) << 8 | 0x80;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PngWriter.writeImage(Channels.newChannel(bytes), rgb, nX, nY, 4);
+        byte[] png = bytes.toByteArray();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the decoded image has the same pixels
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        for (int i = 0; i < nY; ++i)
+            for (int j = 0; j < nX; ++j)
+                assertEquals("Wrong pixel", rgb[i * nX + j], image.getRGB(j, i) & 0xFFFFFF);
+
+        // TC02: the joined zlib stream is complete and its checksum is right
+        ByteBuffer buffer = ByteBuffer.wrap(png, 8, png.length - 8);
+        ByteArrayOutputStream zlib = new ByteArrayOutputStream();
+        while (buffer.hasRemaining()) {
+            int length = buffer.getInt();
+            byte[] type = new byte[4];
+            buffer.get(type);
+            if (new String(type, StandardCharsets.US_ASCII).equals("IDAT"))
+                zlib.write(png, buffer.position(), length);
+            buffer.position(buffer.position() + length + 4);
+        }
+        Inflater inflater = new Inflater();
+        inflater.setInput(zlib.toByteArray());
+        byte[] raw = new byte[nY * (3 * nX + 1) + 1];
+        assertEquals("Wrong amount of image data", raw.length - 1, inflater.inflate(raw));
+        assertTrue("Unfinished zlib stream", inflater.finished());
+        inflater.end();
+    }
+
+    /**
+     * Test for {@link renderer.ImageWriter#setFormat(renderer.ImageWriter.Format)}
+     * - the uncompressed formats
+     *
+     * @throws IOException
+     */
+    @Test
+    public void netpbmTest() throws IOException {
+        ImageWriter writer = new ImageWriter("netpbm", 3, 2);
+        writer.writePixel(0, 0, new Color(300.5, 20, 1));
+        writer.writePixel(2, 1, new Color(0, 128, 255));
+        String folder = System.getProperty("user.dir") + "/images/";
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: PPM has the 8 bits pixels from the top row
+        writer.setFormat(ImageWriter.Format.PPM).writeToImage();
+        byte[] ppm = Files.readAllBytes(Path.of(folder + "netpbm.ppm"));
+        String header = "P6\n3 2\n255\n";
+        assertEquals("Wrong PPM header", header, new String(ppm, 0, header.length(), StandardCharsets.US_ASCII));
+        assertEquals("Wrong PPM size", header.length() + 18, ppm.length);
+        assertEquals("Wrong PPM pixel", 255, ppm[header.length()] & 0xFF);
+        assertEquals("Wrong PPM pixel", 255, ppm[ppm.length - 1] & 0xFF);
+
+        // TC02: PFM has the full colors from the bottom row
+        writer.setFormat(ImageWriter.Format.PFM).writeToImage();
+        byte[] pfm = Files.readAllBytes(Path.of(folder + "netpbm.pfm"));
+        header = "PF\n3 2\n-1.0\n";
+        assertEquals("Wrong PFM header", header, new String(pfm, 0, header.length(), StandardCharsets.US_ASCII));
+        ByteBuffer floats = ByteBuffer.wrap(pfm, header.length(), pfm.length - header.length())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals("Wrong PFM size", 18 * Float.BYTES, floats.remaining());
+        assertEquals("Wrong PFM pixel", 255, floats.getFloat(header.length() + 8 * Float.BYTES), 0);
+        assertEquals("Wrong PFM pixel", 300.5, floats.getFloat(header.length() + 9 * Float.BYTES), 0);
+    }
 }
@@ -0,0 +1,105 @@
+package unittests.renderer;
+
+import java.util.Arrays;
+
+import elements.*;
+import geometries.*;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
+
+/**
+ * Benchmark of the {@link renderer.PixelTraversal} orders on a large triangle
+ * mesh (not a unit test - run it by its main method). Every order renders the
+ * same image on a single thread, after a warm up round of all the orders for
+ * the JIT compiler, and the best time of several rounds is reported.
+ */
+public class PixelTraversalBenchmark {
+    private static final int ROUNDS = 3;
+    // the mesh is a grid of BLOCKS * BLOCKS blocks of 2 * CELLS * CELLS triangles
+    private static final int BLOCKS = 16;
+    private static final int CELLS = 8;
+    private static final int SIZE = 800;
+
+    /**
+     * Create a wavy surface of 2 * (BLOCKS * CELLS)^2 triangles. Every block is a
+     * BVH tree of its own, and the blocks are the leaves of the scene BVH tree
+     * (building a single tree over all the triangles takes too long).
+     *
+     * @return the scene
+     */
+    private static Scene createScene() {
+        Scene scene = new Scene("Mesh scene") //
+                .setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.15));
+        Material material = new Material().setKD(0.5).setKS(0.3).setNShininess(50);
+        final int n = BLOCKS * CELLS;
+        final double size = 320d / n;
+        Point3D[][] grid = new Point3D[n + 1][n + 1];
+        for (int i = 0; i <= n; ++i)
+            for (int j = 0; j <= n; ++j) {
+                double x = (i - n / 2d) * size, y = (j - n / 2d) * size;
+                grid[i][j] = new Point3D(x, y, -100 + 20 * Math.sin(x / 30) * Math.cos(y / 30));
+            }
+        for (int bi = 0; bi < BLOCKS; ++bi)
+            for (int bj = 0; bj < BLOCKS; ++bj) {
+                Geometries block = new Geometries();
+                for (int i = bi * CELLS; i < (bi + 1) * CELLS; ++i)
+                    for (int j = bj * CELLS; j < (bj + 1) * CELLS; ++j)
+                        block.add( //
+                                new Triangle(grid[i][j], grid[i + 1][j], grid[i + 1][j + 1]) //
+                                        .setEmission(new Color(20, 60, 100)).setMaterial(material), //
+                                new Triangle(grid[i][j], grid[i + 1][j + 1], grid[i][j + 1]) //
+                                        .setEmission(new Color(100, 60, 20)).setMaterial(material));
+                block.buildBVHTree();
+                scene.geometries.add(block);
+            }
+        scene.lights.add(new PointLight(new Color(500, 500, 500), new Point3D(50, 50, 200)) //
+                .setKL(0.00001).setKQ(0.000005));
+        scene.geometries.buildBVHTree();
+        return scene;
+    }
+
+    /**
+     * Render the scene once with a traversal order
+     *
+     * @param tracer    the ray tracer
+     * @param camera    the camera
+     * @param traversal the traversal order
+     * @return the render time in milliseconds
+     */
+    private static long render(RayTracerBase tracer, Camera camera, PixelTraversal traversal) {
+        RenderBase render = new Render().setTraversal(traversal) //
+                .setImageWriter(new ImageWriter("traversalBenchmark", SIZE, SIZE)) //
+                .setCamera(camera) //
+                .setRayTracer(tracer);
+        long start = System.nanoTime();
+        render.renderImage();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Run the benchmark
+     *
+     * @param args - not used.
+     */
+    public static void main(String[] args) {
+        Scene scene = createScene();
+        Camera camera = new Camera(new Point3D(0, -300, 500), new Vector(0, 300, -600), new Vector(0, 2, 1)) //
+                .setViewPlaneSize(200, 200).setViewPlaneDistance(600);
+        RayTracerBase tracer = new RayTracerBasic(scene);
+
+        // warm up
+        for (PixelTraversal traversal : PixelTraversal.values())
+            render(tracer, camera, traversal);
+
+        System.out.printf("%d triangles, %dx%d pixels, best of %d rounds:%n", 2 * BLOCKS * CELLS * BLOCKS * CELLS,
+                SIZE, SIZE, ROUNDS);
+        long[] best = new long[PixelTraversal.values().length];
+        Arrays.fill(best, Long.MAX_VALUE);
+        for (int round = 0; round < ROUNDS; ++round)
+            for (PixelTraversal traversal : PixelTraversal.values())
+                best[traversal.ordinal()] = Math.min(best[traversal.ordinal()], render(tracer, camera, traversal));
+        for (PixelTraversal traversal : PixelTraversal.values())
+            System.out.printf("%-10s %6d ms%n", traversal, best[traversal.ordinal()]);
+    }
+}
@@ -0,0 +1,113 @@
+package unittests.renderer;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import elements.*;
+import geometries.*;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
+
+/**
+ * Testing {@link renderer.PixelTraversal}
+ */
+public class PixelTraversalTests {
+    private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
+
+    /**
+     * Test method for {@link renderer.PixelTraversal#order(int, int)}
+     */
+    @Test
+    public void testOrder() {
+        int[][] sizes = { { 1, 1 }, { 8, 8 }, { 7, 3 }, { 5, 12 } };
+        for (PixelTraversal traversal : PixelTraversal.values())
+            for (int[] size : sizes) {
+                int[] order = traversal.order(size[0], size[1]);
+                assertEquals("Wrong amount of cells", size[0] * size[1], order.length);
+                boolean[] visited = new boolean[order.length];
+                for (int index : order) {
+                    assertFalse(traversal + " visits a cell twice", visited[index]);
+                    visited[index] = true;
+                }
+            }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Hilbert curve of a full power of 2 square moves between adjacent cells
+        int[] order = PixelTraversal.HILBERT.order(16, 16);
+        for (int i = 1; i < order.length; ++i) {
+            int dx = Math.abs(order[i] % 16 - order[i - 1] % 16);
+            int dy = Math.abs(order[i] / 16 - order[i - 1] / 16);
+            assertEquals("Hilbert step is not to an adjacent cell", 1, dx + dy);
+        }
+    }
+
+    /**
+     * Test method for {@link renderer.Tile#split(int, int, int, PixelTraversal)}
+     */
+    @Test
+    public void testSplit() {
+        for (PixelTraversal traversal : PixelTraversal.values()) {
+            int pixels = 0;
+            for (Tile tile : Tile.split(100, 70, 32, traversal))
+                pixels += tile.size();
+            assertEquals("Tiles do not cover the image", 100 * 70, pixels);
+        }
+    }
+
+    /**
+     * Render a triangle mesh scene with all the traversal orders - the images must
+     * be the same
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testMeshTraversals() throws IOException {
+        Scene scene = new Scene("Mesh scene") //
+                .setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.15));
+        Material material = new Material().setKD(0.5).setKS(0.3).setNShininess(50);
+        // a wavy surface of 2 * 16 * 16 triangles
+        final int n = 16;
+        final double size = 20;
+        Point3D[][] grid = new Point3D[n + 1][n + 1];
+        for (int i = 0; i <= n; ++i)
+            for (int j = 0; j <= n; ++j) {
+                double x = (i - n / 2d) * size, y = (j - n / 2d) * size;
+                grid[i][j] = new Point3D(x, y, -100 + 20 * Math.sin(x / 30) * Math.cos(y / 30));
+            }
+        for (int i = 0; i < n; ++i)
+            for (int j = 0; j < n; ++j) {
+                scene.geometries.add( //
+                        new Triangle(grid[i][j], grid[i + 1][j], grid[i + 1][j + 1]) //
+                                .setEmission(new Color(20, 60, 100)).setMaterial(material), //
+                        new Triangle(grid[i][j], grid[i + 1][j + 1], grid[i][j + 1]) //
+                                .setEmission(new Color(100, 60, 20)).setMaterial(material));
+            }
+        scene.lights.add(new PointLight(new Color(500, 500, 500), new Point3D(50, 50, 200)) //
+                .setKL(0.00001).setKQ(0.000005));
+        scene.geometries.buildBVHTree();
+
+        Camera camera = new Camera(new Point3D(0, -300, 500), new Vector(0, 300, -600), new Vector(0, 2, 1)) //
+                .setViewPlaneSize(200, 200).setViewPlaneDistance(600);
+        RayTracerBase tracer = new RayTracerBasic(scene);
+
+        for (PixelTraversal traversal : PixelTraversal.values()) {
+            RenderBase render = new Render().setTraversal(traversal) //
+                    .setImageWriter(new ImageWriter("traversal" + traversal, 300, 300)) //
+                    .setCamera(camera) //
+                    .setRayTracer(tracer);
+            render.renderImage();
+            render.writeToImage();
+        }
+
+        for (PixelTraversal traversal : PixelTraversal.values()) {
+            ImageDiff diff = ImageDiff.compare(new File(FOLDER_PATH + "/traversalROW_MAJOR.png"),
+                    new File(FOLDER_PATH + "/traversal" + traversal + ".png"), 0);
+            assertTrue("Wrong pixels in " + traversal + ": " + diff, diff.isSame());
+        }
+    }
+}
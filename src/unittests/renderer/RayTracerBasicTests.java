@@ -0,0 +1,334 @@
+package unittests.renderer;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import elements.*;
+import geometries.*;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
+
+/**
+ * Testing {@link renderer.RayTracerBasic}
+ */
+public class RayTracerBasicTests {
+    /**
+     * Scene geometries that count the full scene queries
+     */
+    private static class CountingGeometries extends Geometries {
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicLong queries = new AtomicLong();
+
+        @Override
+        public List<GeoPoint> findGeoIntersections(Ray ray) {
+            queries.incrementAndGet();
+            return super.findGeoIntersections(ray);
+        }
+    }
+
+    /**
+     * Create a scene with a big opaque blocker in front of a light, a semi
+     * transparent sphere and a lot of small triangles
+     *
+     * @return the scene
+     */
+    private Scene createScene() {
+        Scene scene = new Scene("Test scene").setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.15));
+        scene.geometries = new CountingGeometries();
+        Material material = new Material().setKD(0.5).setKS(0.5).setNShininess(30);
+        scene.geometries.add( //
+                new Polygon(new Point3D(-300, -300, 0), new Point3D(300, -300, 0), new Point3D(300, 300, 0),
+                        new Point3D(-300, 300, 0)) //
+                                .setEmission(new Color(30, 30, 30)).setMaterial(material), //
+                new Polygon(new Point3D(-60, -60, 60), new Point3D(60, -60, 60), new Point3D(60, 60, 60),
+                        new Point3D(-60, 60, 60)) //
+                                .setEmission(new Color(java.awt.Color.BLUE)).setMaterial(material), //
+                new Sphere(new Point3D(-70, 70, 20), 20) //
+                        .setEmission(new Color(java.awt.Color.RED)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(30).setKT(0.5)));
+        for (int i = 0; i < 20; ++i)
+            for (int j = 0; j < 20; ++j)
+                scene.geometries.add(new Triangle(new Point3D(-100 + 10 * i, -100 + 10 * j, 90),
+                        new Point3D(-97 + 10 * i, -100 + 10 * j, 90), new Point3D(-100 + 10 * i, -97 + 10 * j, 90)) //
+                                .setEmission(new Color(java.awt.Color.GREEN)).setMaterial(material));
+        scene.lights.add(new PointLight(new Color(500, 500, 500), new Point3D(0, 0, 200)) //
+                .setKL(0.00001).setKQ(0.000005));
+        scene.lights.add(new DirectionalLight(new Color(200, 200, 200), new Vector(1, -1, -2)));
+        scene.geometries.buildBVHTree();
+        return scene;
+    }
+
+    /**
+     * Render the scene
+     *
+     * @param scene  the scene
+     * @param tracer the ray tracer
+     * @return the image pixels
+     */
+    private Color[][] render(Scene scene, RayTracerBase tracer) {
+        Camera camera = new Camera(new Point3D(0, -800, 600), new Vector(0, 800, -600), new Vector(0, 600, 800)) //
+                .setViewPlaneSize(250, 250).setViewPlaneDistance(1000);
+        Color[][] pixels = new Color[100][100];
+        for (int i = 0; i < 100; ++i)
+            for (int j = 0; j < 100; ++j)
+                pixels[i][j] = tracer.traceRay(camera.constructRayThroughPixel(100, 100, j, i));
+        return pixels;
+    }
+
+    /**
+     * Test method for {@link renderer.RayTracerBasic#setOccluderCache(boolean)} -
+     * the last occluder cache must give the same colors with less scene queries
+     */
+    @Test
+    public void testOccluderCache() {
+        Scene scene = createScene();
+        AtomicLong queries = ((CountingGeometries) scene.geometries).queries;
+
+        Color[][] expected = render(scene, new RayTracerBasic(scene).setOccluderCache(false));
+        long full = queries.getAndSet(0);
+
+        Color[][] result = render(scene, new RayTracerBasic(scene));
+        long cached = queries.get();
+
+        for (int i = 0; i < 100; ++i)
+            for (int j = 0; j < 100; ++j)
+                assertEquals("Wrong color", expected[i][j].getColor(), result[i][j].getColor());
+        assertTrue("The cache must save scene queries", cached < full);
+    }
+
+    /**
+     * Test method for {@link renderer.RayTracerBasic#setOccluderCache(boolean)} -
+     * the last occluders of the old scene shapes must not shade the new ones
+     */
+    @Test
+    public void testOccluderCacheSceneChange() {
+        Scene scene = createScene();
+        RayTracerBasic tracer = new RayTracerBasic(scene);
+        render(scene, tracer);
+
+        // the same shapes without the blocker in front of the light
+        Material material = new Material().setKD(0.5).setKS(0.5).setNShininess(30);
+        scene.geometries = new Geometries();
+        scene.geometries.add(new Polygon(new Point3D(-300, -300, 0), new Point3D(300, -300, 0),
+                new Point3D(300, 300, 0), new Point3D(-300, 300, 0)) //
+                        .setEmission(new Color(30, 30, 30)).setMaterial(material));
+        Color[][] expected = render(scene, new RayTracerBasic(scene).setOccluderCache(false));
+        Color[][] result = render(scene, tracer);
+        for (int i = 0; i < 100; ++i)
+            for (int j = 0; j < 100; ++j)
+                assertEquals("Wrong color", expected[i][j].getColor(), result[i][j].getColor());
+    }
+
+    /**
+     * Create a scene with hundreds of lights
+     *
+     * @return the scene
+     */
+    private Scene createManyLightsScene() {
+        Scene scene = new Scene("Test scene");
+        scene.geometries = new CountingGeometries();
+        scene.geometries.add( //
+                new Polygon(new Point3D(-300, -300, 0), new Point3D(300, -300, 0), new Point3D(300, 300, 0),
+                        new Point3D(-300, 300, 0)) //
+                                .setEmission(new Color(10, 10, 10)) //
+                                .setMaterial(new Material().setKD(0.5).setKS(0.3).setNShininess(20)), //
+                new Sphere(new Point3D(0, 0, 40), 40) //
+                        .setEmission(new Color(java.awt.Color.BLUE)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(50)));
+        for (int i = 0; i < 16; ++i)
+            for (int j = 0; j < 16; ++j)
+                scene.lights.add(new PointLight(new Color(300, 250, 200), new Point3D(-300 + 40 * i, -300 + 40 * j, 30)) //
+                        .setKL(0.05).setKQ(0.05));
+        scene.lights.add(new SpotLight(new Color(400, 400, 400), new Point3D(0, -200, 200), new Vector(0, 1, -1)) //
+                .setKL(0.0001).setKQ(0.00001));
+        return scene;
+    }
+
+    /**
+     * Calculate the average of all the color components of an image
+     *
+     * @param pixels the image pixels
+     * @return the average
+     */
+    private double average(Color[][] pixels) {
+        double sum = 0;
+        for (Color[] row : pixels)
+            for (Color pixel : row)
+                sum += pixel.getR() + pixel.getG() + pixel.getB();
+        return sum / (3 * pixels.length * pixels[0].length);
+    }
+
+    /**
+     * Test method for {@link renderer.RayTracerBasic#setLightCutoff(double)} - in
+     * a scene with hundreds of lights the culled image must be almost the same,
+     * with less shadow rays
+     */
+    @Test
+    public void testLightCutoff() {
+        Scene scene = createManyLightsScene();
+        AtomicLong queries = ((CountingGeometries) scene.geometries).queries;
+
+        Color[][] expected = render(scene, new RayTracerBasic(scene));
+        long full = queries.getAndSet(0);
+        Color[][] result = render(scene, new RayTracerBasic(scene).setLightCutoff(0.5));
+        long culled = queries.get();
+
+        double maxDifference = 0;
+        for (int i = 0; i < 100; ++i)
+            for (int j = 0; j < 100; ++j) {
+                maxDifference = Math.max(maxDifference, Math.abs(expected[i][j].getR() - result[i][j].getR()));
+                maxDifference = Math.max(maxDifference, Math.abs(expected[i][j].getG() - result[i][j].getG()));
+                maxDifference = Math.max(maxDifference, Math.abs(expected[i][j].getB() - result[i][j].getB()));
+            }
+        assertTrue("Culled lights must be negligible: " + maxDifference, maxDifference < 10);
+        assertTrue("Culling must trace less shadow rays", culled < full);
+    }
+
+    /**
+     * Test method for {@link renderer.RayTracerBasic#setLightSamples(int)} - in a
+     * scene with hundreds of lights the sampled image must have the same
+     * brightness on average, with much less shadow rays
+     */
+    @Test
+    public void testLightSamples() {
+        Scene scene = createManyLightsScene();
+        AtomicLong queries = ((CountingGeometries) scene.geometries).queries;
+
+        Color[][] expected = render(scene, new RayTracerBasic(scene));
+        long full = queries.getAndSet(0);
+        Color[][] result = render(scene, new RayTracerBasic(scene).setLightSamples(8));
+        long sampled = queries.get();
+
+        double expectedAverage = average(expected), resultAverage = average(result);
+        assertEquals("Sampled lights must not be biased", expectedAverage, resultAverage, expectedAverage * 0.03);
+        assertTrue("Sampling must trace much less shadow rays", sampled * 3 < full);
+    }
+
+    /**
+     * Create a scene of two transparent mirrors facing each other (every hit
+     * spawns both a reflected and a refracted ray)
+     *
+     * @return the scene
+     */
+    private Scene createMirrorsScene() {
+        Scene scene = new Scene("Test scene").setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.1));
+        scene.geometries = new CountingGeometries();
+        Material mirror = new Material().setKD(0.2).setKS(0.2).setNShininess(20).setKR(0.6).setKT(0.35);
+        scene.geometries.add( //
+                new Polygon(new Point3D(-5000, -5000, 0), new Point3D(5000, -5000, 0), new Point3D(5000, 5000, 0),
+                        new Point3D(-5000, 5000, 0)) //
+                                .setEmission(new Color(20, 20, 40)).setMaterial(mirror), //
+                new Polygon(new Point3D(-5000, -5000, 100), new Point3D(-5000, 5000, 100), new Point3D(5000, 5000, 100),
+                        new Point3D(5000, -5000, 100)) //
+                                .setEmission(new Color(40, 20, 20)).setMaterial(mirror), //
+                new Sphere(new Point3D(0, 0, 50), 20) //
+                        .setEmission(new Color(java.awt.Color.GREEN)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(30)));
+        scene.lights.add(new PointLight(new Color(300, 300, 300), new Point3D(50, 50, 60)) //
+                .setKL(0.0001).setKQ(0.0001));
+        return scene;
+    }
+
+    /**
+     * Render the mirrors scene from inside
+     *
+     * @param tracer the ray tracer
+     * @return the image pixels
+     */
+    private Color[][] renderMirrors(RayTracerBase tracer) {
+        Camera camera = new Camera(new Point3D(0, -190, 50), new Vector(0, 1, 0), new Vector(0, 0, 1)) //
+                .setViewPlaneSize(150, 150).setViewPlaneDistance(100);
+        Color[][] pixels = new Color[60][60];
+        for (int i = 0; i < 60; ++i)
+            for (int j = 0; j < 60; ++j)
+                pixels[i][j] = tracer.traceRay(camera.constructRayThroughPixel(60, 60, j, i));
+        return pixels;
+    }
+
+    /**
+     * Test method for {@link renderer.RayTracerBasic#setRussianRoulette(double)} -
+     * the weak branches of the rays tree must be cut without changing the
+     * brightness
+     */
+    @Test
+    public void testRussianRoulette() {
+        Scene scene = createMirrorsScene();
+        AtomicLong queries = ((CountingGeometries) scene.geometries).queries;
+
+        double expected = average(renderMirrors(new RayTracerBasic(scene).setMaxLevel(14).setMinK(0.0001)));
+        long fullQueries = queries.getAndSet(0);
+        double result = average(
+                renderMirrors(new RayTracerBasic(scene).setMaxLevel(14).setMinK(0.0001).setRussianRoulette(0.1)));
+        long rouletteQueries = queries.get();
+
+        assertEquals("Russian roulette must not change the brightness", expected, result, expected * 0.03);
+        assertTrue("Russian roulette must trace less rays", rouletteQueries * 3 < fullQueries * 2);
+    }
+
+    /**
+     * Test method for {@link renderer.RayTracerBasic#setRayBudget(int)} and
+     * {@link renderer.RayTracerBasic#setMaxLevel(int)} - the rays of a pixel
+     * must be bounded
+     */
+    @Test
+    public void testRayBudget() {
+        Scene scene = createMirrorsScene();
+        AtomicLong queries = ((CountingGeometries) scene.geometries).queries;
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: at most the budget of secondary rays for every camera ray (with a
+        // shadow ray for every hit)
+        renderMirrors(new RayTracerBasic(scene).setRayBudget(20));
+        assertTrue("Too many rays: " + queries.get(), queries.get() <= 60 * 60 * (1 + 20) * 2);
+
+        // TC02: the camera samples of a pixel share the budget
+        queries.set(0);
+        RayTracerBasic tracer = new RayTracerBasic(scene).setRayBudget(20);
+        Ray ray = new Ray(new Point3D(0, -190, 50), new Vector(0.1, 1, 0.1));
+        SampleStream.Budget budget = new SampleStream.Budget();
+        for (int k = 0; k < 16; ++k)
+            tracer.traceRay(ray, new SampleStream(Sampler.SOBOL, SampleStream.seed(0, 0), k, 16, budget));
+        assertTrue("Too many rays: " + queries.get(), queries.get() <= (16 + 20) * 2);
+        assertFalse("The budget must be spent", budget.spend(20));
+
+        // TC03: the maximal level bounds the rays tree
+        queries.set(0);
+        renderMirrors(new RayTracerBasic(scene).setMaxLevel(3));
+        assertTrue("Too many rays: " + queries.get(), queries.get() <= 60 * 60 * (1 + 2 + 4) * 2);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: level 1 is only the camera rays and their shadow rays
+        queries.set(0);
+        renderMirrors(new RayTracerBasic(scene).setMaxLevel(1));
+        assertTrue("Too many rays: " + queries.get(), queries.get() <= 60 * 60 * 2);
+    }
+
+    /**
+     * Test method for {@link renderer.RayTracerBasic#traceRay(Ray)} - a very deep
+     * rays tree (between two perfect mirrors) must not be bounded by the thread
+     * stack
+     */
+    @Test
+    public void testDeepRaysTree() {
+        Scene scene = new Scene("Test scene");
+        scene.geometries = new CountingGeometries();
+        Material mirror = new Material().setKR(1);
+        scene.geometries.add( //
+                new Plane(new Point3D(0, 0, 0), new Vector(0, 0, 1)).setEmission(new Color(0.001, 0, 0))
+                        .setMaterial(mirror), //
+                new Plane(new Point3D(0, 0, 100), new Vector(0, 0, -1)).setEmission(new Color(0, 0.001, 0))
+                        .setMaterial(mirror));
+        RayTracerBasic tracer = new RayTracerBasic(scene).setMaxLevel(100000).setMinK(0);
+
+        Color color = tracer.traceRay(new Ray(new Point3D(0, 0, 50), new Vector(0, 0, -1)));
+        assertEquals("Wrong amount of rays", 100000, ((CountingGeometries) scene.geometries).queries.get());
+        assertEquals("Wrong color", 50, color.getR(), 1e-6);
+        assertEquals("Wrong color", 50, color.getG(), 1e-6);
+    }
+}
@@ -0,0 +1,199 @@
+package unittests.renderer;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import elements.*;
+import geometries.*;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
+
+/**
+ * Testing {@link renderer.RayTracerBeams}
+ */
+public class RayTracerBeamsTests {
+    private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
+
+    private Camera camera = new Camera(new Point3D(1000, 0, 250), new Vector(-1000, 0, -250),
+            new Vector(-250, 0, 1000)) //
+                    .setViewPlaneSize(200, 200).setViewPlaneDistance(1000);
+
+    /**
+     * A soft shadows ray tracer that counts its shadow rays
+     */
+    private static class CountingTracer extends RayTracerBeams {
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicLong shadowRays = new AtomicLong();
+
+        CountingTracer(Scene scene) {
+            super(scene);
+        }
+
+        @Override
+        protected double transparency(LightSource ls, Vector l, Vector n, Point3D point) {
+            shadowRays.incrementAndGet();
+            return super.transparency(ls, l, n, point);
+        }
+    }
+
+    /**
+     * Render the scene with soft shadows
+     *
+     * @param tracer    the ray tracer
+     * @param imageName the image file name
+     * @return the amount of shadow rays
+     */
+    private long render(CountingTracer tracer, String imageName) {
+        return render(tracer, imageName, 1);
+    }
+
+    /**
+     * Render the scene with soft shadows and super sampling
+     *
+     * @param tracer    the ray tracer
+     * @param imageName the image file name
+     * @param level     the anti aliasing level
+     * @return the amount of shadow rays
+     */
+    private long render(CountingTracer tracer, String imageName, int level) {
+        RenderBase render = new Render() //
+                .setAntiAliasingLevel(level) //
+                .setImageWriter(new ImageWriter(imageName, 200, 200)) //
+                .setCamera(camera) //
+                .setRayTracer(tracer);
+        render.renderImage();
+        render.writeToImage();
+        return tracer.shadowRays.get();
+    }
+
+    /**
+     * Test method for {@link renderer.RayTracerBeams#setAdaptiveShadows(boolean)} -
+     * the adaptive soft shadows must be almost the same with much less shadow rays
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testAdaptiveShadows() throws IOException {
+        Scene scene = new Scene("Test scene").setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.15));
+        scene.geometries.add( //
+                new Polygon(new Point3D(200, 200, 0), new Point3D(200, -200, 0), new Point3D(-200, -200, 0),
+                        new Point3D(-200, 200, 0)) //
+                                .setEmission(new Color(java.awt.Color.BLACK)) //
+                                .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(30)),
+                new Sphere(new Point3D(20, 30, 10), 10) //
+                        .setEmission(new Color(java.awt.Color.PINK)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(30)),
+                new Sphere(new Point3D(-40, -60, 30), 30) //
+                        .setEmission(new Color(java.awt.Color.YELLOW)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(30)),
+                new Sphere(new Point3D(-60, 20, 20), 20) //
+                        .setEmission(new Color(java.awt.Color.CYAN)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(30)));
+        scene.lights.add(new SpotLight(new Color(700, 700, 700), new Point3D(200, -200, 200), new Vector(-1, 1, -1)) //
+                .setKL(4E-4).setKQ(2E-5).setSquareEdge(30));
+        scene.geometries.buildBVHTree();
+
+        long full = render((CountingTracer) new CountingTracer(scene).setNumOfRays(64), "softShadowsFull");
+        long adaptive = render((CountingTracer) new CountingTracer(scene).setNumOfRays(64).setAdaptiveShadows(true),
+                "softShadowsAdaptive");
+        assertTrue("Adaptive shadows must take a few times less shadow rays", adaptive * 3 < full);
+
+        // the pixels must be the same, except a few on the edges of the penumbra
+        ImageDiff diff = ImageDiff.compare(new File(FOLDER_PATH + "/softShadowsFull.png"),
+                new File(FOLDER_PATH + "/softShadowsAdaptive.png"), 0);
+        assertTrue("Too many different pixels: " + diff, diff.getDifferentPixels() < 200 * 200 / 100);
+    }
+
+    /**
+     * Create a mostly matte scene with soft shadows
+     *
+     * @return the scene
+     */
+    private Scene matteScene() {
+        Scene scene = new Scene("Test scene").setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.15));
+        Material matte = new Material().setKD(0.6);
+        scene.geometries.add( //
+                new Polygon(new Point3D(200, 200, 0), new Point3D(200, -200, 0), new Point3D(-200, -200, 0),
+                        new Point3D(-200, 200, 0)) //
+                                .setEmission(new Color(java.awt.Color.BLACK)).setMaterial(matte),
+                new Sphere(new Point3D(-40, -60, 30), 30) //
+                        .setEmission(new Color(java.awt.Color.YELLOW)).setMaterial(matte),
+                new Sphere(new Point3D(-60, 20, 20), 20) //
+                        .setEmission(new Color(java.awt.Color.CYAN)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(30)));
+        scene.lights.add(new SpotLight(new Color(700, 700, 700), new Point3D(200, -200, 200), new Vector(-1, 1, -1)) //
+                .setKL(4E-4).setKQ(2E-5).setSquareEdge(30));
+        scene.geometries.buildBVHTree();
+        return scene;
+    }
+
+    /**
+     * Test method for {@link renderer.RayTracerBasic#setIrradianceCache(double, int)}
+     * - the super sampled soft shadows of a matte scene must be almost the same
+     * with a small part of the shadow rays
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testIrradianceCache() throws IOException {
+        Scene scene = matteScene();
+        long full = render((CountingTracer) new CountingTracer(scene).setNumOfRays(16), "irradianceFull", 3);
+        long cached = render((CountingTracer) new CountingTracer(scene).setNumOfRays(16).setIrradianceCache(2, 1 << 16),
+                "irradianceCached", 3);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the matte surfaces share the shadow rays
+        assertTrue("The cache must save most of the shadow rays", cached * 4 < full);
+
+        // TC02: the lighting is almost the same
+        ImageDiff diff = ImageDiff.compare(new File(FOLDER_PATH + "/irradianceFull.png"),
+                new File(FOLDER_PATH + "/irradianceCached.png"), 0);
+        assertTrue("Wrong lighting: " + diff, diff.getPsnr() > 35 && diff.getSsim() > 0.97);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: illegal cache settings
+        RayTracerBasic tracer = new RayTracerBasic(scene);
+        assertThrows("Negative cell size", IllegalArgumentException.class, () -> tracer.setIrradianceCache(-1, 16));
+        assertThrows("No capacity", IllegalArgumentException.class, () -> tracer.setIrradianceCache(1, 0));
+    }
+
+    /**
+     * Test method for {@link renderer.RayTracerBasic#setIrradianceCache(double, int)}
+     * - the image must not depend on the order of rendering (the amount of
+     * threads, the tiles and the evictions of the cache)
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testIrradianceCacheOrder() throws IOException {
+        Scene scene = matteScene();
+        RenderBase render = new Render() //
+                .setAntiAliasingLevel(2) //
+                .setImageWriter(new ImageWriter("irradianceSerial", 200, 200)) //
+                .setCamera(camera) //
+                .setRayTracer(new RayTracerBeams(scene).setNumOfRays(16).setIrradianceCache(2, 1 << 16));
+        render.renderImage();
+        render.writeToImage();
+
+        // a small cache evicts corners all the time
+        render = new MultiThreadsRender().setMultithreading(3) //
+                .setAntiAliasingLevel(2) //
+                .setTileSize(10) //
+                .setImageWriter(new ImageWriter("irradianceThreads", 200, 200)) //
+                .setCamera(camera) //
+                .setRayTracer(new RayTracerBeams(scene).setNumOfRays(16).setIrradianceCache(2, 1 << 8));
+        render.renderImage();
+        render.writeToImage();
+
+        ImageDiff diff = ImageDiff.compare(new File(FOLDER_PATH + "/irradianceSerial.png"),
+                new File(FOLDER_PATH + "/irradianceThreads.png"), 0);
+        assertTrue("Wrong pixels: " + diff, diff.isSame());
+    }
+}
@@ -0,0 +1,122 @@
+package unittests.renderer;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import elements.*;
+import geometries.*;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
+
+/**
+ * Testing the progress reports of the renderers ({@link renderer.ProgressListener})
+ */
+public class RenderProgressTests {
+    private Camera camera = new Camera(new Point3D(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+            .setViewPlaneSize(200, 200).setViewPlaneDistance(1000);
+
+    private Scene scene = new Scene("Test scene") //
+            .setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.15));
+
+    /**
+     * setting a simple scene with a sphere lighted by a spot light
+     */
+    private void setScene() {
+        scene.geometries.add(new Sphere(new Point3D(0, 0, -50), 50) //
+                .setEmission(new Color(java.awt.Color.BLUE)) //
+                .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(100)));
+        scene.lights.add(new SpotLight(new Color(500, 300, 0), new Point3D(-50, -50, 50), new Vector(1, 1, -2)) //
+                .setKL(0.00001).setKQ(0.000005));
+    }
+
+    /**
+     * Test method for {@link renderer.RenderBase#setProgressListener(ProgressListener)}
+     * with multi-threading.
+     */
+    @Test
+    public void testMultiThreadsProgress() {
+        setScene();
+        List<RenderProgress> reports = new CopyOnWriteArrayList<>();
+        RenderBase render = new MultiThreadsRender().setMultithreading(3) //
+                .setProgressListener(reports::add).setProgressInterval(10) //
+                .setImageWriter(new ImageWriter("progressMultiThreads", 200, 200)) //
+                .setCamera(camera) //
+                .setRayTracer(new RayTracerBasic(scene));
+        render.renderImage();
+
+        assertFalse("No progress was reported", reports.isEmpty());
+        RenderProgress last = reports.get(reports.size() - 1);
+        assertTrue("Last report must be finished", last.isDone());
+        assertEquals("Wrong amount of pixels", 200 * 200, last.getPixelsDone());
+        assertEquals("Wrong amount of rays", 200 * 200, last.getRaysTraced());
+        assertEquals("Wrong percentage", 100, last.getPercents());
+        assertEquals("Wrong amount of threads", 3, last.getThreadsCount());
+        assertEquals("Wrong eta", 0, last.getEtaMillis());
+        for (int i = 1; i < reports.size(); ++i)
+            assertTrue("Progress went backwards", reports.get(i - 1).getPixelsDone() <= reports.get(i).getPixelsDone());
+    }
+
+    /**
+     * Test method for {@link renderer.RenderBase#setProgressListener(ProgressListener)}
+     * with super sampling on a single thread.
+     */
+    @Test
+    public void testSingleThreadSuperSamplingProgress() {
+        setScene();
+        List<RenderProgress> reports = new CopyOnWriteArrayList<>();
+        RenderBase render = new Render().setAntiAliasingLevel(2) //
+                .setProgressListener(reports::add) //
+                .setImageWriter(new ImageWriter("progressSingleThread", 100, 100)) //
+                .setCamera(camera) //
+                .setRayTracer(new RayTracerBasic(scene));
+        render.renderImage();
+
+        RenderProgress last = reports.get(reports.size() - 1);
+        assertEquals("Wrong amount of pixels", 100 * 100, last.getPixelsDone());
+        assertEquals("Wrong amount of threads", 1, last.getThreadsCount());
+        assertTrue("Super sampling must trace several rays per pixel", last.getRaysTraced() > 100 * 100);
+    }
+
+    /**
+     * Render the scene by adaptive super sampling
+     * 
+     * @param render   the renderer
+     * @param tileSize the tile edge length
+     * @return the amount of rays traced
+     */
+    private long adaptiveRays(RenderBase render, int tileSize) {
+        List<RenderProgress> reports = new CopyOnWriteArrayList<>();
+        render.setAntiAliasingLevel(3).setAdaptive(true) //
+                .setTileSize(tileSize) //
+                .setProgressListener(reports::add) //
+                .setImageWriter(new ImageWriter("progressAdaptive", 100, 100)) //
+                .setCamera(camera) //
+                .setRayTracer(new RayTracerBasic(scene));
+        render.renderImage();
+        return reports.get(reports.size() - 1).getRaysTraced();
+    }
+
+    /**
+     * Test method for {@link renderer.RenderBase#setAdaptive(boolean)} - the
+     * samples on the tile edges are shared by the tiles (and dropped once the
+     * rows of tiles are finished) so each of them is traced exactly once
+     */
+    @Test
+    public void testAdaptiveTileEdges() {
+        setScene();
+        long rays = adaptiveRays(new Render(), 100);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: rows of tiles on a single thread
+        assertEquals("Wrong amount of rays by rows", rays,
+                adaptiveRays(new Render().setTraversal(PixelTraversal.ROW_MAJOR), 8));
+        // TC02: tiles by the Hilbert curve on several threads
+        assertEquals("Wrong amount of rays by threads", rays,
+                adaptiveRays(new MultiThreadsRender().setMultithreading(3), 8));
+    }
+}
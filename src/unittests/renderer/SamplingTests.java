@@ -0,0 +1,65 @@
+package unittests.renderer;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import elements.*;
+import geometries.*;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
+
+/**
+ * Testing the sampling of the renderers ({@link renderer.RenderBase#setSampler(Sampler)})
+ */
+public class SamplingTests {
+    private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
+
+    /**
+     * Soft shadows with anti aliasing must give the same image with any amount of
+     * threads and tile size
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testThreadsIndependent() throws IOException {
+        Scene scene = new Scene("Test scene") //
+                .setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.15));
+        scene.geometries.add( //
+                new Plane(new Point3D(0, 0, -100), new Vector(0, 0, 1)) //
+                        .setEmission(new Color(40, 40, 40)) //
+                        .setMaterial(new Material().setKD(0.6).setKS(0.2).setNShininess(30)), //
+                new Sphere(new Point3D(0, 0, -50), 30) //
+                        .setEmission(new Color(java.awt.Color.BLUE)) //
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setNShininess(100)));
+        scene.lights.add(new PointLight(new Color(500, 500, 500), new Point3D(60, 60, 100)) //
+                .setKL(0.00001).setKQ(0.000005).setSquareEdge(40));
+        Camera camera = new Camera(new Point3D(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+                .setViewPlaneSize(200, 200).setViewPlaneDistance(1000);
+        RayTracerBase tracer = new RayTracerBeams(scene).setNumOfRays(9);
+
+        for (Sampler sampler : Sampler.values()) {
+            RenderBase render = new Render().setSampler(sampler).setAntiAliasingLevel(2) //
+                    .setImageWriter(new ImageWriter("sampling" + sampler + "1", 100, 100)) //
+                    .setCamera(camera) //
+                    .setRayTracer(tracer);
+            render.renderImage();
+            render.writeToImage();
+            render = new MultiThreadsRender().setMultithreading(3).setSampler(sampler).setAntiAliasingLevel(2) //
+                    .setTileSize(7) //
+                    .setImageWriter(new ImageWriter("sampling" + sampler + "3", 100, 100)) //
+                    .setCamera(camera) //
+                    .setRayTracer(tracer);
+            render.renderImage();
+            render.writeToImage();
+
+            ImageDiff diff = ImageDiff.compare(new File(FOLDER_PATH + "/sampling" + sampler + "1.png"),
+                    new File(FOLDER_PATH + "/sampling" + sampler + "3.png"), 0);
+            assertTrue("Wrong pixels with " + sampler + ": " + diff, diff.isSame());
+        }
+    }
+}
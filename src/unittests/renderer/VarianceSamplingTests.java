@@ -0,0 +1,98 @@
+package unittests.renderer;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import elements.*;
+import primitives.*;
+import renderer.*;
+import scene.Scene;
+
+/**
+ * Testing {@link renderer.RenderBase#setVarianceSampling(int, double, int)}
+ */
+public class VarianceSamplingTests {
+    private Camera camera = new Camera(new Point3D(0, 0, 1000), new Vector(0, 0, -1), new Vector(0, 1, 0)) //
+            .setViewPlaneSize(200, 200).setViewPlaneDistance(1000);
+
+    /**
+     * Render 20x20 pixels with variance driven sampling and a fake ray tracer
+     *
+     * @param tracer     the ray tracer
+     * @param batchSize  samples in a batch
+     * @param error      the error threshold
+     * @param maxSamples maximal samples in a pixel
+     * @return the amount of rays traced
+     */
+    private long render(RayTracerBase tracer, int batchSize, double error, int maxSamples) {
+        RenderProgress[] last = new RenderProgress[1];
+        RenderBase render = new Render() //
+                .setVarianceSampling(batchSize, error, maxSamples) //
+                .setProgressListener(p -> last[0] = p) //
+                .setImageWriter(new ImageWriter("varianceSampling", 20, 20)) //
+                .setCamera(camera) //
+                .setRayTracer(tracer);
+        render.renderImage();
+        return last[0].getRaysTraced();
+    }
+
+    /**
+     * Test method for {@link renderer.RenderBase#setVarianceSampling(int, double, int)}
+     */
+    @Test
+    public void testConvergence() {
+        Scene scene = new Scene("Test scene");
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: smooth pixels stop after the first batch
+        RayTracerBase flat = new RayTracerBase(scene) {
+            @Override
+            public Color traceRay(Ray ray) {
+                return new Color(100, 100, 100);
+            }
+        };
+        assertEquals("Smooth pixels must stop after one batch", 20 * 20 * 4, render(flat, 4, 1, 64));
+
+        // TC02: noisy pixels take samples up to the cap
+        Random random = new Random(1);
+        RayTracerBase noise = new RayTracerBase(scene) {
+            @Override
+            public Color traceRay(Ray ray) {
+                return new Color(random.nextDouble() * 255, 0, 0);
+            }
+        };
+        assertEquals("Noisy pixels must take the maximal samples", 20 * 20 * 64, render(noise, 4, 1, 64));
+
+        // TC03: a sharp edge inside the view - only the edge pixels take more samples
+        RayTracerBase edge = new RayTracerBase(scene) {
+            @Override
+            public Color traceRay(Ray ray) {
+                return ray.getDir().getHead().getX() < 0.0123 ? Color.BLACK : new Color(255, 255, 255);
+            }
+        };
+        long rays = render(edge, 4, 2, 64);
+        assertTrue("Edge pixels must take more samples", rays > 20 * 20 * 4);
+        assertTrue("Only edge pixels may take more samples", rays < 20 * 20 * 4 + 20 * 64);
+
+        // =============== Boundary Values Tests ==================
+        // TC11: a single batch of the maximal size
+        assertEquals("Wrong amount of samples", 20 * 20 * 8, render(noise, 8, 1, 8));
+    }
+
+    /**
+     * Test method for {@link renderer.RenderBase#setVarianceSampling(int, double, int)}
+     * with illegal parameters
+     */
+    @Test
+    public void testIllegalParameters() {
+        RenderBase render = new Render();
+        assertThrows("Batch of a single sample", IllegalArgumentException.class,
+                () -> render.setVarianceSampling(1, 1, 10));
+        assertThrows("Cap below the batch", IllegalArgumentException.class,
+                () -> render.setVarianceSampling(8, 1, 4));
+        assertThrows("Negative error", IllegalArgumentException.class, () -> render.setVarianceSampling(4, -1, 10));
+    }
+}